@@ -123,6 +123,12 @@ dependencies {
 
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    // Load harness, see com.dre.brewery.load.LoadHarness
+    testImplementation("org.spigotmc:spigot-api:1.20.2-R0.1-SNAPSHOT") {
+        exclude("com.google.code.gson", "gson")
+    }
+    testCompileOnly("org.projectlombok:lombok:1.18.30")
+    testAnnotationProcessor("org.projectlombok:lombok:1.18.30")
 }
 
 
@@ -141,6 +147,13 @@ tasks {
     test {
         useJUnitPlatform()
     }
+    register<JavaExec>("loadHarness") {
+        // Not part of the tests, run with: ./gradlew loadHarness --args="--barrels=5000 --minutes=20"
+        group = "verification"
+        description = "Runs the periodic work of the plugin on a simulated server and reports its cost"
+        classpath = sourceSets.test.get().runtimeClasspath
+        mainClass = "com.dre.brewery.load.LoadHarness"
+    }
 
     processResources {
         outputs.upToDateWhen { false }
@@ -29,6 +29,8 @@ import com.dre.brewery.recipe.RecipeItem;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.MaterialUtil;
 import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.StaggeredCycle;
+import com.dre.brewery.utility.TickScheduler;
 import com.dre.brewery.utility.Tuple;
 import lombok.Getter;
 import lombok.Setter;
@@ -52,6 +54,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -72,6 +75,8 @@ public class BCauldron {
     private static final Set<UUID> plInteracted = new HashSet<>(); // Interact Event helper
     @Getter
     public static Map<Block, BCauldron> bcauldrons = new ConcurrentHashMap<>(); // All active cauldrons. Mapped to their block for fast retrieve
+    // Spreads the cauldron updates over the minute
+    private static final StaggeredCycle<BCauldron> updateCycle = new StaggeredCycle<>(BreweryPlugin.BreweryRunnable.CYCLE_TICKS, cauldron -> StaggeredCycle.key(cauldron.id));
 
     private BIngredients ingredients = new BIngredients();
     private final Block block;
@@ -119,6 +124,30 @@ public class BCauldron {
         return true;
     }
 
+    /**
+     * Start of a new minute, every Cauldron is updated once over the following ticks by {@link #onUpdate(int)}.
+     */
+    public static void scheduleUpdates() {
+        updateCycle.fill(bcauldrons.values());
+    }
+
+    /**
+     * Update the Cauldrons that have their phase in this tick of the minute.
+     */
+    public static void onUpdate(int cycleTick) {
+        for (BCauldron cauldron : updateCycle.drain(cycleTick)) {
+            BreweryPlugin.getTickScheduler().submit(TickScheduler.Priority.NORMAL, cauldron.block.getLocation(), () -> {
+                if (bcauldrons.get(cauldron.block) != cauldron) {
+                    // Removed in the meantime
+                    return;
+                }
+                if (!cauldron.onUpdate()) {
+                    bcauldrons.remove(cauldron.block);
+                }
+            });
+        }
+    }
+
     /**
      * Will add a minute to the cooking time
      */
@@ -551,6 +580,24 @@ public class BCauldron {
         return bcauldrons.remove(block) != null;
     }
 
+    /**
+     * reset all cauldrons among the blocks to normal cauldrons
+     *
+     * @return The amount of cauldrons that were removed
+     */
+    public static int removeAll(Collection<Block> blocks) {
+        if (bcauldrons.isEmpty()) {
+            return 0;
+        }
+        int removed = 0;
+        for (Block block : blocks) {
+            if (bcauldrons.remove(block) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
     /**
      * Are any Cauldrons in that World
      */
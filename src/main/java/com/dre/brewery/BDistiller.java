@@ -95,6 +95,10 @@ public class BDistiller {
         return trackedDistillers.containsKey(block);
     }
 
+    public static int numTrackedDistillers() {
+        return trackedDistillers.size();
+    }
+
     // Returns a Brew or null for every Slot in the BrewerInventory
     public static Brew[] getDistillContents(BrewerInventory inv) {
         ItemStack item;
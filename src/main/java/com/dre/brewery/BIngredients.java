@@ -24,6 +24,7 @@ import com.dre.brewery.api.events.brew.BrewModifyEvent;
 import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.files.Config;
 import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import com.dre.brewery.lore.Base91DecoderStream;
 import com.dre.brewery.lore.Base91EncoderStream;
 import com.dre.brewery.lore.BrewLore;
@@ -39,6 +40,8 @@ import com.dre.brewery.recipe.RecipeItem;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.Logging;
 import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.Timings;
+import com.dre.brewery.utility.jfr.RecipeEvaluationEvent;
 import lombok.Getter;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
@@ -68,6 +71,8 @@ public class BIngredients {
     private static final MinecraftVersion VERSION = BreweryPlugin.getMCVersion();
     private static final BreweryPlugin plugin = BreweryPlugin.getInstance();
     private static final Config config = ConfigManager.getConfig(Config.class);
+    private static final Timings.Timing BEST_RECIPE_TIMING = Timings.of("recipe.bestRecipe");
+    private static final Timings.Timing CAULDRON_RECIPE_TIMING = Timings.of("recipe.cauldronRecipe");
     private static final Lang lang = ConfigManager.getConfig(Lang.class);
     private static int lastId = 0; // Legacy
 
@@ -269,6 +274,31 @@ public class BIngredients {
      * best recipe for current state of potion, STILL not always returns the correct one...
      */
     public BestRecipeResult getBestRecipeFull(BarrelWoodType wood, float time, boolean distilled) {
+        long timingStart = BEST_RECIPE_TIMING.start();
+        long metricsStart = BreweryMetrics.RECIPE_LATENCY.start();
+        RecipeEvaluationEvent event = new RecipeEvaluationEvent();
+        event.begin();
+        BestRecipeResult result = null;
+        try {
+            result = findBestRecipe(wood, time, distilled);
+            return result;
+        } finally {
+            BEST_RECIPE_TIMING.stop(timingStart);
+            BreweryMetrics.RECIPE_LATENCY.stop(metricsStart);
+            if (event.shouldCommit()) {
+                event.recipes = BRecipe.getAllRecipes().size();
+                event.ingredients = ingredients.size();
+                event.wood = wood.name();
+                event.time = time;
+                event.distilled = distilled;
+                BRecipe recipe = result != null ? result.getSuccessRecipe() : null;
+                event.result = recipe != null ? recipe.getRecipeName() : "";
+                event.commit();
+            }
+        }
+    }
+
+    private BestRecipeResult findBestRecipe(BarrelWoodType wood, float time, boolean distilled) {
         if (BRecipe.getAllRecipes().isEmpty()) {
             return new BestRecipeResult.NoRecipesRegistered();
         }
@@ -373,6 +403,16 @@ public class BIngredients {
      */
     @Nullable
     public BCauldronRecipe getCauldronRecipe() {
+        long timingStart = CAULDRON_RECIPE_TIMING.start();
+        try {
+            return findCauldronRecipe();
+        } finally {
+            CAULDRON_RECIPE_TIMING.stop(timingStart);
+        }
+    }
+
+    @Nullable
+    private BCauldronRecipe findCauldronRecipe() {
         BCauldronRecipe best = null;
         float bestMatch = 0;
         float match;
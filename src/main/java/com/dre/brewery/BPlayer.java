@@ -33,8 +33,10 @@ import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.Logging;
 import com.dre.brewery.utility.MinecraftVersion;
 import com.dre.brewery.utility.PermissionUtil;
-import com.github.Anon8281.universalScheduler.scheduling.tasks.MyScheduledTask;
+import com.dre.brewery.utility.StaggeredCycle;
+import com.dre.brewery.utility.TickScheduler;
 import io.papermc.lib.PaperLib;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -46,25 +48,23 @@ import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ToString
 @Getter
@@ -76,18 +76,70 @@ public class BPlayer {
     private static final Lang lang = ConfigManager.getConfig(Lang.class);
 
     private static final ConcurrentHashMap<String, BPlayer> players = new ConcurrentHashMap<>();// Players uuid and BPlayer
-    private static final ConcurrentHashMap<Player, Integer> pTasks = new ConcurrentHashMap<>();// Player and count
-    private static MyScheduledTask task;
-    private static Random pukeRand;
+    // Spreads the drunkenness recovery over the minute
+    private static final StaggeredCycle<BPlayer> recoveryCycle = new StaggeredCycle<>(BreweryPlugin.BreweryRunnable.CYCLE_TICKS, bplayer -> bplayer.uuid.hashCode());
+    // Spreads the drunk effects over their period
+    private static final StaggeredCycle<BPlayer> effectCycle = new StaggeredCycle<>(BreweryPlugin.DrunkRunnable.CYCLE_TICKS, bplayer -> bplayer.uuid.hashCode());
+    // Drunkenness displays still to be shown again, by players uuid. Advanced every tick by the DrunkRunnable
+    private static final ConcurrentHashMap<String, HudState> hudStates = new ConcurrentHashMap<>();
+    private static final int HUD_REFRESH_TICKS = 40;
+    private static final int HANGOVER_TITLE_DELAY = 160;
+    private static volatile long hudTick;
+    private static final AtomicLong stateVersions = new AtomicLong();
+    // The drunkenness bars by number of bars, for drunkenness and hangover
+    private static final String[][] BARS = new String[2][26];
+    // The quality stars by quality
+    private static final String[] STARS = new String[12];
 
     private final String uuid;
+    // Only set through the setters below, they update the stateVersion
+    @Setter(AccessLevel.NONE)
     private int quality = 0;// = quality of drunkenness * drunkenness
+    @Setter(AccessLevel.NONE)
     private int drunkenness = 0;// = amount of drunkenness
+    @Setter(AccessLevel.NONE)
     private int offlineDrunk = 0;// drunkenness when gone offline
+    // Changes with every change of drunkenness or quality, for caching what is shown of them
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile long stateVersion = stateVersions.incrementAndGet();
     private int alcRecovery = -1; // Drunkeness reduce per minute
     private Vector push = new Vector(0, 0, 0);
     private int time = 20;
 
+    static {
+        for (int bars = 0; bars < BARS[0].length; bars++) {
+            BARS[0][bars] = renderBars(bars, false);
+            BARS[1][bars] = renderBars(bars, true);
+        }
+        for (int quality = 0; quality < STARS.length; quality++) {
+            STARS[quality] = renderStars(quality);
+        }
+    }
+
+    private record DrunkPlayer(BPlayer bplayer, Player player) {
+    }
+
+    /**
+     * An area of 16 by 16 chunks. Folia never splits one of these between regions.
+     */
+    private record Section(@Nullable UUID world, int x, int z) {
+        private static final Section NONE = new Section(null, 0, 0);
+
+        private static Section of(Location location) {
+            return new Section(location.getWorld().getUID(), location.getBlockX() >> 8, location.getBlockZ() >> 8);
+        }
+    }
+
+    /**
+     * A drunkenness display to show again once the tick comes, either the action bar or a hangover title.
+     *
+     * @param refreshesLeft Times the action bar is shown again, including this one
+     * @param title         The hangover title to show instead, or null
+     */
+    private record HudState(Player player, long nextTick, int refreshesLeft, @Nullable String title) {
+    }
+
     public BPlayer(String uuid) {
         this.uuid = uuid;
     }
@@ -229,6 +281,8 @@ public class BPlayer {
                 bPlayer.quality += brewAlc;
             }
 
+            bPlayer.changed();
+
             applyEffects(getQualityEffects(quality, brewAlc), player, PlayerEffectEvent.EffectType.QUALITY);
         }
 
@@ -256,8 +310,8 @@ public class BPlayer {
         try {
             // It this returns false, then the Action Bar is not supported. Do not repeat the message as it was sent into chat
             if (sendDrunkenessMessage(player)) {
-                BreweryPlugin.getScheduler().runTaskLater(() -> sendDrunkenessMessage(player), 40);
-                BreweryPlugin.getScheduler().runTaskLater(() -> sendDrunkenessMessage(player), 80);
+                // Shown twice more, so it stays up a while. Drinking again only restarts this
+                hudStates.put(uuid, new HudState(player, hudTick + HUD_REFRESH_TICKS, 2, null));
             }
         } catch (Exception e) {
             Logging.errorLog("Failed to show drunkenness to " + player.getName(), e);
@@ -301,7 +355,7 @@ public class BPlayer {
 
         final String text = b.toString();
         if (hangover && VERSION.isOrLater(MinecraftVersion.V1_11)) {
-            BreweryPlugin.getScheduler().runTaskLater(() -> player.sendTitle("", text, 30, 100, 90), 160);
+            hudStates.put(uuid, new HudState(player, hudTick + HANGOVER_TITLE_DELAY, 0, text));
             return false;
         }
         try {
@@ -315,15 +369,19 @@ public class BPlayer {
 
     private String generateBars(int strength, boolean hangover) {
         // Generate 25 Bars, color one per 4 drunkenness
-        StringBuilder b = new StringBuilder();
         int bars;
         if (strength <= 0) {
             bars = 0;
         } else if (strength == 1) {
             bars = 1;
         } else {
-            bars = Math.round(strength / 4.0f);
+            bars = Math.min(Math.round(strength / 4.0f), 25);
         }
+        return BARS[hangover ? 1 : 0][bars];
+    }
+
+    private static String renderBars(int bars, boolean hangover) {
+        StringBuilder b = new StringBuilder();
         int noBars = 25 - bars;
         if (bars > 0) {
             b.append(hangover ? "§c" : "§6");
@@ -349,6 +407,13 @@ public class BPlayer {
     }
 
     private String generateStars(int quality) {
+        if (quality >= 0 && quality < STARS.length) {
+            return STARS[quality];
+        }
+        return renderStars(quality);
+    }
+
+    private static String renderStars(int quality) {
         // Generate stars representing the quality
         StringBuilder b = new StringBuilder();
         int stars = quality / 2;
@@ -380,6 +445,7 @@ public class BPlayer {
     public void drinkCap(Player player) {
         quality = getQuality() * 100;
         drunkenness = 100;
+        changed();
         if (config.isEnableKickOnOverdrink() && !player.hasPermission("brewery.bypass.overdrink")) {
             BreweryPlugin.getScheduler().runTaskLater(() -> passOut(player), 1);
         } else {
@@ -406,6 +472,13 @@ public class BPlayer {
 
     // drain the drunkenness by amount, returns true when player has to be removed
     public boolean drain(@Nullable Player player, int amount) {
+        boolean remove = drainBy(player, amount);
+        // Only after the change, so the old state is never cached under the new version
+        changed();
+        return remove;
+    }
+
+    private boolean drainBy(@Nullable Player player, int amount) {
         if (drunkenness > 0) {
             quality -= getQuality() * amount;
         }
@@ -483,6 +556,7 @@ public class BPlayer {
     public void passOut(Player player) {
         player.kickPlayer(lang.getEntry("Player_DrunkPassOut"));
         offlineDrunk = drunkenness;
+        changed();
     }
 
 
@@ -547,10 +621,12 @@ public class BPlayer {
         }
 
         offlineDrunk = 0;
+        changed();
     }
 
     public void disconnecting() {
         offlineDrunk = drunkenness;
+        changed();
     }
 
     public void goHome(final Player player) {
@@ -621,71 +697,11 @@ public class BPlayer {
         }
         BUtil.reapplyPotionEffect(player, PotionEffectType.HUNGER.createEffect(80, 4), true);
 
-        if (pTasks.isEmpty()) {
-            task = BreweryPlugin.getScheduler().runTaskTimer(player, BPlayer::pukeTask, 1L, 1L);
-        }
-        pTasks.put(player, event.getCount());
-    }
-
-    public static void pukeTask() {
-        for (Iterator<Map.Entry<Player, Integer>> iter = pTasks.entrySet().iterator(); iter.hasNext(); ) {
-            Map.Entry<Player, Integer> entry = iter.next();
-            Player player = entry.getKey();
-            int count = entry.getValue();
-            if (!player.isValid() || !player.isOnline()) {
-                iter.remove();
-                continue;
-            }
-            puke(player);
-            if (count <= 1) {
-                iter.remove();
-            } else {
-                entry.setValue(count - 1);
-            }
-        }
-        if (pTasks.isEmpty()) {
-            task.cancel();
-        }
+        PukeEngine.add(player, event.getCount());
     }
 
     public static void puke(Player player) {
-        if (pukeRand == null) {
-            pukeRand = new Random();
-        }
-        if (config.getPukeItem() == null || config.getPukeItem().isEmpty()) {
-            config.setPukeItem(List.of(Material.SOUL_SAND));
-        }
-        Location loc = player.getLocation();
-        loc.setY(loc.getY() + 1.1);
-        loc.setPitch(loc.getPitch() - 10 + pukeRand.nextInt(20));
-        loc.setYaw(loc.getYaw() - 10 + pukeRand.nextInt(20));
-        Vector direction = loc.getDirection();
-        direction.multiply(0.5);
-        loc.add(direction);
-
-        Item item = player.getWorld().dropItem(loc, new ItemStack(config.getPukeItem().get(new Random().nextInt(config.getPukeItem().size()))));
-        item.setVelocity(direction);
-        item.setPickupDelay(32767); // Item can never be picked up when pickup delay is 32767
-        item.setMetadata("brewery_puke", new FixedMetadataValue(BreweryPlugin.getInstance(), true));
-        if (VERSION.isOrLater(MinecraftVersion.V1_14)) item.setPersistent(false); // No need to save Puke items
-
-        int pukeDespawntime = config.getPukeDespawntime();
-        int despawnRate = BUtil.getItemDespawnRate(player.getWorld());
-        if (pukeDespawntime >= (despawnRate - 200)) {
-            return;
-        }
-
-        // Setting the age determines when an item is despawned. At age 6000 it is removed.
-        if (pukeDespawntime <= 0) {
-            // Just show the item for a few ticks
-            item.setTicksLived(despawnRate - 4);
-        } else if (pukeDespawntime <= 120) {
-            // it should despawn in less than 6 sec. Add up to half of that randomly
-            item.setTicksLived(despawnRate - pukeDespawntime + pukeRand.nextInt((int) (pukeDespawntime / 2F)));
-        } else {
-            // Add up to 5 sec randomly
-            item.setTicksLived(despawnRate - pukeDespawntime + pukeRand.nextInt(100));
-        }
+        PukeEngine.puke(player);
     }
 
 
@@ -724,9 +740,8 @@ public class BPlayer {
         if (event.isCancelled() || l == null) {
             return;
         }
-        for (PotionEffect effect : l) {
-            BreweryPlugin.getScheduler().runTask(player, () -> effect.apply(player)); // Fix can't add effect to entities Async
-        }
+        // Runs on the thread of the players region, see drunkenness(int)
+        player.addPotionEffects(l);
     }
 
     public static List<PotionEffect> getQualityEffects(int quality, int brewAlc) {
@@ -825,45 +840,112 @@ public class BPlayer {
 
     // #### Scheduled ####
 
+    // drunk effects over the following ticks by drunkenness(int)
     public static void drunkenness() {
-        for (Map.Entry<String, BPlayer> entry : players.entrySet()) {
-            String name = entry.getKey();
-            BPlayer bplayer = entry.getValue();
-
-            if (bplayer.drunkenness > 30) {
-                if (bplayer.offlineDrunk == 0) {
-                    Player player = BUtil.getPlayerfromString(name);
-                    if (player != null) {
+        effectCycle.fill(players.values());
+    }
 
-                        bplayer.drunkEffects(player);
+    /**
+     * Apply the drunk effects of the players that have their phase in this tick of the period,
+     * all of a players effects in one go on the thread of their region.
+     * <p>Players close to each other are handled in one task, on Folia they share a region.
+     */
+    public static void drunkenness(int cycleTick) {
+        boolean folia = MinecraftVersion.isFolia();
+        Map<Section, List<DrunkPlayer>> batches = new HashMap<>();
+        for (BPlayer bplayer : effectCycle.drain(cycleTick)) {
+            if (bplayer.drunkenness <= 30 || bplayer.offlineDrunk != 0 || players.get(bplayer.uuid) != bplayer) {
+                continue;
+            }
+            Player player = BUtil.getPlayerfromString(bplayer.uuid);
+            if (player == null) {
+                continue;
+            }
+            // Without regions everything runs on the main thread, in one batch
+            Section section = folia ? Section.of(player.getLocation()) : Section.NONE;
+            batches.computeIfAbsent(section, key -> new ArrayList<>()).add(new DrunkPlayer(bplayer, player));
+        }
+        for (List<DrunkPlayer> batch : batches.values()) {
+            submitDrunkEffects(batch, batch.get(0).player().getLocation());
+        }
+    }
 
-                        if (config.isEnablePuke()) {
-                            bplayer.drunkPuke(player);
-                        }
+    private static void submitDrunkEffects(List<DrunkPlayer> batch, Location location) {
+        BreweryPlugin.getTickScheduler().submit(TickScheduler.Priority.NORMAL, location, () -> {
+            for (DrunkPlayer drunk : batch) {
+                Player player = drunk.player();
+                if (!player.isOnline()) {
+                    continue;
+                }
+                if (MinecraftVersion.isFolia() && !BreweryPlugin.getScheduler().isRegionThread(player.getLocation())) {
+                    // Moved into another region since, handled on its own
+                    submitDrunkEffects(List.of(drunk), player.getLocation());
+                    continue;
+                }
+                drunk.bplayer().drunkEffects(player);
 
-                    }
+                if (config.isEnablePuke()) {
+                    drunk.bplayer().drunkPuke(player);
                 }
             }
+        });
+    }
+
+    /**
+     * Show the drunkenness displays that are due again.
+     */
+    public static void onHudTick(long tick) {
+        hudTick = tick;
+        if (hudStates.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, HudState> entry : hudStates.entrySet()) {
+            HudState state = entry.getValue();
+            if (state.nextTick() > tick) {
+                continue;
+            }
+            String uuid = entry.getKey();
+            Player player = state.player();
+            BPlayer bplayer = players.get(uuid);
+            if (state.title() != null || state.refreshesLeft() <= 1 || bplayer == null || !player.isOnline()) {
+                hudStates.remove(uuid, state);
+            } else {
+                hudStates.replace(uuid, state, new HudState(player, tick + HUD_REFRESH_TICKS, state.refreshesLeft() - 1, null));
+            }
+            if (!player.isOnline()) {
+                continue;
+            }
+            if (state.title() != null) {
+                player.sendTitle("", state.title(), 30, 100, 90);
+            } else if (bplayer != null) {
+                bplayer.sendDrunkenessMessage(player);
+            }
         }
     }
 
-    // decreasing drunkenness over time
+    // decreasing drunkenness over time, every player once over the following ticks by onUpdate(int)
     public static void onUpdate() {
-        if (!players.isEmpty()) {
-            Iterator<Map.Entry<String, BPlayer>> iter = players.entrySet().iterator();
-            while (iter.hasNext()) {
-                Map.Entry<String, BPlayer> entry = iter.next();
-                String uuid = entry.getKey();
-                BPlayer bplayer = entry.getValue();
-                Player playerIfOnline = BUtil.getPlayerfromString(uuid);
-
-                if (bplayer.getAlcRecovery() == -1) {
-                    bplayer.recalculateAlcRecovery(playerIfOnline);
-                }
+        recoveryCycle.fill(players.values());
+    }
 
-                if (bplayer.drain(playerIfOnline, bplayer.getAlcRecovery())) {
-                    iter.remove();
-                }
+    /**
+     * Decrease the drunkenness of the players that have their phase in this tick of the minute.
+     */
+    public static void onUpdate(int cycleTick) {
+        for (BPlayer bplayer : recoveryCycle.drain(cycleTick)) {
+            if (players.get(bplayer.uuid) != bplayer) {
+                // Removed in the meantime
+                continue;
+            }
+            Player playerIfOnline = BUtil.getPlayerfromString(bplayer.uuid);
+
+            // The permission lookup is cached, so online players pick up changed permissions without walking them every minute
+            if (bplayer.getAlcRecovery() == -1 || playerIfOnline != null) {
+                bplayer.recalculateAlcRecovery(playerIfOnline);
+            }
+
+            if (bplayer.drain(playerIfOnline, bplayer.getAlcRecovery())) {
+                players.remove(bplayer.uuid, bplayer);
             }
         }
     }
@@ -895,6 +977,7 @@ public class BPlayer {
 
     public void setDrunkeness(int value) {
         drunkenness = value;
+        changed();
     }
 
     public void setData(int drunkenness, int quality) {
@@ -908,6 +991,7 @@ public class BPlayer {
             }
         }
         this.drunkenness = drunkenness;
+        changed();
     }
 
     public int getQuality() {
@@ -928,6 +1012,22 @@ public class BPlayer {
 
     public void setQuality(int value) {
         quality = value;
+        changed();
+    }
+
+    public void setDrunkenness(int drunkenness) {
+        this.drunkenness = drunkenness;
+        changed();
+    }
+
+    public void setOfflineDrunk(int offlineDrunk) {
+        this.offlineDrunk = offlineDrunk;
+        changed();
+    }
+
+    // drunkenness, quality or offlineDrunk changed
+    private void changed() {
+        stateVersion = stateVersions.incrementAndGet();
     }
 
     // opposite of quality
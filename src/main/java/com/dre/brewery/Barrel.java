@@ -30,11 +30,16 @@ import com.dre.brewery.configuration.files.Lang;
 import com.dre.brewery.integration.Hook;
 import com.dre.brewery.integration.barrel.LogBlockBarrel;
 import com.dre.brewery.lore.BrewLore;
+import com.dre.brewery.storage.BarrelPager;
+import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.BoundingBox;
 import com.dre.brewery.utility.Logging;
 import com.dre.brewery.utility.MinecraftVersion;
-import com.github.Anon8281.universalScheduler.UniversalRunnable;
+import com.dre.brewery.utility.StaggeredCycle;
+import com.dre.brewery.utility.jfr.BarrelAgeEvent;
+import com.dre.brewery.utility.jfr.BarrelOpenEvent;
 import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Bukkit;
@@ -55,6 +60,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -70,18 +77,24 @@ import java.util.concurrent.ConcurrentHashMap;
 public class Barrel extends BarrelBody implements InventoryHolder {
 
     private static final Map<UUID, List<Barrel>> barrels = new ConcurrentHashMap<>();
+    // The same Barrels, indexed by the chunk their spigot is in. Used to page Barrels in and out with their chunk
+    private static final Map<UUID, Map<Long, List<Barrel>>> barrelsByChunk = new ConcurrentHashMap<>();
+    // Minutes of ageing since the epoch was introduced, Barrels that are not in memory catch up on these when loaded
+    private static long agingEpoch;
+    // Spreads the ageing of all Barrels over the minute
+    private static final StaggeredCycle<Barrel> agingCycle = new StaggeredCycle<>(BreweryPlugin.BreweryRunnable.CYCLE_TICKS, barrel -> StaggeredCycle.key(barrel.id));
     private static final Config config = ConfigManager.getConfig(Config.class);
     private static final Lang lang = ConfigManager.getConfig(Lang.class);
-    private static Map<UUID, Integer> checkCounters = new ConcurrentHashMap<>(); // Which Barrel was last checked
     /**
      * -- GETTER --
      * Is this a small barrel?
      */
     private final boolean small;
 
-    private boolean checked; // Checked by the random BarrelCheck routine
     private Inventory inventory;
     private float time;
+    @Setter(AccessLevel.NONE)
+    private long agedEpoch = agingEpoch; // The ageing epoch up to which 'time' is counted
     private final UUID id;
 
     /**
@@ -136,34 +149,51 @@ public class Barrel extends BarrelBody implements InventoryHolder {
         this.id = id;
     }
 
+    /**
+     * Start of a new minute, the Barrels are aged over the following ticks by {@link #onUpdate(int)}.
+     */
     public static void onUpdate() {
-        barrels.values()
-            .stream()
-            .flatMap(List::stream)
-            .filter(Objects::nonNull)
-            .forEach(barrel -> barrel.time += (float) (1.0 / config.getAgingYearDuration()));
-        for (UUID worldUuid : barrels.keySet()) {
-            List<Barrel> worldBarrels = barrels.get(worldUuid);
-            int numBarrels = worldBarrels.size();
-            if (checkCounters.getOrDefault(worldUuid, 0) == 0 && numBarrels > 0) {
-                Barrel random = worldBarrels.get((int) Math.floor(Math.random() * numBarrels));
-                if (random != null) {
-                    // You have been selected for a random search
-                    // We want to check at least one barrel every time
-                    random.checked = false;
-                }
-                if (numBarrels > 50) {
-                    Barrel randomInTheBack = worldBarrels.get(numBarrels - 1 - (int) (Math.random() * (numBarrels >>> 2)));
-                    if (randomInTheBack != null) {
-                        // Prioritize checking one of the less recently used barrels as well
-                        randomInTheBack.checked = false;
-                    }
-                }
-                new BarrelCheck().runTaskTimer(BreweryPlugin.getInstance(), 1, 1);
-            }
+        agingEpoch++;
+        agingCycle.fill(getAllBarrels());
+    }
+
+    /**
+     * Age the Barrels that have their phase in this tick of the minute.
+     */
+    public static void onUpdate(int cycleTick) {
+        BarrelAgeEvent event = new BarrelAgeEvent();
+        event.begin();
+        List<Barrel> due = agingCycle.drain(cycleTick);
+        for (Barrel barrel : due) {
+            barrel.catchUpAgeing();
+        }
+        if (!due.isEmpty() && event.shouldCommit()) {
+            event.tick = cycleTick;
+            event.barrels = due.size();
+            event.commit();
         }
     }
 
+    // Adds every minute of the current epoch the Barrel hasn't been aged for yet
+    private synchronized void catchUpAgeing() {
+        long epoch = agingEpoch;
+        if (agedEpoch < epoch) {
+            time += (epoch - agedEpoch) / (float) config.getAgingYearDuration();
+            agedEpoch = epoch;
+        }
+    }
+
+    /**
+     * The ageing time together with the epoch it's counted up to, read at once.
+     * Use this instead of reading both separately when not on the thread ageing the Barrels.
+     */
+    public synchronized AgingState getAgingState() {
+        return new AgingState(time, agedEpoch);
+    }
+
+    public record AgingState(float time, long epoch) {
+    }
+
     public static @NotNull List<Barrel> getBarrels(UUID worldUuid) {
         List<Barrel> worldBarrels = barrels.get(worldUuid);
         return worldBarrels == null ? List.of() : worldBarrels;
@@ -203,6 +233,10 @@ public class Barrel extends BarrelBody implements InventoryHolder {
      * player opens the barrel
      */
     public void open(Player player) {
+        BarrelOpenEvent event = new BarrelOpenEvent();
+        event.begin();
+        float agedTime = time;
+        int agedBrews = 0;
         if (inventory == null) {
             this.inventory = Bukkit.createInventory(this, isLarge() ? config.getBarrelInvSizeLarge() * 9 : config.getBarrelInvSizeSmall() * 9, lang.getEntry("Etc_Barrel"));
         } else {
@@ -218,6 +252,7 @@ public class Barrel extends BarrelBody implements InventoryHolder {
                                 Brew brew = Brew.get(item);
                                 if (brew != null) {
                                     brew.age(item, time, wood);
+                                    agedBrews++;
                                 }
                             }
                         }
@@ -239,6 +274,18 @@ public class Barrel extends BarrelBody implements InventoryHolder {
             }
         }
         player.openInventory(inventory);
+        if (event.shouldCommit()) {
+            Location location = spigot.getLocation();
+            event.player = player.getName();
+            event.world = location.getWorld() != null ? location.getWorld().getName() : null;
+            event.x = location.getBlockX();
+            event.y = location.getBlockY();
+            event.z = location.getBlockZ();
+            event.large = isLarge();
+            event.time = agedTime;
+            event.brews = agedBrews;
+            event.commit();
+        }
     }
 
     public void playOpeningSound() {
@@ -406,6 +453,7 @@ public class Barrel extends BarrelBody implements InventoryHolder {
                 BreweryPlugin.getInstance().getServer().getPluginManager().callEvent(createEvent);
                 if (!createEvent.isCancelled()) {
                     barrels.computeIfAbsent(sign.getWorld().getUID(), ignored -> new ArrayList<>()).addFirst(barrel);
+                    indexChunk(barrel);
                     return true;
                 }
             }
@@ -449,7 +497,7 @@ public class Barrel extends BarrelBody implements InventoryHolder {
             if (event.willDropItems()) {
                 if (getBounds() == null) {
                     Logging.debugLog("Barrel Body is null, can't drop items: " + this.id);
-                    barrels.getOrDefault(spigot.getWorld().getUID(), new ArrayList<>()).remove(this);
+                    deregister(this);
                     return;
                 }
 
@@ -485,7 +533,7 @@ public class Barrel extends BarrelBody implements InventoryHolder {
             }
         }
 
-        barrels.getOrDefault(spigot.getWorld().getUID(), new ArrayList<>()).remove(this);
+        deregister(this);
     }
 
     @Override
@@ -548,60 +596,197 @@ public class Barrel extends BarrelBody implements InventoryHolder {
      */
     public static void onUnload(World world) {
         barrels.remove(world.getUID());
+        barrelsByChunk.remove(world.getUID());
+        BarrelVerifier.onUnload(world);
     }
 
+    /**
+     * Register a loaded Barrel. Does nothing if a Barrel with the same id is already registered.
+     */
     public static void registerBarrel(Barrel barrel) {
+        for (Barrel registered : getBarrelsInChunk(barrel.spigot.getWorld().getUID(), barrel.getChunkKey())) {
+            if (registered.id.equals(barrel.id)) {
+                return;
+            }
+        }
         barrels.computeIfAbsent(barrel.spigot.getWorld().getUID(), ignored -> new ArrayList<>())
             .add(barrel);
+        indexChunk(barrel);
+        // Could have been changed while it wasn't in memory
+        BarrelVerifier.verifyChunk(barrel);
     }
 
-    public static List<Barrel> getAllBarrels() {
-        return barrels.values().stream()
-            .flatMap(List::stream)
-            .filter(Objects::nonNull)
-            .toList();
+    /**
+     * Release a Barrel from memory without removing it from the world or storage, it has to be saved beforehand.
+     */
+    public static void unregisterBarrel(Barrel barrel) {
+        UUID worldUuid = barrel.spigot.getWorld().getUID();
+        barrels.getOrDefault(worldUuid, new ArrayList<>()).remove(barrel);
+        Map<Long, List<Barrel>> chunks = barrelsByChunk.get(worldUuid);
+        if (chunks != null) {
+            chunks.computeIfPresent(barrel.getChunkKey(), (key, inChunk) -> {
+                inChunk.remove(barrel);
+                return inChunk.isEmpty() ? null : inChunk;
+            });
+        }
     }
 
-    public static class BarrelCheck extends UniversalRunnable {
-        @Override
-        public void run() {
-            barrels.keySet()
-                .forEach(worldUuid -> {
-                    int counter = checkCounters.computeIfAbsent(worldUuid, ignored -> -1);
+    // The Barrel is gone for good, also remove it from storage if it could be paged out
+    private static void deregister(Barrel barrel) {
+        unregisterBarrel(barrel);
+        BarrelPager pager = BreweryPlugin.getBarrelPager();
+        if (pager != null) {
+            pager.delete(barrel.id);
+        }
+    }
 
-                    List<Barrel> worldBarrels = barrels.get(worldUuid);
-                    if (worldBarrels == null || worldBarrels.isEmpty()) {
-                        cancel();
-                        return;
-                    }
+    private static void indexChunk(Barrel barrel) {
+        barrelsByChunk.computeIfAbsent(barrel.spigot.getWorld().getUID(), ignored -> new ConcurrentHashMap<>())
+            .compute(barrel.getChunkKey(), (key, inChunk) -> {
+                List<Barrel> list = inChunk != null ? inChunk : new ArrayList<>(1);
+                list.add(barrel);
+                return list;
+            });
+    }
 
-                    counter = (counter + 1) % worldBarrels.size();
-                    while (counter < worldBarrels.size()) {
-                        Barrel barrel = worldBarrels.get(counter++);
-                        if (barrel.checked) {
-                            continue;
-                        }
-                        BreweryPlugin.getScheduler().runTask(barrel.getSpigot().getLocation(), () -> {
-                            Block broken = barrel.getBrokenBlock(false);
-                            if (broken != null) {
-                                Logging.debugLog("Barrel at "
-                                    + broken.getWorld().getName() + "/" + broken.getX() + "/" + broken.getY() + "/" + broken.getZ()
-                                    + " has been destroyed unexpectedly, contents will drop");
-                                // remove the barrel if it was destroyed
-                                barrel.remove(broken, null, true);
-                            } else {
-                                // Dont check this barrel again, its enough to check it once after every restart (and when randomly chosen)
-                                // as now this is only the backup if we dont register the barrel breaking,
-                                // for example when removing it with some world editor
-                                barrel.checked = true;
-                            }
-                        });
-                        return;
+    /**
+     * Get the registered Barrels that have their spigot in the given chunk.
+     *
+     * @see BUtil#getChunkKey(int, int)
+     */
+    public static @NotNull List<Barrel> getBarrelsInChunk(UUID worldUuid, long chunkKey) {
+        Map<Long, List<Barrel>> chunks = barrelsByChunk.get(worldUuid);
+        if (chunks == null) {
+            return List.of();
+        }
+        List<Barrel> inChunk = chunks.get(chunkKey);
+        return inChunk == null ? List.of() : List.copyOf(inChunk);
+    }
+
+    /**
+     * Find the Barrels a batch of blocks belongs to, like {@link #get(Block)} for each block,
+     * but looking up the candidates in the chunk index only once.
+     *
+     * @param world  The world of the blocks
+     * @param blocks The blocks, like the block list of an explosion
+     * @return The given blocks of every affected Barrel, in the order they were given
+     */
+    public static Map<Barrel, List<Block>> getAffected(World world, Collection<Block> blocks) {
+        if (blocks.isEmpty() || !barrelsByChunk.containsKey(world.getUID())) {
+            return Map.of();
+        }
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (Block block : blocks) {
+            minX = Math.min(minX, block.getX());
+            minZ = Math.min(minZ, block.getZ());
+            maxX = Math.max(maxX, block.getX());
+            maxZ = Math.max(maxZ, block.getZ());
+        }
+        // A spigot is at most 4 blocks away from the blocks of its Barrel
+        List<Barrel> candidates = new ArrayList<>();
+        for (int chunkX = (minX - 4) >> 4; chunkX <= (maxX + 4) >> 4; chunkX++) {
+            for (int chunkZ = (minZ - 4) >> 4; chunkZ <= (maxZ + 4) >> 4; chunkZ++) {
+                candidates.addAll(getBarrelsInChunk(world.getUID(), BUtil.getChunkKey(chunkX, chunkZ)));
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+        Map<Barrel, List<Block>> affected = new LinkedHashMap<>();
+        for (Block block : blocks) {
+            Barrel barrel = findAmong(candidates, block);
+            if (barrel != null) {
+                affected.computeIfAbsent(barrel, ignored -> new ArrayList<>()).add(block);
+            }
+        }
+        return affected;
+    }
+
+    // Same rules as get(Block), against the given Barrels only
+    private static @Nullable Barrel findAmong(List<Barrel> candidates, Block block) {
+        Material type = block.getType();
+        if (BarrelAsset.isBarrelAsset(BarrelAsset.FENCE, type) || BarrelAsset.isBarrelAsset(BarrelAsset.SIGN, type)) {
+            for (Barrel barrel : candidates) {
+                Block spigot = barrel.spigot;
+                int signoffset = block.getY() - spigot.getY();
+                // A sign is at most 2 above or 1 below its spigot, see getSpigotOfSign
+                if (block.getX() == spigot.getX() && block.getZ() == spigot.getZ() && signoffset >= -1 && signoffset <= 2
+                    && barrel.isSignOfBarrel((byte) signoffset)) {
+                    return barrel;
+                }
+            }
+        } else if (BarrelAsset.isBarrelAsset(BarrelAsset.PLANKS, type) || BarrelAsset.isBarrelAsset(BarrelAsset.STAIRS, type)) {
+            for (Barrel barrel : candidates) {
+                if (barrel.bounds != null && barrel.bounds.contains(block.getX(), block.getY(), block.getZ())) {
+                    return barrel;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A block changed, clear the cached structure of the Barrels it might belong to or sits next to the spigot of,
+     * and have them verified.
+     */
+    public static void blockChanged(Block block) {
+        UUID worldUuid = block.getWorld().getUID();
+        if (!barrelsByChunk.containsKey(worldUuid)) {
+            return;
+        }
+        int x = block.getX(), y = block.getY(), z = block.getZ();
+        // A spigot is at most 4 blocks away from the blocks of its Barrel
+        for (int chunkX = (x - 4) >> 4; chunkX <= (x + 4) >> 4; chunkX++) {
+            for (int chunkZ = (z - 4) >> 4; chunkZ <= (z + 4) >> 4; chunkZ++) {
+                for (Barrel barrel : getBarrelsInChunk(worldUuid, BUtil.getChunkKey(chunkX, chunkZ))) {
+                    Block spigot = barrel.spigot;
+                    boolean nextToSpigot = y == spigot.getY() && Math.abs(x - spigot.getX()) + Math.abs(z - spigot.getZ()) <= 1;
+                    if (nextToSpigot || (barrel.bounds != null && barrel.bounds.contains(x, y, z))) {
+                        barrel.invalidateStructure();
+                        BarrelVerifier.verifyChunk(barrel);
                     }
-                    cancel();
-                });
+                }
+            }
         }
+    }
 
+    public long getChunkKey() {
+        return BUtil.getChunkKey(spigot.getX() >> 4, spigot.getZ() >> 4);
     }
 
+    /**
+     * The ageing epoch counts every minute of ageing, even for Barrels that are currently not in memory.
+     */
+    public static long getAgingEpoch() {
+        return agingEpoch;
+    }
+
+    public static void setAgingEpoch(long epoch) {
+        agingEpoch = epoch;
+    }
+
+    /**
+     * @return The ageing time a Barrel missed since the given epoch
+     */
+    public static float getAgingSince(long epoch) {
+        return Math.max(0, agingEpoch - epoch) / (float) config.getAgingYearDuration();
+    }
+
+    /**
+     * @return Amount of Barrels in memory, without copying them
+     */
+    public static int countBarrels() {
+        int count = 0;
+        for (List<Barrel> worldBarrels : barrels.values()) {
+            count += worldBarrels.size();
+        }
+        return count;
+    }
+
+    public static List<Barrel> getAllBarrels() {
+        return barrels.values().stream()
+            .flatMap(List::stream)
+            .filter(Objects::nonNull)
+            .toList();
+    }
 }
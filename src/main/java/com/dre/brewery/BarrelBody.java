@@ -20,21 +20,18 @@
 
 package com.dre.brewery;
 
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.BoundingBox;
 import com.dre.brewery.utility.MinecraftVersion;
-import com.google.common.collect.ImmutableMap;
+import com.dre.brewery.utility.jfr.BarrelValidateEvent;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.bukkit.Material;
 import org.bukkit.block.Block;
-import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
-import org.bukkit.util.BlockVector;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
-
 /**
  * The Blocks that make up a Barrel in the World
  */
@@ -42,57 +39,21 @@ import java.util.Map;
 @Setter
 public abstract class BarrelBody {
 
+    private static final BreweryMetrics.CacheStats STRUCTURE_CACHE_STATS = BreweryMetrics.cache("barrel_structure");
+
     protected Block spigot;
     protected final BoundingBox bounds;
     protected byte signoffset;
-
-    private static final Map<BlockVector, BarrelPart> UNTRANSFORMED_SMALL_BARREL_PART_MAP = Map.of(
-        new BlockVector(1, 0, 0), BarrelPart.BOTTOM_RIGHT,
-        new BlockVector(1, 0, 1), BarrelPart.BOTTOM_LEFT,
-        new BlockVector(1, 1, 0), BarrelPart.TOP_RIGHT,
-        new BlockVector(1, 1, 1), BarrelPart.TOP_LEFT,
-        new BlockVector(2, 0, 0), BarrelPart.BOTTOM_RIGHT,
-        new BlockVector(2, 0, 1), BarrelPart.BOTTOM_LEFT,
-        new BlockVector(2, 1, 0), BarrelPart.TOP_RIGHT,
-        new BlockVector(2, 1, 1), BarrelPart.TOP_LEFT
-    );
-
-    private static final Map<BlockVector, BarrelPart> UNTRANSFORMED_LARGE_BARREL_PART_MAP = new ImmutableMap.Builder<BlockVector, BarrelPart>()
-        .put(new BlockVector(1, 0, -1), BarrelPart.BOTTOM_RIGHT)
-        .put(new BlockVector(1, 0, 1), BarrelPart.BOTTOM_LEFT)
-        .put(new BlockVector(1, 0, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(1, 1, 1), BarrelPart.BLOCK)
-        .put(new BlockVector(1, 1, -1), BarrelPart.BLOCK)
-        .put(new BlockVector(1, 2, -1), BarrelPart.TOP_RIGHT)
-        .put(new BlockVector(1, 2, 1), BarrelPart.TOP_LEFT)
-        .put(new BlockVector(1, 2, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(1, 1, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(2, 0, -1), BarrelPart.BOTTOM_RIGHT)
-        .put(new BlockVector(2, 0, 1), BarrelPart.BOTTOM_LEFT)
-        .put(new BlockVector(2, 0, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(2, 1, 1), BarrelPart.BLOCK)
-        .put(new BlockVector(2, 1, -1), BarrelPart.BLOCK)
-        .put(new BlockVector(2, 2, -1), BarrelPart.TOP_RIGHT)
-        .put(new BlockVector(2, 2, 1), BarrelPart.TOP_LEFT)
-        .put(new BlockVector(2, 2, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(3, 0, -1), BarrelPart.BOTTOM_RIGHT)
-        .put(new BlockVector(3, 0, 1), BarrelPart.BOTTOM_LEFT)
-        .put(new BlockVector(3, 0, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(3, 1, 1), BarrelPart.BLOCK)
-        .put(new BlockVector(3, 1, -1), BarrelPart.BLOCK)
-        .put(new BlockVector(3, 2, -1), BarrelPart.TOP_RIGHT)
-        .put(new BlockVector(3, 2, 1), BarrelPart.TOP_LEFT)
-        .put(new BlockVector(3, 2, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(4, 0, -1), BarrelPart.BOTTOM_RIGHT)
-        .put(new BlockVector(4, 0, 1), BarrelPart.BOTTOM_LEFT)
-        .put(new BlockVector(4, 0, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(4, 1, 1), BarrelPart.BLOCK)
-        .put(new BlockVector(4, 1, -1), BarrelPart.BLOCK)
-        .put(new BlockVector(4, 2, -1), BarrelPart.TOP_RIGHT)
-        .put(new BlockVector(4, 2, 1), BarrelPart.TOP_LEFT)
-        .put(new BlockVector(4, 2, 0), BarrelPart.BLOCK)
-        .put(new BlockVector(4, 1, 0), BarrelPart.BLOCK)
-        .build();
+    // Worked out from the blocks around the spigot, until a block changes near the Barrel, see Barrel#blockChanged
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile boolean structureCached;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile BarrelFacing cachedDirection;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile BarrelWoodType cachedWood;
 
     public BarrelBody(Block spigot, byte signoffset) {
         this.spigot = spigot;
@@ -130,48 +91,63 @@ public abstract class BarrelBody {
         signoffset = 0;
     }
 
+    public void setSpigot(Block spigot) {
+        this.spigot = spigot;
+        invalidateStructure();
+    }
+
+    /**
+     * Forget the cached direction and wood type, a block of the Barrel or next to its spigot has changed.
+     */
+    public void invalidateStructure() {
+        structureCached = false;
+    }
+
+    private void loadStructure() {
+        if (structureCached) {
+            STRUCTURE_CACHE_STATS.hit();
+        } else {
+            STRUCTURE_CACHE_STATS.miss();
+            BarrelFacing direction = getDirection(spigot);
+            cacheStructure(direction, getWood(direction));
+        }
+    }
+
+    private void cacheStructure(@Nullable BarrelFacing direction, BarrelWoodType wood) {
+        cachedDirection = direction;
+        cachedWood = wood;
+        structureCached = true;
+    }
+
 
     /**
      * direction of the barrel from the spigot
      */
     public static @Nullable BarrelFacing getDirection(Block spigot) {
-        BarrelFacing direction = null;// 1=x+ 2=x- 3=z+ 4=z-
-        Material type = spigot.getRelative(0, 0, 1).getType();
-        if (BarrelAsset.isBarrelAsset(BarrelAsset.PLANKS, type) || BarrelAsset.isBarrelAsset(BarrelAsset.STAIRS, type)) {
-            direction = BarrelFacing.SOUTH;
-        }
-        type = spigot.getRelative(0, 0, -1).getType();
-        if (BarrelAsset.isBarrelAsset(BarrelAsset.PLANKS, type) || BarrelAsset.isBarrelAsset(BarrelAsset.STAIRS, type)) {
-            if (direction == null) {
-                direction = BarrelFacing.NORTH;
-            } else {
-                return null;
-            }
-        }
-        type = spigot.getRelative(1, 0, 0).getType();
-        if (BarrelAsset.isBarrelAsset(BarrelAsset.PLANKS, type) || BarrelAsset.isBarrelAsset(BarrelAsset.STAIRS, type)) {
-            if (direction == null) {
-                direction = BarrelFacing.EAST;
-            } else {
-                return null;
-            }
-        }
-        type = spigot.getRelative(-1, 0, 0).getType();
-        if (BarrelAsset.isBarrelAsset(BarrelAsset.PLANKS, type) || BarrelAsset.isBarrelAsset(BarrelAsset.STAIRS, type)) {
-            if (direction == null) {
-                direction = BarrelFacing.WEST;
-            } else {
-                return null;
-            }
-        }
-        return direction;
+        return BarrelStructure.facingOf(
+            spigot.getRelative(0, 0, 1).getType(),
+            spigot.getRelative(0, 0, -1).getType(),
+            spigot.getRelative(1, 0, 0).getType(),
+            spigot.getRelative(-1, 0, 0).getType());
+    }
+
+    /**
+     * direction of the barrel from its spigot, cached until a block near the barrel changes
+     */
+    public @Nullable BarrelFacing getDirection() {
+        loadStructure();
+        return cachedDirection;
     }
 
     /**
-     * woodtype of the block the spigot is attached to
+     * woodtype of the block the spigot is attached to, cached until a block near the barrel changes
      */
     public BarrelWoodType getWood() {
-        BarrelFacing direction = getDirection(spigot);
+        loadStructure();
+        return cachedWood;
+    }
+
+    private BarrelWoodType getWood(@Nullable BarrelFacing direction) {
         if (direction == null) {
             return BarrelWoodType.ANY;
         }
@@ -258,74 +234,48 @@ public abstract class BarrelBody {
      */
     public Block getBrokenBlock(boolean force) {
         if (force || BUtil.isChunkLoaded(spigot)) {
+            BarrelValidateEvent event = new BarrelValidateEvent();
+            event.begin();
             //spigot = getSpigotOfSign(spigot);
-            if (BarrelAsset.isBarrelAsset(BarrelAsset.SIGN, spigot.getType())) {
-                return checkSBarrel();
-            } else {
-                return checkLBarrel();
+            boolean small = BarrelAsset.isBarrelAsset(BarrelAsset.SIGN, spigot.getType());
+            Block broken = small ? checkSBarrel() : checkLBarrel();
+            if (event.shouldCommit()) {
+                event.world = spigot.getWorld().getName();
+                event.x = spigot.getX();
+                event.y = spigot.getY();
+                event.z = spigot.getZ();
+                event.large = !small;
+                event.broken = broken != null;
+                event.commit();
             }
+            return broken;
         }
         return null;
     }
 
     public Block checkSBarrel() {
-        BarrelFacing direction = getDirection(spigot);// 1=x+ 2=x- 3=z+ 4=z-
-        if (direction == null) {
-            return spigot;
-        }
-        BarrelFacing orthogonal = direction.rotate90degrees();
-        int dx1 = direction.getDx();
-        int dx2 = orthogonal.getDx();
-        int dz1 = direction.getDz();
-        int dz2 = orthogonal.getDz();
-
-        Block brokenBlock = validateStructure(direction, dx1, dx2, dz1, dz2, UNTRANSFORMED_SMALL_BARREL_PART_MAP);
-        if (brokenBlock != null) {
-            return brokenBlock;
-        }
-
-        BlockVector spigotPos = spigot.getLocation().toVector().toBlockVector();
-        BlockVector minBarrel = (BlockVector) new BlockVector(dx1, 0, dz1).add(spigotPos);
-        BlockVector maxBarrel = (BlockVector) new BlockVector(2 * dx1 + dx2, 1, 2 * dz1 + dz2).add(spigotPos);
-        this.bounds.resize(minBarrel.getBlockX(), minBarrel.getBlockY(), minBarrel.getBlockZ(), maxBarrel.getBlockX(), maxBarrel.getBlockY(), maxBarrel.getBlockZ());
-        return null;
+        return checkStructure(true);
     }
 
     public Block checkLBarrel() {
+        return checkStructure(false);
+    }
+
+    // Always reads the blocks, as it also has to catch changes that didn't fire an event
+    @Nullable
+    private Block checkStructure(boolean small) {
         BarrelFacing direction = getDirection(spigot);
+        BarrelWoodType wood = getWood(direction);
+        cacheStructure(direction, wood);
         if (direction == null) {
             return spigot;
         }
-        BarrelFacing orthogonal = direction.rotate90degrees();
-        int dx1 = direction.getDx();
-        int dx2 = orthogonal.getDx();
-        int dz1 = direction.getDz();
-        int dz2 = orthogonal.getDz();
-
-        Block brokenBlock = validateStructure(direction, dx1, dx2, dz1, dz2, UNTRANSFORMED_LARGE_BARREL_PART_MAP);
+        BarrelStructure structure = BarrelStructure.of(small, direction);
+        Block brokenBlock = structure.findBroken(spigot, wood);
         if (brokenBlock != null) {
             return brokenBlock;
         }
-        BlockVector spigotPos = spigot.getLocation().toVector().toBlockVector();
-        BlockVector minBarrel = (BlockVector) new BlockVector(dx1 - dx2, 0, dz1 - dz2).add(spigotPos);
-        BlockVector maxBarrel = (BlockVector) new BlockVector(4 * dx1 + dx2, 2, 4 * dz1 + dz2).add(spigotPos);
-        this.bounds.resize(minBarrel.getBlockX(), minBarrel.getBlockY(), minBarrel.getBlockZ(), maxBarrel.getBlockX(), maxBarrel.getBlockY(), maxBarrel.getBlockZ());
-        return null;
-    }
-
-    @Nullable
-    private Block validateStructure(BarrelFacing direction, int dx1, int dx2, int dz1, int dz2, Map<BlockVector, BarrelPart> untransformedBarrelPartMap) {
-        BarrelWoodType woodType = getWood();
-        for (Map.Entry<BlockVector, BarrelPart> entry : untransformedBarrelPartMap.entrySet()) {
-            int relativeX = dx1 * entry.getKey().getBlockX() + dx2 * entry.getKey().getBlockZ();
-            int relativeZ = dz1 * entry.getKey().getBlockX() + dz2 * entry.getKey().getBlockZ();
-            int relativeY = entry.getKey().getBlockY();
-            Block block = spigot.getRelative(relativeX, relativeY, relativeZ);
-            BlockData blockData = block.getBlockData();
-            if (!entry.getValue().matches(woodType, blockData, direction)) {
-                return block;
-            }
-        }
+        structure.resize(bounds, spigot);
         return null;
     }
 }
@@ -0,0 +1,279 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery;
+
+import com.dre.brewery.utility.BoundingBox;
+import com.google.common.collect.ImmutableMap;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.BlockVector;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The blocks a Barrel is made of, already turned to one of the four directions a Barrel can face.
+ * <p>The offsets from the spigot are kept flat in one int array, so checking a Barrel doesn't allocate anything.
+ * <p>Barrels can also be checked against {@link ChunkSnapshot}s, which works off the main thread.
+ */
+public final class BarrelStructure {
+
+    private static final Map<BlockVector, BarrelPart> UNTRANSFORMED_SMALL_BARREL_PART_MAP = Map.of(
+        new BlockVector(1, 0, 0), BarrelPart.BOTTOM_RIGHT,
+        new BlockVector(1, 0, 1), BarrelPart.BOTTOM_LEFT,
+        new BlockVector(1, 1, 0), BarrelPart.TOP_RIGHT,
+        new BlockVector(1, 1, 1), BarrelPart.TOP_LEFT,
+        new BlockVector(2, 0, 0), BarrelPart.BOTTOM_RIGHT,
+        new BlockVector(2, 0, 1), BarrelPart.BOTTOM_LEFT,
+        new BlockVector(2, 1, 0), BarrelPart.TOP_RIGHT,
+        new BlockVector(2, 1, 1), BarrelPart.TOP_LEFT
+    );
+
+    private static final Map<BlockVector, BarrelPart> UNTRANSFORMED_LARGE_BARREL_PART_MAP = new ImmutableMap.Builder<BlockVector, BarrelPart>()
+        .put(new BlockVector(1, 0, -1), BarrelPart.BOTTOM_RIGHT)
+        .put(new BlockVector(1, 0, 1), BarrelPart.BOTTOM_LEFT)
+        .put(new BlockVector(1, 0, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(1, 1, 1), BarrelPart.BLOCK)
+        .put(new BlockVector(1, 1, -1), BarrelPart.BLOCK)
+        .put(new BlockVector(1, 2, -1), BarrelPart.TOP_RIGHT)
+        .put(new BlockVector(1, 2, 1), BarrelPart.TOP_LEFT)
+        .put(new BlockVector(1, 2, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(1, 1, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(2, 0, -1), BarrelPart.BOTTOM_RIGHT)
+        .put(new BlockVector(2, 0, 1), BarrelPart.BOTTOM_LEFT)
+        .put(new BlockVector(2, 0, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(2, 1, 1), BarrelPart.BLOCK)
+        .put(new BlockVector(2, 1, -1), BarrelPart.BLOCK)
+        .put(new BlockVector(2, 2, -1), BarrelPart.TOP_RIGHT)
+        .put(new BlockVector(2, 2, 1), BarrelPart.TOP_LEFT)
+        .put(new BlockVector(2, 2, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(3, 0, -1), BarrelPart.BOTTOM_RIGHT)
+        .put(new BlockVector(3, 0, 1), BarrelPart.BOTTOM_LEFT)
+        .put(new BlockVector(3, 0, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(3, 1, 1), BarrelPart.BLOCK)
+        .put(new BlockVector(3, 1, -1), BarrelPart.BLOCK)
+        .put(new BlockVector(3, 2, -1), BarrelPart.TOP_RIGHT)
+        .put(new BlockVector(3, 2, 1), BarrelPart.TOP_LEFT)
+        .put(new BlockVector(3, 2, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(4, 0, -1), BarrelPart.BOTTOM_RIGHT)
+        .put(new BlockVector(4, 0, 1), BarrelPart.BOTTOM_LEFT)
+        .put(new BlockVector(4, 0, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(4, 1, 1), BarrelPart.BLOCK)
+        .put(new BlockVector(4, 1, -1), BarrelPart.BLOCK)
+        .put(new BlockVector(4, 2, -1), BarrelPart.TOP_RIGHT)
+        .put(new BlockVector(4, 2, 1), BarrelPart.TOP_LEFT)
+        .put(new BlockVector(4, 2, 0), BarrelPart.BLOCK)
+        .put(new BlockVector(4, 1, 0), BarrelPart.BLOCK)
+        .build();
+
+    private static final Map<BarrelFacing, BarrelStructure> SMALL = new EnumMap<>(BarrelFacing.class);
+    private static final Map<BarrelFacing, BarrelStructure> LARGE = new EnumMap<>(BarrelFacing.class);
+
+    static {
+        for (BarrelFacing facing : BarrelFacing.values()) {
+            SMALL.put(facing, new BarrelStructure(facing, UNTRANSFORMED_SMALL_BARREL_PART_MAP, new BlockVector(1, 0, 0), new BlockVector(2, 1, 1)));
+            LARGE.put(facing, new BarrelStructure(facing, UNTRANSFORMED_LARGE_BARREL_PART_MAP, new BlockVector(1, 0, -1), new BlockVector(4, 2, 1)));
+        }
+    }
+
+    private final BarrelFacing facing;
+    // x, y, z of every part, relative to the spigot
+    private final int[] offsets;
+    private final BarrelPart[] parts;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+
+    private BarrelStructure(BarrelFacing facing, Map<BlockVector, BarrelPart> untransformed, BlockVector min, BlockVector max) {
+        this.facing = facing;
+        BarrelFacing orthogonal = facing.rotate90degrees();
+        offsets = new int[untransformed.size() * 3];
+        parts = new BarrelPart[untransformed.size()];
+        int i = 0;
+        for (Map.Entry<BlockVector, BarrelPart> entry : untransformed.entrySet()) {
+            BlockVector offset = entry.getKey();
+            offsets[i * 3] = transformX(offset, orthogonal);
+            offsets[i * 3 + 1] = offset.getBlockY();
+            offsets[i * 3 + 2] = transformZ(offset, orthogonal);
+            parts[i] = entry.getValue();
+            i++;
+        }
+        int x1 = transformX(min, orthogonal), x2 = transformX(max, orthogonal);
+        int z1 = transformZ(min, orthogonal), z2 = transformZ(max, orthogonal);
+        minX = Math.min(x1, x2);
+        maxX = Math.max(x1, x2);
+        minY = min.getBlockY();
+        maxY = max.getBlockY();
+        minZ = Math.min(z1, z2);
+        maxZ = Math.max(z1, z2);
+    }
+
+    private int transformX(BlockVector offset, BarrelFacing orthogonal) {
+        return facing.getDx() * offset.getBlockX() + orthogonal.getDx() * offset.getBlockZ();
+    }
+
+    private int transformZ(BlockVector offset, BarrelFacing orthogonal) {
+        return facing.getDz() * offset.getBlockX() + orthogonal.getDz() * offset.getBlockZ();
+    }
+
+    public static BarrelStructure of(boolean small, BarrelFacing facing) {
+        return (small ? SMALL : LARGE).get(facing);
+    }
+
+    /**
+     * The direction a barrel extends to from its spigot, given the blocks around the spigot.
+     *
+     * @return null if there is no barrel next to the spigot, or more than one
+     */
+    public static @Nullable BarrelFacing facingOf(Material south, Material north, Material east, Material west) {
+        BarrelFacing direction = null;
+        if (isBarrelBlock(south)) {
+            direction = BarrelFacing.SOUTH;
+        }
+        if (isBarrelBlock(north)) {
+            if (direction != null) {
+                return null;
+            }
+            direction = BarrelFacing.NORTH;
+        }
+        if (isBarrelBlock(east)) {
+            if (direction != null) {
+                return null;
+            }
+            direction = BarrelFacing.EAST;
+        }
+        if (isBarrelBlock(west)) {
+            if (direction != null) {
+                return null;
+            }
+            direction = BarrelFacing.WEST;
+        }
+        return direction;
+    }
+
+    private static boolean isBarrelBlock(Material type) {
+        return BarrelAsset.isBarrelAsset(BarrelAsset.PLANKS, type) || BarrelAsset.isBarrelAsset(BarrelAsset.STAIRS, type);
+    }
+
+    /**
+     * Find a block of the barrel that isn't what it should be.
+     *
+     * @param spigot The spigot of the barrel
+     * @param wood   The wood the barrel is made of
+     * @return The first wrong block, null if the barrel is intact
+     */
+    public @Nullable Block findBroken(Block spigot, BarrelWoodType wood) {
+        for (int i = 0; i < parts.length; i++) {
+            Block block = spigot.getRelative(offsets[i * 3], offsets[i * 3 + 1], offsets[i * 3 + 2]);
+            if (!parts[i].matches(wood, block.getBlockData(), facing)) {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a block of the barrel that isn't what it should be, in the given chunk snapshots. Safe to call from any thread.
+     *
+     * @param x         X of the spigot
+     * @param y         Y of the spigot
+     * @param z         Z of the spigot
+     * @param wood      The wood the barrel is made of
+     * @param snapshots The chunks the barrel is in, see {@link #snapshotsOf}
+     * @return The position of the first wrong block, null if the barrel is intact
+     * @throws IllegalArgumentException if a part of the barrel lies in a chunk that wasn't given
+     */
+    public BoundingBox.@Nullable BlockPos findBroken(int x, int y, int z, BarrelWoodType wood, ChunkSnapshot... snapshots) {
+        for (int i = 0; i < parts.length; i++) {
+            int partX = x + offsets[i * 3];
+            int partY = y + offsets[i * 3 + 1];
+            int partZ = z + offsets[i * 3 + 2];
+            if (!parts[i].matches(wood, blockData(snapshots, partX, partY, partZ), facing)) {
+                return new BoundingBox.BlockPos(partX, partY, partZ);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check a whole barrel against chunk snapshots, figuring out its size, direction and wood the same way {@link BarrelBody} does.
+     * Safe to call from any thread.
+     *
+     * @param x         X of the spigot
+     * @param y         Y of the spigot
+     * @param z         Z of the spigot
+     * @param snapshots The chunks the barrel is in, see {@link #snapshotsOf}
+     * @return The position of the first wrong block, null if the barrel is intact
+     * @throws IllegalArgumentException if a part of the barrel lies in a chunk that wasn't given
+     */
+    public static BoundingBox.@Nullable BlockPos validate(int x, int y, int z, ChunkSnapshot... snapshots) {
+        boolean small = BarrelAsset.isBarrelAsset(BarrelAsset.SIGN, blockData(snapshots, x, y, z).getMaterial());
+        BarrelFacing facing = facingOf(
+            blockData(snapshots, x, y, z + 1).getMaterial(),
+            blockData(snapshots, x, y, z - 1).getMaterial(),
+            blockData(snapshots, x + 1, y, z).getMaterial(),
+            blockData(snapshots, x - 1, y, z).getMaterial());
+        if (facing == null) {
+            return new BoundingBox.BlockPos(x, y, z);
+        }
+        BarrelWoodType wood = BarrelWoodType.fromMaterial(blockData(snapshots, x + facing.getDx(), y, z + facing.getDz()).getMaterial());
+        return of(small, facing).findBroken(x, y, z, wood, snapshots);
+    }
+
+    /**
+     * Coordinates of the chunks a barrel with its spigot at the given block could reach into, as chunk x, chunk z pairs.
+     * <p>Snapshot these chunks on the main thread to validate the barrel elsewhere.
+     */
+    public static int[] snapshotsOf(int x, int z) {
+        // The longest barrel reaches 4 blocks from its spigot
+        int minChunkX = (x - 4) >> 4, maxChunkX = (x + 4) >> 4;
+        int minChunkZ = (z - 4) >> 4, maxChunkZ = (z + 4) >> 4;
+        int[] chunks = new int[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1) * 2];
+        int i = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                chunks[i++] = chunkX;
+                chunks[i++] = chunkZ;
+            }
+        }
+        return chunks;
+    }
+
+    private static BlockData blockData(ChunkSnapshot[] snapshots, int x, int y, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        for (ChunkSnapshot snapshot : snapshots) {
+            if (snapshot.getX() == chunkX && snapshot.getZ() == chunkZ) {
+                return snapshot.getBlockData(x & 15, y, z & 15);
+            }
+        }
+        throw new IllegalArgumentException("No snapshot of chunk " + chunkX + ", " + chunkZ);
+    }
+
+    /**
+     * Resize the bounds to what this structure covers with its spigot at the given block.
+     */
+    public void resize(BoundingBox bounds, Block spigot) {
+        int x = spigot.getX(), y = spigot.getY(), z = spigot.getZ();
+        bounds.resize(x + minX, y + minY, z + minZ, x + maxX, y + maxY, z + maxZ);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery;
+
+import com.dre.brewery.utility.BUtil;
+import com.dre.brewery.utility.BoundingBox;
+import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.TickScheduler;
+import com.dre.brewery.utility.Timings;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies that the Barrels of a chunk are still intact, but only once there is a reason to doubt it:
+ * Their chunk loaded, so they could have been edited while the plugin was absent, they were just loaded from storage,
+ * or a block in their footprint changed.
+ * <p>The chunk and its neighbours are snapshot on their region thread, and all Barrels of the chunk are checked against
+ * the snapshots asynchronously. Barrels that look broken are checked once more against the live world before they're removed.
+ * <p>Runs every few ticks through the {@link TickScheduler}, and does nothing while no chunk is waiting.
+ */
+public class BarrelVerifier implements Runnable {
+
+    private record ChunkRef(UUID world, int x, int z) {
+    }
+
+    // Chunks verified per run, each one is snapshot and checked separately
+    private static final int CHUNKS_PER_RUN = 4;
+    private static final Timings.Timing SNAPSHOT_TIMING = Timings.of("barrel.verifySnapshot");
+    private static final Timings.Timing VALIDATE_TIMING = Timings.of("barrel.verifyValidate");
+    private static final Set<ChunkRef> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Verify the Barrels with their spigot in the given chunk soon. Does nothing if the chunk is already waiting.
+     */
+    public static void verifyChunk(UUID worldUuid, int chunkX, int chunkZ) {
+        pending.add(new ChunkRef(worldUuid, chunkX, chunkZ));
+    }
+
+    public static void verifyChunk(Barrel barrel) {
+        Block spigot = barrel.getSpigot();
+        verifyChunk(spigot.getWorld().getUID(), spigot.getX() >> 4, spigot.getZ() >> 4);
+    }
+
+    /**
+     * Forget the waiting chunks of an unloading world.
+     */
+    public static void onUnload(World world) {
+        UUID worldUuid = world.getUID();
+        pending.removeIf(ref -> ref.world().equals(worldUuid));
+    }
+
+    @Override
+    public void run() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Iterator<ChunkRef> iter = pending.iterator();
+        for (int i = 0; i < CHUNKS_PER_RUN && iter.hasNext(); i++) {
+            ChunkRef ref = iter.next();
+            iter.remove();
+            World world = Bukkit.getWorld(ref.world());
+            // Unloaded chunks are verified when they load again
+            if (world == null || !world.isChunkLoaded(ref.x(), ref.z())) {
+                continue;
+            }
+            Location location = new Location(world, (ref.x() << 4) + 8, 64, (ref.z() << 4) + 8);
+            BreweryPlugin.getTickScheduler().submit(TickScheduler.Priority.DEFERRABLE, location, () -> snapshot(world, ref));
+        }
+    }
+
+    // On the region thread of the chunk
+    private static void snapshot(World world, ChunkRef ref) {
+        List<Barrel> barrels = Barrel.getBarrelsInChunk(ref.world(), BUtil.getChunkKey(ref.x(), ref.z()));
+        if (barrels.isEmpty() || !world.isChunkLoaded(ref.x(), ref.z())) {
+            return;
+        }
+        long start = SNAPSHOT_TIMING.start();
+        Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+        List<BoundingBox.BlockPos> spigots = new ArrayList<>(barrels.size());
+        for (Barrel barrel : barrels) {
+            Block spigot = barrel.getSpigot();
+            spigots.add(new BoundingBox.BlockPos(spigot.getX(), spigot.getY(), spigot.getZ()));
+            int[] chunks = BarrelStructure.snapshotsOf(spigot.getX(), spigot.getZ());
+            for (int i = 0; i < chunks.length; i += 2) {
+                int chunkX = chunks[i], chunkZ = chunks[i + 1];
+                long key = BUtil.getChunkKey(chunkX, chunkZ);
+                // Barrels reaching into unloaded neighbours are left out of the snapshots, and skipped below
+                if (!snapshots.containsKey(key) && world.isChunkLoaded(chunkX, chunkZ)) {
+                    snapshots.put(key, world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+                }
+            }
+        }
+        SNAPSHOT_TIMING.stop(start);
+        ChunkSnapshot[] taken = snapshots.values().toArray(new ChunkSnapshot[0]);
+        BreweryPlugin.getScheduler().runTaskAsynchronously(() -> validate(barrels, spigots, taken));
+    }
+
+    private static void validate(List<Barrel> barrels, List<BoundingBox.BlockPos> spigots, ChunkSnapshot[] snapshots) {
+        long start = VALIDATE_TIMING.start();
+        List<Barrel> suspects = new ArrayList<>();
+        for (int i = 0; i < barrels.size(); i++) {
+            BoundingBox.BlockPos spigot = spigots.get(i);
+            try {
+                if (BarrelStructure.validate(spigot.x(), spigot.y(), spigot.z(), snapshots) != null) {
+                    suspects.add(barrels.get(i));
+                }
+            } catch (IllegalArgumentException e) {
+                // Reaches into an unloaded chunk, left for the next time its chunk is verified
+            }
+        }
+        VALIDATE_TIMING.stop(start);
+        for (Barrel barrel : suspects) {
+            Block spigot = barrel.getSpigot();
+            BreweryPlugin.getScheduler().runTask(spigot.getLocation(), () -> confirm(barrel));
+        }
+    }
+
+    // The snapshot could be outdated, only remove Barrels that are also broken in the world now
+    private static void confirm(Barrel barrel) {
+        if (!Barrel.getBarrelsInChunk(barrel.getSpigot().getWorld().getUID(), barrel.getChunkKey()).contains(barrel)) {
+            // Already removed in the meantime
+            return;
+        }
+        Block broken = barrel.getBrokenBlock(false);
+        if (broken != null) {
+            Logging.debugLog("Barrel at "
+                + broken.getWorld().getName() + "/" + broken.getX() + "/" + broken.getY() + "/" + broken.getZ()
+                + " has been destroyed unexpectedly, contents will drop");
+            barrel.remove(broken, null, true);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.dre.brewery.api.events.brew.BrewModifyEvent;
 import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.files.Config;
 import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import com.dre.brewery.lore.Base91DecoderStream;
 import com.dre.brewery.lore.Base91EncoderStream;
 import com.dre.brewery.lore.BrewLore;
@@ -40,6 +41,8 @@ import com.dre.brewery.recipe.PotionColor;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.Logging;
 import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.jfr.BrewDecodeEvent;
+import com.dre.brewery.utility.jfr.BrewEncodeEvent;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Material;
@@ -632,7 +635,7 @@ public class Brew implements Cloneable {
             quality = calcQuality();
 
             lore.addOrReplaceEffects(getEffects(), quality);
-            potionMeta.setDisplayName(BUtil.color("&f" + currentRecipe.getName(quality)));
+            potionMeta.setDisplayName(currentRecipe.getDisplayName(quality));
             currentRecipe.getColor().colorBrew(potionMeta, slotItem, canDistill());
 
         } else {
@@ -693,6 +696,7 @@ public class Brew implements Cloneable {
 
     public void age(ItemStack item, float time, BarrelWoodType woodType) {
         if (immutable) return;
+        BreweryMetrics.BREWS_AGED.increment();
         PotionMeta potionMeta = (PotionMeta) item.getItemMeta();
 
         BrewLore lore = new BrewLore(this, potionMeta);
@@ -707,7 +711,7 @@ public class Brew implements Cloneable {
                 quality = calcQuality();
 
                 lore.addOrReplaceEffects(getEffects(), quality);
-                potionMeta.setDisplayName(BUtil.color("&f" + currentRecipe.getName(quality)));
+                potionMeta.setDisplayName(currentRecipe.getDisplayName(quality));
                 currentRecipe.getColor().colorBrew(potionMeta, item, canDistill());
 
                 if (currentRecipe.isGlint()) {
@@ -866,7 +870,7 @@ public class Brew implements Cloneable {
             potionMeta.addItemFlags(ItemFlag.HIDE_ENCHANTS);
         }
 
-        potionMeta.setDisplayName(BUtil.color("&f" + recipe.getName(quality)));
+        potionMeta.setDisplayName(recipe.getDisplayName(quality));
         //if (!P.use1_14) {
         // Before 1.14 the effects duration would strangely be only a quarter of what we tell it to be
         // This is due to the Duration Modifier, that is removed in 1.14
@@ -923,15 +927,32 @@ public class Brew implements Cloneable {
     }
 
     private static Brew load(ItemMeta meta) {
+        BrewDecodeEvent event = new BrewDecodeEvent();
+        event.begin();
+        Brew brew = decode(meta, event);
+        if (event.shouldCommit()) {
+            event.found = brew != null;
+            if (brew != null) {
+                event.ingredients = brew.ingredients.getIngredients().size();
+                event.recipe = brew.currentRecipe != null ? brew.currentRecipe.getRecipeName() : null;
+            }
+            event.commit();
+        }
+        return brew;
+    }
+
+    private static Brew decode(ItemMeta meta, BrewDecodeEvent event) {
         InputStream itemLoadStream = null;
         if (MinecraftVersion.isUseNBT()) {
             // Try loading the Item Data from PersistentDataContainer
             NBTLoadStream nbtStream = new NBTLoadStream(meta);
             if (nbtStream.hasData()) {
                 itemLoadStream = nbtStream;
+                event.source = "NBT";
             }
         }
         if (itemLoadStream == null) {
+            event.source = "lore";
             // If either NBT is not supported or no data was found in NBT, try loading from Lore
             try {
                 itemLoadStream = new Base91DecoderStream(new LoreLoadStream(meta, 0));
@@ -941,6 +962,7 @@ public class Brew implements Cloneable {
             }
         }
 
+        BreweryMetrics.BREW_DECODES.increment();
         XORUnscrambleStream unscrambler = new XORUnscrambleStream(itemLoadStream, saveSeed, prevSaveSeeds);
         try (DataInputStream in = new DataInputStream(unscrambler)) {
             boolean parityFailed = false;
@@ -1020,6 +1042,8 @@ public class Brew implements Cloneable {
      * <p>Should be called after any changes made to the brew
      */
     public void save(ItemMeta meta) {
+        BrewEncodeEvent event = new BrewEncodeEvent();
+        event.begin();
         OutputStream itemSaveStream;
         if (MinecraftVersion.isUseNBT()) {
             itemSaveStream = new NBTSaveStream(meta);
@@ -1037,6 +1061,13 @@ public class Brew implements Cloneable {
                 scrambler.startUnscrambled();
             }
             saveToStream(out);
+            if (event.shouldCommit()) {
+                event.target = MinecraftVersion.isUseNBT() ? "NBT" : "lore";
+                event.bytes = out.size();
+                event.ingredients = ingredients.getIngredients().size();
+                event.recipe = currentRecipe != null ? currentRecipe.getRecipeName() : null;
+                event.commit();
+            }
         } catch (IOException e) {
             Logging.errorLog("IO Error while saving Brew", e);
         }
@@ -33,7 +33,9 @@ import com.dre.brewery.integration.PlaceholderAPIHook;
 import com.dre.brewery.integration.barrel.BlockLockerBarrel;
 import com.dre.brewery.integration.bstats.BreweryStats;
 import com.dre.brewery.integration.bstats.BreweryXStats;
+import com.dre.brewery.integration.metrics.MetricsExporter;
 import com.dre.brewery.integration.listeners.ChestShopListener;
+import com.dre.brewery.integration.listeners.GriefPreventionListener;
 import com.dre.brewery.integration.listeners.IntegrationListener;
 import com.dre.brewery.integration.listeners.ShopKeepersListener;
 import com.dre.brewery.integration.listeners.SlimefunListener;
@@ -44,18 +46,24 @@ import com.dre.brewery.integration.listeners.movecraft.TranslationListener;
 import com.dre.brewery.integration.listeners.movecraft.properties.BreweryProperties;
 import com.dre.brewery.listeners.BlockListener;
 import com.dre.brewery.listeners.CauldronListener;
+import com.dre.brewery.listeners.ChunkListener;
 import com.dre.brewery.listeners.EntityListener;
 import com.dre.brewery.listeners.InventoryListener;
 import com.dre.brewery.listeners.PlayerListener;
+import com.dre.brewery.listeners.WorldListener;
 import com.dre.brewery.recipe.CustomItem;
 import com.dre.brewery.recipe.Ingredient;
 import com.dre.brewery.recipe.ItemLoader;
 import com.dre.brewery.recipe.PluginItem;
 import com.dre.brewery.recipe.SimpleItem;
+import com.dre.brewery.storage.BarrelPager;
 import com.dre.brewery.storage.DataManager;
 import com.dre.brewery.storage.StorageInitException;
+import com.dre.brewery.storage.StreamingLoader;
 import com.dre.brewery.utility.Logging;
 import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.TickScheduler;
+import com.dre.brewery.utility.Timings;
 import com.dre.brewery.utility.releases.ReleaseChecker;
 import com.github.Anon8281.universalScheduler.UniversalScheduler;
 import com.github.Anon8281.universalScheduler.scheduling.schedulers.TaskScheduler;
@@ -67,8 +75,10 @@ import org.bukkit.Material;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.event.HandlerList;
-import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -88,10 +98,13 @@ public final class BreweryPlugin extends JavaPlugin {
     private @Getter static BreweryPlugin instance;
     private @Getter static MinecraftVersion MCVersion;
     private @Getter @Setter static DataManager dataManager;
+    private @Getter static @Nullable BarrelPager barrelPager; // Null if Barrels aren't paged with their chunks
+    private @Getter static TickScheduler tickScheduler;
 
 
     private final Map<String, Function<ItemLoader, Ingredient>> ingredientLoaders = new HashMap<>(); // Registrations
     private BreweryStats breweryStats; // Metrics
+    private MetricsExporter metricsExporter;
 
     {
         // Basically just racing to be the first code to execute.
@@ -104,6 +117,17 @@ public final class BreweryPlugin extends JavaPlugin {
         TranslationManager.newInstance(this.getDataFolder());
     }
 
+    public BreweryPlugin() {
+        super();
+    }
+
+    /**
+     * Create the plugin outside of a server, for tests and the load harness. Bukkit refuses this for a plugin it loaded itself.
+     */
+    public BreweryPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+
     @Override
     public void onLoad() {
 
@@ -136,6 +160,7 @@ public final class BreweryPlugin extends JavaPlugin {
         if (config.isFirstCreation()) {
             config.onFirstCreation();
         }
+        Timings.setEnabled(config.isTimings());
 
         // Load lang
         TranslationManager.getInstance().updateTranslationFiles();
@@ -172,16 +197,13 @@ public final class BreweryPlugin extends JavaPlugin {
 
         // Load objects
         DataManager.loadMiscData(dataManager.getBreweryMiscData());
-        dataManager.getAllBarrels().thenAcceptAsync(barrels -> barrels.stream()
-            .filter(Objects::nonNull)
-            .forEach(Barrel::registerBarrel)
-        );
-        BCauldron.getBcauldrons().putAll(dataManager.getAllCauldrons().stream()
-            .filter(Objects::nonNull)
-            .collect(Collectors.toMap(
-                BCauldron::getBlock, Function.identity(),
-                (existing, replacement) -> replacement // Issues#68
-            )));
+        if (config.getStorage().isBarrelPaging()) {
+            barrelPager = new BarrelPager(config.getStorage().getBarrelEvictionDelay());
+            barrelPager.start();
+        }
+        // Barrels and Cauldrons are streamed in the background, the server doesn't have to wait for them
+        dataManager.markWorldsLoaded(Bukkit.getWorlds());
+        new StreamingLoader(dataManager, config.getStorage().getBatchSize()).loadAll();
         BPlayer.getPlayers().putAll(dataManager.getAllPlayers()
             .stream()
             .filter(Objects::nonNull)
@@ -189,7 +211,7 @@ public final class BreweryPlugin extends JavaPlugin {
                 BPlayer::getUuid,
                 Function.identity()
             )));
-        Wakeup.getWakeups().addAll(dataManager.getAllWakeups()
+        Wakeup.addAll(dataManager.getAllWakeups()
             .stream()
             .filter(Objects::nonNull)
             .toList());
@@ -198,6 +220,10 @@ public final class BreweryPlugin extends JavaPlugin {
         // Setup Metrics
         this.breweryStats.setupBStats();
         new BreweryXStats().setupBStats();
+        if (config.getMetricsPort() > 0) {
+            metricsExporter = new MetricsExporter(config.getMetricsPort());
+            metricsExporter.start();
+        }
 
         // Register command and aliases
         PluginCommand defaultCommand = getCommand("breweryx");
@@ -217,32 +243,39 @@ public final class BreweryPlugin extends JavaPlugin {
         }
 
         // Register Listeners
-        PluginManager pluginManager = getServer().getPluginManager();
-        pluginManager.registerEvents(new BlockListener(), this);
-        pluginManager.registerEvents(new PlayerListener(), this);
-        pluginManager.registerEvents(new EntityListener(), this);
-        pluginManager.registerEvents(new InventoryListener(), this);
-        pluginManager.registerEvents(new IntegrationListener(), this);
+        Timings.registerEvents(new BlockListener(), this);
+        Timings.registerEvents(new PlayerListener(), this);
+        Timings.registerEvents(new EntityListener(), this);
+        Timings.registerEvents(new InventoryListener(), this);
+        Timings.registerEvents(new IntegrationListener(), this);
+        Timings.registerEvents(new WorldListener(), this);
+        Timings.registerEvents(new ChunkListener(barrelPager), this);
         if (getMCVersion().isOrLater(MinecraftVersion.V1_9))
-            pluginManager.registerEvents(new CauldronListener(), this);
+            Timings.registerEvents(new CauldronListener(), this);
         if (Hook.CHESTSHOP.isEnabled() && getMCVersion().isOrLater(MinecraftVersion.V1_13))
-            pluginManager.registerEvents(new ChestShopListener(), this);
+            Timings.registerEvents(new ChestShopListener(), this);
         if (Hook.SHOPKEEPERS.isEnabled())
-            pluginManager.registerEvents(new ShopKeepersListener(), this);
+            Timings.registerEvents(new ShopKeepersListener(), this);
         if (Hook.SLIMEFUN.isEnabled() && getMCVersion().isOrLater(MinecraftVersion.V1_14))
-            pluginManager.registerEvents(new SlimefunListener(), this);
+            Timings.registerEvents(new SlimefunListener(), this);
+        if (Hook.GRIEFPREVENTION.isEnabled())
+            Timings.registerEvents(new GriefPreventionListener(), this);
         if (Hook.MOVECRAFT.isEnabled()) {
-            pluginManager.registerEvents(new CraftDetectListener(), this);
-            pluginManager.registerEvents(new TranslationListener(), this);
-            pluginManager.registerEvents(new RotationListener(), this);
-            pluginManager.registerEvents(new SinkListener(), this);
+            Timings.registerEvents(new CraftDetectListener(), this);
+            Timings.registerEvents(new TranslationListener(), this);
+            Timings.registerEvents(new RotationListener(), this);
+            Timings.registerEvents(new SinkListener(), this);
         }
 
         // Heartbeat
-        BreweryPlugin.getScheduler().runTaskTimer(new BreweryRunnable(), 650, 1200);
-        BreweryPlugin.getScheduler().runTaskTimer(new DrunkRunnable(), 120, 120);
+        tickScheduler = new TickScheduler();
+        tickScheduler.repeat(TickScheduler.Priority.CRITICAL, 650, 1, new BreweryRunnable());
+        tickScheduler.repeat(TickScheduler.Priority.NORMAL, 120, 1, new DrunkRunnable());
+        tickScheduler.repeat(TickScheduler.Priority.NORMAL, 1, 1, new PukeEngine());
+        tickScheduler.repeat(TickScheduler.Priority.DEFERRABLE, 20, 5, new BarrelVerifier());
         if (getMCVersion().isOrLater(MinecraftVersion.V1_9))
-            BreweryPlugin.getScheduler().runTaskTimer(new CauldronParticles(), 1, 1);
+            tickScheduler.repeat(TickScheduler.Priority.DEFERRABLE, 1, 1, new CauldronParticles());
+        tickScheduler.start();
 
 
         // Register PlaceholderAPI Placeholders
@@ -272,10 +305,19 @@ public final class BreweryPlugin extends JavaPlugin {
         HandlerList.unregisterAll(this);
 
         // Stop schedulers
+        if (tickScheduler != null) tickScheduler.stop();
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+            metricsExporter = null;
+        }
         BreweryPlugin.getScheduler().cancelTasks(this);
 
         // save Data to Disk
         if (dataManager != null) dataManager.exit(true, false);
+        if (barrelPager != null) {
+            barrelPager.shutdown();
+            barrelPager = null;
+        }
 
         BSealer.unregisterRecipe();
 
@@ -313,30 +355,52 @@ public final class BreweryPlugin extends JavaPlugin {
 
     // Runnables
 
+    /**
+     * Runs every tick. Every 6 seconds the drunk effects are started, which are then spread over the following 6 seconds.
+     * Also shows the drunkenness of players that just drank again, instead of a task for every time it's shown.
+     */
     public static class DrunkRunnable implements Runnable {
+        public static final int CYCLE_TICKS = 120;
+
+        private long tick;
+
         @Override
         public void run() {
-            if (!BPlayer.isEmpty()) {
+            int cycleTick = (int) (tick % CYCLE_TICKS);
+            if (cycleTick == 0) {
                 BPlayer.drunkenness();
             }
+            BPlayer.drunkenness(cycleTick);
+            BPlayer.onHudTick(tick);
+            tick++;
         }
     }
 
+    /**
+     * Runs every tick. Once a minute the per-minute work is started, which is then spread over the minute:
+     * every Barrel, Cauldron and player has a fixed tick within the minute in which it's updated.
+     */
     public static class BreweryRunnable implements Runnable {
+        public static final int CYCLE_TICKS = 1200;
+
+        private int cycleTick;
+
         @Override
         public void run() {
+            if (cycleTick == 0) {
+                onMinute();
+            }
+            Barrel.onUpdate(cycleTick);
+            BCauldron.onUpdate(cycleTick);
+            BPlayer.onUpdate(cycleTick);
+            cycleTick = (cycleTick + 1) % CYCLE_TICKS;
+        }
+
+        private void onMinute() {
             long start = System.currentTimeMillis();
 
             // runs every min to update cooking time
-
-            for (BCauldron bCauldron : BCauldron.bcauldrons.values()) {
-                BreweryPlugin.getScheduler().runTask(bCauldron.getBlock().getLocation(), () -> {
-                    if (!bCauldron.onUpdate()) {
-                        BCauldron.bcauldrons.remove(bCauldron.getBlock());
-                    }
-                });
-            }
-
+            BCauldron.scheduleUpdates();
 
             Barrel.onUpdate();// runs every min to check and update ageing time
 
@@ -347,11 +411,13 @@ public final class BreweryPlugin extends JavaPlugin {
 
 
             //DataSave.autoSave();
-            dataManager.tryAutoSave();
+            tickScheduler.submit(TickScheduler.Priority.NORMAL, dataManager::tryAutoSave);
 
             Logging.debugLog("BreweryRunnable: " + (System.currentTimeMillis() - start) + "ms");
+            TickScheduler.Stats stats = tickScheduler.getStats();
+            Logging.debugLog(String.format("TickScheduler: avg %.3fms, max %.3fms, %d/%d ticks over budget, work rolled over %d times, delayed up to %d ticks",
+                stats.averageTickMillis(), stats.maxTickNanos() / 1_000_000.0, stats.overrunTicks(), stats.ticks(), stats.rolledOver(), stats.maxDelayTicks()));
         }
-
     }
 
     public static class CauldronParticles implements Runnable {
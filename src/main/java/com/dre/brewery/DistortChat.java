@@ -26,13 +26,18 @@ import com.dre.brewery.configuration.files.Config;
 import com.dre.brewery.configuration.files.Lang;
 import com.dre.brewery.configuration.sector.capsule.ConfigDistortWord;
 import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.jfr.ChatDistortEvent;
 import lombok.Getter;
+import org.bukkit.entity.Player;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,9 +45,6 @@ import java.util.Map;
 public class DistortChat {
 
     // represents Words and letters, that are replaced in drunk players messages
-    private static final Config config = ConfigManager.getConfig(Config.class);
-    private static final Lang lang = ConfigManager.getConfig(Lang.class);
-
     public static final List<DistortChat> words = new ArrayList<>();
     @Getter
     public static final List<String> commands = new ArrayList<>();
@@ -50,6 +52,10 @@ public class DistortChat {
     @Getter
     public static final List<String[]> ignoreText = new ArrayList<>();
     private static final Map<String, Long> waitPlayers = new HashMap<>();
+    // The words compiled for matching, built again on first use after words were added
+    private static volatile CompiledWords compiled;
+    // Reused by every thread that distorts messages
+    private static final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(64));
 
     private String from;
     private String to;
@@ -57,6 +63,7 @@ public class DistortChat {
     private Boolean match = false;
     private int alcohol = 1;
     private int percentage = 100;
+    private Special special;
 
     public DistortChat(Map<?, ?> part) {
         for (Map.Entry<?, ?> wordPart : part.entrySet()) {
@@ -89,9 +96,7 @@ public class DistortChat {
 
             }
         }
-        if (this.from != null && this.to != null) {
-            words.add(this);
-        }
+        register();
     }
 
     public DistortChat(ConfigDistortWord configDistortWord) {
@@ -108,8 +113,14 @@ public class DistortChat {
         this.alcohol = configDistortWord.getAlcohol() != null ? configDistortWord.getAlcohol() : 1;
         this.percentage = configDistortWord.getPercentage() != null ? configDistortWord.getPercentage() : 100;
 
+        register();
+    }
+
+    private void register() {
         if (this.from != null && this.to != null) {
+            this.special = Special.of(from);
             words.add(this);
+            compiled = null;
         }
     }
 
@@ -127,8 +138,8 @@ public class DistortChat {
                     if (command.length() + 1 < chat.length()) {
                         if (Character.isSpaceChar(chat.charAt(command.length()))) {
                             if (chat.toLowerCase().startsWith(command.toLowerCase())) {
-                                if (config.isLogRealChat()) {
-                                    Logging.log(lang.getEntry("Player_TriedToSay", name, chat));
+                                if (ConfigManager.getConfig(Config.class).isLogRealChat()) {
+                                    Logging.log(ConfigManager.getConfig(Lang.class).getEntry("Player_TriedToSay", name, chat));
                                 }
 
                                 // exclude player parameters
@@ -136,7 +147,7 @@ public class DistortChat {
                                     ? chat.substring(chat.indexOf(' ', chat.indexOf(' ', 0) + 1) + 1).trim()
                                     : chat.substring(chat.indexOf(' ') + 1).trim();
 
-                                String distorted = distortMessage(message, bPlayer.getDrunkeness());
+                                String distorted = distortMessage(event.getPlayer(), "command", message, bPlayer.getDrunkeness());
                                 PlayerChatDistortEvent call = new PlayerChatDistortEvent(event.isAsynchronous(), event.getPlayer(), bPlayer, message, distorted);
                                 BreweryPlugin.getInstance().getServer().getPluginManager().callEvent(call);
                                 if (call.isCancelled()) {
@@ -167,7 +178,7 @@ public class DistortChat {
                 int index = 0;
                 for (String message : event.getLines()) {
                     if (message.length() > 1) {
-                        String distorted = distortMessage(message, bPlayer.getDrunkeness());
+                        String distorted = distortMessage(event.getPlayer(), "sign", message, bPlayer.getDrunkeness());
                         PlayerChatDistortEvent call = new PlayerChatDistortEvent(event.isAsynchronous(), event.getPlayer(), bPlayer, message, distorted);
                         BreweryPlugin.getInstance().getServer().getPluginManager().callEvent(call);
                         if (!call.isCancelled()) {
@@ -191,11 +202,11 @@ public class DistortChat {
         if (bPlayer != null) {
             if (!words.isEmpty()) {
                 String message = event.getMessage();
-                if (config.isLogRealChat()) {
-                    Logging.log(lang.getEntry("Player_TriedToSay", event.getPlayer().getName(), message));
+                if (ConfigManager.getConfig(Config.class).isLogRealChat()) {
+                    Logging.log(ConfigManager.getConfig(Lang.class).getEntry("Player_TriedToSay", event.getPlayer().getName(), message));
                 }
 
-                String distorted = distortMessage(message, bPlayer.getDrunkeness());
+                String distorted = distortMessage(event.getPlayer(), "chat", message, bPlayer.getDrunkeness());
                 PlayerChatDistortEvent call = new PlayerChatDistortEvent(event.isAsynchronous(), event.getPlayer(), bPlayer, message, distorted);
                 BreweryPlugin.getInstance().getServer().getPluginManager().callEvent(call);
                 if (call.isCancelled()) {
@@ -208,6 +219,21 @@ public class DistortChat {
         }
     }
 
+    private static String distortMessage(Player player, String source, String message, int drunkenness) {
+        ChatDistortEvent event = new ChatDistortEvent();
+        event.begin();
+        String distorted = distortMessage(message, drunkenness);
+        if (event.shouldCommit()) {
+            event.player = player.getName();
+            event.source = source;
+            event.drunkenness = drunkenness;
+            event.length = message.length();
+            event.distortedLength = distorted.length();
+            event.commit();
+        }
+        return distorted;
+    }
+
     // distorts a message, ignoring text enclosed in ignoreText letters
     public static String distortMessage(String message, int drunkenness) {
         if (!ignoreText.isEmpty()) {
@@ -243,20 +269,40 @@ public class DistortChat {
 
     // distorts a message without checking ignoreText letters
     private static String distortString(String message, int drunkenness) {
-
         if (message.length() > 1) {
-            // Create our own reference to the words list, in case of config reload
-            List<DistortChat> words = DistortChat.words;
-            for (DistortChat word : words) {
-
-                if (word.alcohol <= drunkenness) {
-                    message = word.distort(message);
+            CompiledWords compiled = compiledWords();
+            DistortChat[] words = compiled.words;
+            BitSet present = compiled.find(message);
+            BitSet changed = new BitSet(words.length);
+            for (int i = 0; i < words.length; i++) {
+                DistortChat word = words[i];
+                if (word.alcohol > drunkenness) {
+                    continue;
+                }
+                // Words that aren't in the message can only turn up through the words applied before them
+                if (word.special.literal && !present.get(i) && !compiled.dependencies[i].intersects(changed)) {
+                    continue;
+                }
+                String distorted = word.distort(message);
+                if (!distorted.equals(message)) {
+                    changed.set(i);
+                    message = distorted;
                 }
             }
         }
         return message;
     }
 
+    private static CompiledWords compiledWords() {
+        CompiledWords current = compiled;
+        if (current == null) {
+            // Create our own copy of the words list, in case of config reload
+            current = new CompiledWords(words.toArray(new DistortChat[0]));
+            compiled = current;
+        }
+        return current;
+    }
+
     // replace "percent"% of "from" -> "to" in "words", when the string before
     // each "from" "match"es "pre"
     // Not yet ignoring case :(
@@ -264,86 +310,71 @@ public class DistortChat {
         String from = this.from;
         String to = this.to;
 
-        if (from.equalsIgnoreCase("-end")) {
-            from = words;
-            to = words + to;
-        } else if (from.equalsIgnoreCase("-start")) {
-            from = words;
-            to = to + words;
-        } else if (from.equalsIgnoreCase("-all")) {
-            from = words;
-        } else if (from.equalsIgnoreCase("-space")) {
-            from = " ";
-        } else if (from.equalsIgnoreCase("-random")) {
-            // inserts "to" on a random position in "words"
-            int charIndex = (int) (Math.random() * (words.length() - 1));
-            if (charIndex < words.length() / 2) {
-                from = words.substring(charIndex);
-                to = to + from;
-            } else {
-                from = words.substring(0, charIndex);
-                to = from + to;
+        switch (special) {
+            case END -> {
+                from = words;
+                to = words + to;
             }
+            case START -> {
+                from = words;
+                to = to + words;
+            }
+            case ALL -> from = words;
+            case SPACE -> from = " ";
+            case RANDOM -> {
+                // inserts "to" on a random position in "words"
+                int charIndex = (int) (Math.random() * (words.length() - 1));
+                if (charIndex < words.length() / 2) {
+                    from = words.substring(charIndex);
+                    to = to + from;
+                } else {
+                    from = words.substring(0, charIndex);
+                    to = from + to;
+                }
+            }
+            default -> {
+            }
+        }
+        if (words.isEmpty() && !special.literal) {
+            // Earlier words left nothing of the message, this still adds to it
+            return doesPreMatch(words) && (percentage >= 100 || Math.random() * 100.0 <= percentage) ? to : words;
         }
+        return replace(words, from, to);
+    }
 
-        if (words.contains(from)) {
-            // some characters (*,?) disturb split() which then throws
-            // PatternSyntaxException
-            try {
-                if (pre == null && percentage == 100) {
-                    // All occurences of "from" need to be replaced
-                    return words.replaceAll(from, to);
-                }
-                StringBuilder newWords = new StringBuilder();
-                if (words.endsWith(from)) {
-                    // add space to end to recognize last occurence of "from"
-                    words = words + " ";
-                }
-                // remove all "from" and split "words" there
-                String[] splitted = words.split(java.util.regex.Pattern.quote(from));
-                int index = 0;
-                String part;
-
-                // if there are occurences of "from"
-                if (splitted.length > 1) {
-                    // - 1 because dont add "to" to the end of last part
-                    while (index < splitted.length - 1) {
-                        part = splitted[index];
-                        // add current part of "words" to the output
-                        newWords.append(part);
-                        // check if the part ends with correct string
-
-                        if (doesPreMatch(part) && Math.random() * 100.0 <= percentage) {
-                            // add replacement
-                            newWords.append(to);
-                        } else {
-                            // add original
-                            newWords.append(from);
-                        }
-                        index++;
-                    }
-                    // add the last part to finish the sentence
-                    part = splitted[index];
-                    if (part.equals(" ")) {
-                        // dont add the space to the end
-                        return newWords.toString();
-                    } else {
-                        return newWords.append(part).toString();
-                    }
-                }
-            } catch (java.util.regex.PatternSyntaxException e) {
-                // e.printStackTrace();
-                return words;
+    // Replaces the occurrences of "from" from left to right, in one pass without regex
+    private String replace(String words, String from, String to) {
+        int index = from.isEmpty() ? -1 : words.indexOf(from);
+        if (index < 0) {
+            return words;
+        }
+        StringBuilder newWords = buffers.get();
+        newWords.setLength(0);
+        int partStart = 0;
+        while (index >= 0) {
+            // "pre" is checked against the part of "words" since the last occurrence
+            if (doesPreMatch(words, partStart, index) && (percentage >= 100 || Math.random() * 100.0 <= percentage)) {
+                newWords.append(words, partStart, index).append(to);
+            } else {
+                newWords.append(words, partStart, index).append(from);
             }
+            partStart = index + from.length();
+            index = words.indexOf(from, partStart);
         }
-        return words;
+        newWords.append(words, partStart, words.length());
+        return newWords.toString();
     }
 
     public boolean doesPreMatch(String part) {
+        return doesPreMatch(part, 0, part.length());
+    }
+
+    private boolean doesPreMatch(String words, int partStart, int partEnd) {
         boolean isBefore = !match;
         if (pre != null) {
             for (String pr : pre) {
-                if (part.endsWith(pr)) {
+                int start = partEnd - pr.length();
+                if (start >= partStart && words.startsWith(pr, start)) {
                     // If a match is wanted set isBefore to true, else to false
                     isBefore = match;
                     break;
@@ -355,4 +386,139 @@ public class DistortChat {
         return isBefore;
     }
 
+    private enum Special {
+        NONE(true),
+        END(false),
+        START(false),
+        ALL(false),
+        SPACE(true),
+        RANDOM(false);
+
+        // Replaces a fixed text, instead of depending on the whole message
+        private final boolean literal;
+
+        Special(boolean literal) {
+            this.literal = literal;
+        }
+
+        private static Special of(String from) {
+            return switch (from.toLowerCase()) {
+                case "-end" -> END;
+                case "-start" -> START;
+                case "-all" -> ALL;
+                case "-space" -> SPACE;
+                case "-random" -> RANDOM;
+                default -> NONE;
+            };
+        }
+    }
+
+    /**
+     * The words in their configured order, with an Aho-Corasick automaton over the texts they replace.
+     * One pass over a message finds every word that occurs in it.
+     */
+    private static final class CompiledWords {
+        private final DistortChat[] words;
+        // The earlier words whose replacement could create an occurrence of a word
+        private final BitSet[] dependencies;
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<BitSet> outputs = new ArrayList<>();
+        private int[] fail;
+
+        private CompiledWords(DistortChat[] words) {
+            this.words = words;
+            this.dependencies = new BitSet[words.length];
+            addNode();
+            for (int i = 0; i < words.length; i++) {
+                String text = textOf(words[i]);
+                dependencies[i] = new BitSet(words.length);
+                if (text == null || text.isEmpty()) {
+                    continue;
+                }
+                int node = 0;
+                for (int c = 0; c < text.length(); c++) {
+                    Integer next = transitions.get(node).get(text.charAt(c));
+                    if (next == null) {
+                        next = addNode();
+                        transitions.get(node).put(text.charAt(c), next);
+                    }
+                    node = next;
+                }
+                outputs.get(node).set(i);
+                for (int earlier = 0; earlier < i; earlier++) {
+                    if (canCreate(words[earlier].to, text)) {
+                        dependencies[i].set(earlier);
+                    }
+                }
+            }
+            linkFailures();
+        }
+
+        private static String textOf(DistortChat word) {
+            return switch (word.special) {
+                case NONE -> word.from;
+                case SPACE -> " ";
+                default -> null;
+            };
+        }
+
+        // A new occurrence of "text" has to contain some of the inserted text, or join two parts if nothing is inserted
+        private static boolean canCreate(String inserted, String text) {
+            if (inserted.isEmpty()) {
+                return true;
+            }
+            for (int c = 0; c < inserted.length(); c++) {
+                if (text.indexOf(inserted.charAt(c)) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int addNode() {
+            transitions.add(new HashMap<>());
+            outputs.add(new BitSet());
+            return transitions.size() - 1;
+        }
+
+        // Breadth first, so the failure link of a node is always known before its children are visited
+        private void linkFailures() {
+            fail = new int[transitions.size()];
+            Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                    int child = edge.getValue();
+                    if (node != 0) {
+                        int link = fail[node];
+                        while (link != 0 && !transitions.get(link).containsKey(edge.getKey())) {
+                            link = fail[link];
+                        }
+                        fail[child] = transitions.get(link).getOrDefault(edge.getKey(), 0);
+                        outputs.get(child).or(outputs.get(fail[child]));
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+
+        /**
+         * @return The indices of the words that occur in the message
+         */
+        private BitSet find(String message) {
+            BitSet found = new BitSet(words.length);
+            int node = 0;
+            for (int i = 0; i < message.length(); i++) {
+                char c = message.charAt(i);
+                Integer next = transitions.get(node).get(c);
+                while (next == null && node != 0) {
+                    node = fail[node];
+                    next = transitions.get(node).get(c);
+                }
+                node = next == null ? 0 : next;
+                found.or(outputs.get(node));
+            }
+            return found;
+        }
+    }
 }
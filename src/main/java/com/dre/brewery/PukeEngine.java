@@ -0,0 +1,242 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery;
+
+import com.dre.brewery.configuration.ConfigManager;
+import com.dre.brewery.configuration.files.Config;
+import com.dre.brewery.utility.BUtil;
+import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.TickScheduler;
+import io.papermc.lib.PaperLib;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.metadata.FixedMetadataValue;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Makes all puking players puke from one loop, one item per player and tick.
+ * <p>Only so many items are puked per tick over all players, the others continue in the next ticks.
+ * Each world only has a limited number of puke items lying around, once it's reached the oldest item next to the player
+ * is thrown again, or only particles are shown. Particles can also be used instead of items altogether.
+ */
+public class PukeEngine implements Runnable {
+
+    private static final class Puker {
+        private final Player player;
+        private int left;
+
+        private Puker(Player player) {
+            this.player = player;
+        }
+    }
+
+    private static final MinecraftVersion VERSION = BreweryPlugin.getMCVersion();
+    private static final Config config = ConfigManager.getConfig(Config.class);
+    private static final String PUKE_METADATA = "brewery_puke";
+
+    private static final Map<UUID, Puker> pukers = new HashMap<>();
+    // Players take turns, one item each
+    private static final Queue<Puker> turns = new ArrayDeque<>();
+    // The puke items still lying around in each world, oldest first
+    private static final Map<UUID, Deque<Item>> pools = new ConcurrentHashMap<>();
+    private static final Map<UUID, Integer> despawnRates = new ConcurrentHashMap<>();
+    private static FixedMetadataValue pukeMetadata;
+
+    /**
+     * Make the player puke the given number of items, replacing what the player still had left to puke.
+     */
+    public static synchronized void add(Player player, int count) {
+        Puker puker = pukers.get(player.getUniqueId());
+        if (puker == null) {
+            puker = new Puker(player);
+            pukers.put(player.getUniqueId(), puker);
+            turns.add(puker);
+        }
+        puker.left = count;
+    }
+
+    /**
+     * Forget the puke items of an unloading world.
+     */
+    public static void onUnload(World world) {
+        pools.remove(world.getUID());
+        despawnRates.remove(world.getUID());
+    }
+
+    @Override
+    public void run() {
+        for (Player player : takeTurns()) {
+            BreweryPlugin.getTickScheduler().submit(TickScheduler.Priority.NORMAL, player.getLocation(), () -> {
+                if (player.isOnline()) {
+                    puke(player);
+                }
+            });
+        }
+    }
+
+    private static synchronized List<Player> takeTurns() {
+        if (turns.isEmpty()) {
+            return List.of();
+        }
+        int budget = Math.max(1, config.getPukeItemsPerTick());
+        List<Player> players = new ArrayList<>(Math.min(budget, turns.size()));
+        // Everyone gets at most one turn per tick
+        for (int waiting = turns.size(); waiting > 0 && players.size() < budget; waiting--) {
+            Puker puker = turns.poll();
+            UUID uuid = puker.player.getUniqueId();
+            if (!puker.player.isValid() || !puker.player.isOnline()) {
+                pukers.remove(uuid, puker);
+                continue;
+            }
+            players.add(puker.player);
+            puker.left--;
+            if (puker.left > 0) {
+                turns.add(puker);
+            } else {
+                pukers.remove(uuid, puker);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Puke one item right away, on the thread of the players region.
+     */
+    public static void puke(Player player) {
+        if (config.getPukeItem() == null || config.getPukeItem().isEmpty()) {
+            config.setPukeItem(List.of(Material.SOUL_SAND));
+        }
+        List<Material> pukeItems = config.getPukeItem();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        Location loc = player.getLocation();
+        loc.setY(loc.getY() + 1.1);
+        loc.setPitch(loc.getPitch() - 10 + random.nextInt(20));
+        loc.setYaw(loc.getYaw() - 10 + random.nextInt(20));
+        Vector direction = loc.getDirection();
+        direction.multiply(0.5);
+        loc.add(direction);
+
+        ItemStack stack = new ItemStack(pukeItems.get(random.nextInt(pukeItems.size())));
+        World world = player.getWorld();
+        if (config.isPukeParticlesOnly()) {
+            spawnParticles(world, loc, direction, stack);
+            return;
+        }
+
+        Deque<Item> pool = pools.computeIfAbsent(world.getUID(), uuid -> new ConcurrentLinkedDeque<>());
+        if (countValid(pool) < config.getPukeItemLimit()) {
+            Item item = world.dropItem(loc, stack);
+            item.setPickupDelay(32767); // Item can never be picked up when pickup delay is 32767
+            if (pukeMetadata == null) {
+                pukeMetadata = new FixedMetadataValue(BreweryPlugin.getInstance(), true);
+            }
+            item.setMetadata(PUKE_METADATA, pukeMetadata);
+            if (VERSION.isOrLater(MinecraftVersion.V1_14)) item.setPersistent(false); // No need to save Puke items
+            pool.addLast(item);
+            throwItem(item, world, direction);
+        } else {
+            Item reused = reuse(pool, loc);
+            if (reused == null) {
+                // Too many items around, and none of them close enough to move here
+                spawnParticles(world, loc, direction, stack);
+                return;
+            }
+            reused.setItemStack(stack);
+            // Entities can't be teleported synchronously on Folia
+            PaperLib.teleportAsync(reused, loc).thenRun(() -> throwItem(reused, world, direction));
+        }
+    }
+
+    private static void throwItem(Item item, World world, Vector direction) {
+        item.setVelocity(direction);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pukeDespawntime = config.getPukeDespawntime();
+        int despawnRate = despawnRates.computeIfAbsent(world.getUID(), uuid -> BUtil.getItemDespawnRate(world));
+        if (pukeDespawntime >= (despawnRate - 200)) {
+            item.setTicksLived(1);
+            return;
+        }
+
+        // Setting the age determines when an item is despawned. At age 6000 it is removed.
+        if (pukeDespawntime <= 0) {
+            // Just show the item for a few ticks
+            item.setTicksLived(despawnRate - 4);
+        } else if (pukeDespawntime <= 120) {
+            // it should despawn in less than 6 sec. Add up to half of that randomly
+            item.setTicksLived(despawnRate - pukeDespawntime + random.nextInt((int) (pukeDespawntime / 2F)));
+        } else {
+            // Add up to 5 sec randomly
+            item.setTicksLived(despawnRate - pukeDespawntime + random.nextInt(100));
+        }
+    }
+
+    // Despawned items are dropped from the pool here, they are mostly the oldest ones
+    private static int countValid(Deque<Item> pool) {
+        Item oldest;
+        while ((oldest = pool.peekFirst()) != null && !oldest.isValid()) {
+            pool.remove(oldest);
+        }
+        if (pool.size() >= config.getPukeItemLimit()) {
+            pool.removeIf(item -> !item.isValid());
+        }
+        return pool.size();
+    }
+
+    // Only items in the same chunk as the new location are reused, they belong to the same region
+    private static Item reuse(Deque<Item> pool, Location loc) {
+        int chunkX = loc.getBlockX() >> 4;
+        int chunkZ = loc.getBlockZ() >> 4;
+        for (Item item : pool) {
+            Location itemLoc = item.getLocation();
+            if (item.isValid() && itemLoc.getBlockX() >> 4 == chunkX && itemLoc.getBlockZ() >> 4 == chunkZ) {
+                if (pool.remove(item)) {
+                    pool.addLast(item);
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void spawnParticles(World world, Location loc, Vector direction, ItemStack stack) {
+        // With a count of 0 the offset is the direction the particle flies in
+        world.spawnParticle(Particle.ITEM_CRACK, loc, 0, direction.getX(), direction.getY(), direction.getZ(), 1, stack);
+    }
+}
@@ -25,33 +25,47 @@ import com.dre.brewery.configuration.files.Lang;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.Logging;
 import io.papermc.lib.PaperLib;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Getter
 public class Wakeup {
 
     private static final Lang lang = ConfigManager.getConfig(Lang.class);
 
-    @Getter
-    public static List<Wakeup> wakeups = new ArrayList<>();
+    // Only changed through add, so the Wakeups of each world stay indexed
+    private static final List<Wakeup> wakeups = new ArrayList<>();
     public static BreweryPlugin breweryPlugin = BreweryPlugin.getInstance();
     public static int checkId = -1;
     public static Player checkPlayer = null;
+    // The active Wakeups of each world, for picking one at random without going through all of them
+    private static final Map<UUID, WorldWakeups> byWorld = new HashMap<>();
 
     private final Location loc;
     private final UUID id;
     private boolean active = true;
+    // If the location was filled when last checked. Reset when a block changes there
+    @Getter(AccessLevel.NONE)
+    private boolean filled;
+    // Position in the active list of its world, -1 if not in it
+    @Getter(AccessLevel.NONE)
+    private int worldIndex = -1;
 
     public Wakeup(Location loc) {
         this.loc = loc;
@@ -67,67 +81,70 @@ public class Wakeup {
 
     // get the nearest of two random Wakeup-Locations
     public static Location getRandom(Location playerLoc) {
-        if (wakeups.isEmpty()) {
+        WorldWakeups worldWakes = byWorld.get(playerLoc.getWorld().getUID());
+        if (worldWakes == null || worldWakes.active.isEmpty()) {
             return null;
         }
 
-        List<Wakeup> worldWakes = wakeups.stream()
-            .filter(w -> w.active)
-            .filter(w -> w.loc.getWorld().equals(playerLoc.getWorld()))
-            .collect(Collectors.toList());
+        WorldWakeups.Draw draw = worldWakes.draw();
+        Wakeup w1 = draw.next();
+        if (w1 == null) {
+            return null;
+        }
+        Wakeup w2 = draw.next();
+        if (w2 != null && w1.loc.distanceSquared(playerLoc) > w2.loc.distanceSquared(playerLoc)) {
+            return w2.loc;
+        }
+        return w1.loc;
+    }
 
+    public static Wakeup calcRandom(List<Wakeup> worldWakes) {
         if (worldWakes.isEmpty()) {
             return null;
         }
+        return worldWakes.get((int) Math.round(Math.random() * ((float) worldWakes.size() - 1.0)));
+    }
 
-        Wakeup w1 = calcRandom(worldWakes);
-        worldWakes.remove(w1);
-        if (w1 == null) return null;
-
-        while (!w1.check()) {
-            Logging.errorLog("Please Check Wakeup-Location with id: &6" + wakeups.indexOf(w1));
+    /**
+     * All Wakeups, including the removed ones so ids stay the same. Add new ones with {@link #addAll(Collection)}.
+     */
+    public static List<Wakeup> getWakeups() {
+        return Collections.unmodifiableList(wakeups);
+    }
 
-            w1 = calcRandom(worldWakes);
-            if (w1 == null) {
-                return null;
-            }
-            worldWakes.remove(w1);
+    /**
+     * Add Wakeups, i.e. after loading them from storage.
+     */
+    public static void addAll(Collection<Wakeup> loaded) {
+        for (Wakeup wakeup : loaded) {
+            add(wakeup);
         }
+    }
 
-        Wakeup w2 = calcRandom(worldWakes);
-        if (w2 != null) {
-            worldWakes.remove(w2);
-
-            while (!w2.check()) {
-                Logging.errorLog("Please Check Wakeup-Location with id: &6" + wakeups.indexOf(w2));
-
-                w2 = calcRandom(worldWakes);
-                if (w2 == null) {
-                    return w1.loc;
-                }
-                worldWakes.remove(w2);
-            }
-
-
-            if (w1.loc.distanceSquared(playerLoc) > w2.loc.distanceSquared(playerLoc)) {
-                return w2.loc;
-            }
+    private static void add(Wakeup wakeup) {
+        wakeups.add(wakeup);
+        if (wakeup.active) {
+            byWorld.computeIfAbsent(wakeup.loc.getWorld().getUID(), uuid -> new WorldWakeups()).add(wakeup);
         }
-        return w1.loc;
     }
 
-    public static Wakeup calcRandom(List<Wakeup> worldWakes) {
-        if (worldWakes.isEmpty()) {
-            return null;
+    /**
+     * Forget if the Wakeups at or below the block were filled, to use them again the next time they're picked.
+     */
+    public static void blockChanged(Block block) {
+        WorldWakeups worldWakes = byWorld.get(block.getWorld().getUID());
+        if (worldWakes != null) {
+            // A Wakeup checks its own block and the one above
+            worldWakes.invalidate(block.getX(), block.getY(), block.getZ());
+            worldWakes.invalidate(block.getX(), block.getY() - 1, block.getZ());
         }
-        return worldWakes.get((int) Math.round(Math.random() * ((float) worldWakes.size() - 1.0)));
     }
 
     public static void set(CommandSender sender) {
         if (sender instanceof Player) {
 
             Player player = (Player) sender;
-            wakeups.add(new Wakeup(player.getLocation()));
+            add(new Wakeup(player.getLocation()));
             lang.sendEntry(sender, "Player_WakeCreated", "" + (wakeups.size() - 1));
 
         } else {
@@ -145,6 +162,10 @@ public class Wakeup {
 
         if (wakeup.active) {
             wakeup.active = false;
+            WorldWakeups worldWakes = byWorld.get(wakeup.loc.getWorld().getUID());
+            if (worldWakes != null) {
+                worldWakes.remove(wakeup);
+            }
             lang.sendEntry(sender, "Player_WakeDeleted", "" + id);
 
         } else {
@@ -221,7 +242,17 @@ public class Wakeup {
     }
 
     public boolean check() {
-        return (!loc.getBlock().getType().isSolid() && !loc.getBlock().getRelative(0, 1, 0).getType().isSolid());
+        boolean free = !loc.getBlock().getType().isSolid() && !loc.getBlock().getRelative(0, 1, 0).getType().isSolid();
+        filled = !free;
+        return free;
+    }
+
+    /**
+     * Like {@link #check()}, but a location that was filled is skipped until a block changes there.
+     * <p>Free locations are always checked again, blocks can be filled without any event, i.e. by WorldEdit.
+     */
+    public boolean isValid() {
+        return !filled && check();
     }
 
     public static void tpNext() {
@@ -304,11 +335,92 @@ public class Wakeup {
 
     public static void onUnload(World world) {
         wakeups.removeIf(wakeup -> wakeup.loc.getWorld().equals(world));
+        byWorld.remove(world.getUID());
     }
 
     public static void unloadWorlds() {
         List<World> worlds = BreweryPlugin.getInstance().getServer().getWorlds();
         wakeups.removeIf(wakeup -> !worlds.contains(wakeup.loc.getWorld()));
+        byWorld.keySet().removeIf(uuid -> worlds.stream().noneMatch(world -> world.getUID().equals(uuid)));
     }
 
+    private static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * The active Wakeups of one world in a list that removes by swapping with the last,
+     * and by the block they are at.
+     */
+    private static final class WorldWakeups {
+        private final List<Wakeup> active = new ArrayList<>();
+        private final Map<Long, List<Wakeup>> byBlock = new HashMap<>();
+
+        private void add(Wakeup wakeup) {
+            wakeup.worldIndex = active.size();
+            active.add(wakeup);
+            byBlock.computeIfAbsent(keyOf(wakeup), key -> new ArrayList<>(1)).add(wakeup);
+        }
+
+        private void remove(Wakeup wakeup) {
+            int index = wakeup.worldIndex;
+            if (index < 0) {
+                return;
+            }
+            Wakeup last = active.remove(active.size() - 1);
+            if (last != wakeup) {
+                active.set(index, last);
+                last.worldIndex = index;
+            }
+            wakeup.worldIndex = -1;
+            List<Wakeup> atBlock = byBlock.get(keyOf(wakeup));
+            if (atBlock != null) {
+                atBlock.remove(wakeup);
+                if (atBlock.isEmpty()) {
+                    byBlock.remove(keyOf(wakeup));
+                }
+            }
+        }
+
+        private void invalidate(int x, int y, int z) {
+            List<Wakeup> atBlock = byBlock.get(blockKey(x, y, z));
+            if (atBlock != null) {
+                for (Wakeup wakeup : atBlock) {
+                    wakeup.filled = false;
+                }
+            }
+        }
+
+        private static long keyOf(Wakeup wakeup) {
+            return blockKey(wakeup.loc.getBlockX(), wakeup.loc.getBlockY(), wakeup.loc.getBlockZ());
+        }
+
+        private Draw draw() {
+            return new Draw();
+        }
+
+        /**
+         * Draws the valid Wakeups in random order without putting them back. Like a shuffle that stops after the Wakeups it needed,
+         * only the drawn positions are remembered.
+         */
+        private final class Draw {
+            private final Map<Integer, Integer> moved = new HashMap<>();
+            private int left = active.size();
+
+            private Wakeup next() {
+                while (left > 0) {
+                    int pick = ThreadLocalRandom.current().nextInt(left);
+                    left--;
+                    int index = moved.getOrDefault(pick, pick);
+                    moved.put(pick, moved.getOrDefault(left, left));
+                    Wakeup wakeup = active.get(index);
+                    if (wakeup.isValid()) {
+                        return wakeup;
+                    }
+                    Logging.errorLog("Please Check Wakeup-Location with id: &6" + wakeups.indexOf(wakeup));
+                }
+                return null;
+            }
+        }
+    }
 }
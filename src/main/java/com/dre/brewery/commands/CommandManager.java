@@ -40,6 +40,7 @@ import com.dre.brewery.commands.subcommands.SetCommand;
 import com.dre.brewery.commands.subcommands.ShowStatsCommand;
 import com.dre.brewery.commands.subcommands.SimulateCommand;
 import com.dre.brewery.commands.subcommands.StaticCommand;
+import com.dre.brewery.commands.subcommands.TimingsCommand;
 import com.dre.brewery.commands.subcommands.UnLabelCommand;
 import com.dre.brewery.commands.subcommands.VersionCommand;
 import com.dre.brewery.commands.subcommands.WakeupCommand;
@@ -87,6 +88,7 @@ public class CommandManager implements TabExecutor {
         addSubCommand("distill", new DistillCommand());
         addSubCommand("age", new AgeCommand());
         addSubCommand("simulate", new SimulateCommand());
+        addSubCommand("timings", new TimingsCommand());
 
         addSubCommand(new CreateCommand(), "create", "give");
     }
@@ -27,6 +27,7 @@ import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.files.Config;
 import com.dre.brewery.configuration.files.Lang;
 import com.dre.brewery.storage.DataManager;
+import com.dre.brewery.storage.DataManagerType;
 import com.dre.brewery.storage.StorageInitException;
 import com.dre.brewery.utility.Logging;
 import org.bukkit.command.CommandSender;
@@ -44,9 +45,13 @@ public class DataManagerCommand implements SubCommand {
 
         switch (args[1].toLowerCase()) {
             case "reload" -> BreweryPlugin.getDataManager().exit(true, true, () -> {
+                DataManagerType previousType = BreweryPlugin.getDataManager().getType();
                 CommandManager.execute(ReloadCommand.class, sender, label, args);
                 try {
                     BreweryPlugin.setDataManager(DataManager.createDataManager(ConfigManager.getConfig(Config.class).getStorage()));
+                    if (BreweryPlugin.getBarrelPager() != null && previousType != BreweryPlugin.getDataManager().getType()) {
+                        Logging.warningLog("Barrels that are paged out stay in the previous storage, only barrels in loaded chunks are moved to " + BreweryPlugin.getDataManager().getType().getFormattedName());
+                    }
                     Logging.msg(sender, "Reloaded the DataManager!");
                 } catch (StorageInitException e) {
                     Logging.errorLog("Failed to initialize the DataManager! WARNING: This will cause issues and Brewery will NOT be able to save. Check your config and reload.", e);
@@ -29,7 +29,11 @@ import com.dre.brewery.commands.SubCommand;
 import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.configurer.TranslationManager;
 import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.BarrelAccessCache;
+import com.dre.brewery.integration.PlaceholderAPIHook;
+import com.dre.brewery.recipe.PluginItemIds;
 import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.PermissionUtil;
 import com.dre.brewery.utility.releases.ReleaseChecker;
 import lombok.Getter;
 import org.bukkit.Bukkit;
@@ -80,6 +84,18 @@ public class ReloadCommand implements SubCommand {
             // Sealing table recipe
             BSealer.registerRecipe();
 
+            // Look up permissions again, in case they were changed along with the config
+            PermissionUtil.invalidateAll();
+
+            // Other plugins may have been reloaded too, ask them for the ids of items again
+            PluginItemIds.invalidateAll();
+
+            // Region and claim settings may have changed along with the config
+            BarrelAccessCache.invalidateAll();
+
+            // The drunkenness bars and stars may look different now
+            PlaceholderAPIHook.PLACEHOLDERAPI.invalidateAll();
+
             // Let addons know this command was executed
             BreweryPlugin.getAddonManager().reloadAddons();
 
@@ -43,7 +43,7 @@ public class ShowStatsCommand implements SubCommand {
         Logging.msg(sender, "Barrels built: " + Barrel.getAllBarrels().size());
         Logging.msg(sender, "Cauldrons boiling: " + BCauldron.bcauldrons.size());
         Logging.msg(sender, "Number of Recipes: " + BRecipe.getAllRecipes().size());
-        Logging.msg(sender, "Wakeups: " + Wakeup.wakeups.size());
+        Logging.msg(sender, "Wakeups: " + Wakeup.getWakeups().size());
     }
 
     @Override
@@ -0,0 +1,133 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.commands.subcommands;
+
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.commands.SubCommand;
+import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.TickScheduler;
+import com.dre.brewery.utility.Timings;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimingsCommand implements SubCommand {
+
+    private static final int SHOWN_IN_CHAT = 10;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    @Override
+    public void execute(BreweryPlugin breweryPlugin, Lang lang, CommandSender sender, String label, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "show";
+        switch (action) {
+            case "show" -> show(lang, sender);
+            case "on" -> {
+                Timings.setEnabled(true);
+                lang.sendEntry(sender, "CMD_Timings_Enabled");
+            }
+            case "off" -> {
+                Timings.setEnabled(false);
+                lang.sendEntry(sender, "CMD_Timings_Disabled");
+            }
+            case "reset" -> {
+                Timings.reset();
+                BreweryPlugin.getTickScheduler().resetStats();
+                lang.sendEntry(sender, "CMD_Timings_Reset");
+            }
+            case "report" -> {
+                List<String> report = report();
+                File file = new File(breweryPlugin.getDataFolder(), "timings" + File.separator + "timings_" + LocalDateTime.now().format(FILE_DATE) + ".txt");
+                BreweryPlugin.getScheduler().runTaskAsynchronously(() -> {
+                    try {
+                        Files.createDirectories(file.getParentFile().toPath());
+                        Files.write(file.toPath(), report, StandardCharsets.UTF_8);
+                        lang.sendEntry(sender, "CMD_Timings_Report", file.getPath());
+                    } catch (IOException e) {
+                        Logging.errorLog("Failed to write timings report!", e);
+                    }
+                });
+            }
+            default -> lang.sendEntry(sender, "Error_UnknownCommand");
+        }
+    }
+
+    private void show(Lang lang, CommandSender sender) {
+        List<Timings.Snapshot> snapshots = Timings.snapshot();
+        if (!Timings.isEnabled()) {
+            lang.sendEntry(sender, "CMD_Timings_Off");
+        }
+        if (snapshots.isEmpty()) {
+            lang.sendEntry(sender, "CMD_Timings_Empty");
+            return;
+        }
+        lang.sendEntry(sender, "CMD_Timings_Header");
+        for (Timings.Snapshot snapshot : snapshots.subList(0, Math.min(SHOWN_IN_CHAT, snapshots.size()))) {
+            lang.sendEntry(sender, "CMD_Timings_Entry", snapshot.name(), snapshot.calls(),
+                millis(snapshot.avgNanos()), millis(snapshot.p95Nanos()), millis(snapshot.maxNanos()));
+        }
+        if (snapshots.size() > SHOWN_IN_CHAT) {
+            lang.sendEntry(sender, "CMD_Timings_More", snapshots.size() - SHOWN_IN_CHAT);
+        }
+    }
+
+    private List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add("BreweryX timings, " + LocalDateTime.now());
+        lines.add("Timings enabled: " + Timings.isEnabled());
+        TickScheduler.Stats stats = BreweryPlugin.getTickScheduler().getStats();
+        lines.add(String.format("Tick scheduler: %d ticks, avg %s, max %s, %d over budget, rolled over %d times, delayed up to %d ticks",
+            stats.ticks(), millis(stats.averageTickMillis() * 1_000_000), millis(stats.maxTickNanos()), stats.overrunTicks(), stats.rolledOver(), stats.maxDelayTicks()));
+        lines.add("");
+        lines.add(String.format("%-60s %10s %12s %10s %10s %10s %10s %10s", "name", "calls", "total", "avg", "p50", "p95", "p99", "max"));
+        for (Timings.Snapshot snapshot : Timings.snapshot()) {
+            lines.add(String.format("%-60s %10d %12s %10s %10s %10s %10s %10s", snapshot.name(), snapshot.calls(), millis(snapshot.totalNanos()),
+                millis(snapshot.avgNanos()), millis(snapshot.p50Nanos()), millis(snapshot.p95Nanos()), millis(snapshot.p99Nanos()), millis(snapshot.maxNanos())));
+        }
+        return lines;
+    }
+
+    private static String millis(double nanos) {
+        return String.format("%.3fms", nanos / 1_000_000.0);
+    }
+
+    @Override
+    public List<String> tabComplete(BreweryPlugin breweryPlugin, CommandSender sender, String label, String[] args) {
+        return List.of("show", "on", "off", "reset", "report");
+    }
+
+    @Override
+    public String permission() {
+        return "brewery.cmd.timings";
+    }
+
+    @Override
+    public boolean playerOnly() {
+        return false;
+    }
+}
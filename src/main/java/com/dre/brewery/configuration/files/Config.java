@@ -71,12 +71,24 @@ public class Config extends AbstractOkaeriConfigFile {
     @LocalizedComment("config.autosave")
     private int autosave = 10;
 
+    @LocalizedComment("config.autosaveTickBudget")
+    private double autosaveTickBudget = 2.0;
+
+    @LocalizedComment("config.tickBudget")
+    private double tickBudget = 2.0;
+
     @LocalizedComment("config.pluginPrefix")
     private String pluginPrefix = "&2[BreweryX]&f ";
 
     @LocalizedComment("config.debug")
     private boolean debug = false;
 
+    @LocalizedComment("config.timings")
+    private boolean timings = true;
+
+    @LocalizedComment("config.metricsPort")
+    private int metricsPort = 0;
+
 
     @LocalizedComment("config.storage.header")
     private ConfiguredDataManager storage = ConfiguredDataManager.builder()
@@ -86,6 +98,8 @@ public class Config extends AbstractOkaeriConfigFile {
         .address("localhost")
         .username("root")
         .password("password")
+        .batchSize(1000)
+        .barrelEvictionDelay(60)
         .build();
 
 
@@ -117,6 +131,15 @@ public class Config extends AbstractOkaeriConfigFile {
     @LocalizedComment("config.pukeDespawntime")
     private int pukeDespawntime = 60;
 
+    @LocalizedComment("config.pukeItemsPerTick")
+    private int pukeItemsPerTick = 20;
+
+    @LocalizedComment("config.pukeItemLimit")
+    private int pukeItemLimit = 200;
+
+    @LocalizedComment("config.pukeParticlesOnly")
+    private boolean pukeParticlesOnly = false;
+
     @LocalizedComment("config.stumblePercent")
     private int stumblePercent = 100;
 
@@ -27,6 +27,7 @@ import com.dre.brewery.configuration.annotation.DefaultCommentSpace;
 import com.dre.brewery.configuration.annotation.OkaeriConfigFileOptions;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.MessageTemplate;
 import eu.okaeri.configs.annotation.Comment;
 import eu.okaeri.configs.annotation.CustomKey;
 import eu.okaeri.configs.annotation.Exclude;
@@ -53,7 +54,7 @@ public class Lang extends AbstractOkaeriConfigFile {
     @Exclude
     private transient final Config config = ConfigManager.getConfig(Config.class);
     @Exclude
-    private transient Map<String, Object> mappedEntries; // String or List<String> only
+    private transient Map<String, Object> mappedEntries; // MessageTemplate or List<MessageTemplate> only
 
     @SneakyThrows
     @Override // Should override because we need to remap our strings after a reload of this file.
@@ -106,19 +107,26 @@ public class Lang extends AbstractOkaeriConfigFile {
 
             try {
                 CustomKey customKey = field.getAnnotation(CustomKey.class);
-                if (customKey != null) {
-                    this.mappedEntries.put(customKey.value(), field.get(this));
-                } else {
-                    this.mappedEntries.put(field.getName(), field.get(this));
-                }
+                String key = customKey != null ? customKey.value() : field.getName();
+                this.mappedEntries.put(key, compile(field.get(this)));
             } catch (IllegalAccessException e) {
                 Logging.errorLog("Lang failed to get a field value! &6(" + field.getName() + ")", e);
             }
         }
     }
 
+    @SuppressWarnings("unchecked") // All lists in this class are List<String>
+    private static Object compile(Object entry) {
+        if (entry instanceof String string) {
+            return MessageTemplate.compile(string);
+        } else if (entry instanceof List) {
+            return ((List<String>) entry).stream().map(MessageTemplate::compile).toList();
+        }
+        return entry;
+    }
+
     public void sendEntry(CommandSender recipient, String key, Object... args) {
-        recipient.sendMessage(BUtil.color(config.getPluginPrefix() + this.getEntry(key, false, args)));
+        recipient.sendMessage(BUtil.color(config.getPluginPrefix()) + this.getEntry(key, true, args));
     }
 
     public void logEntry(Logging.LogLevel level, String key, Object... args) {
@@ -136,8 +144,8 @@ public class Lang extends AbstractOkaeriConfigFile {
 
         String msg;
         Object entry = mappedEntries.get(key);
-        if (entry instanceof String) {
-            msg = format((String) entry, args);
+        if (entry instanceof MessageTemplate template) {
+            return template.format(color, args);
         } else if (entry instanceof List) {
             msg = "&c[LanguageReader] Config entry for key '" + key + "' is a list!";
         } else {
@@ -150,38 +158,26 @@ public class Lang extends AbstractOkaeriConfigFile {
         return this.getEntries(key, true, args);
     }
 
-    @SuppressWarnings("unchecked") // All lists in this class are List<String>
+    @SuppressWarnings("unchecked") // All lists in this class are List<MessageTemplate>
     public List<String> getEntries(String key, boolean color, Object... args) {
         if (mappedEntries == null) {
             mapStrings();
         }
 
-        List<String> msgs;
+        List<MessageTemplate> msgs;
         Object entry = mappedEntries.get(key);
-        if (entry instanceof String) {
-            msgs = List.of((String) entry);
+        if (entry instanceof MessageTemplate template) {
+            msgs = List.of(template);
         } else if (entry instanceof List) {
-            msgs = (List<String>) entry;
+            msgs = (List<MessageTemplate>) entry;
         } else {
-            msgs = List.of("&c[LanguageReader] Failed to retrieve a config entry for key '" + key + "'!");
+            msgs = List.of(MessageTemplate.compile("&c[LanguageReader] Failed to retrieve a config entry for key '" + key + "'!"));
         }
         return msgs.stream()
-            .map(s -> format(s, args))
-            .map(s -> color ? BUtil.color(s) : s)
+            .map(template -> template.format(color, args))
             .toList();
     }
 
-    private static String format(String entry, Object... args) {
-        int i = 0;
-        for (Object arg : args) {
-            if (arg != null) {
-                i++;
-                entry = entry.replace("&v" + i, arg.toString());
-            }
-        }
-        return entry;
-    }
-
 
     // I shouldn't have to set any declarations here since they'll all be pulled from the bound translation files.
 
@@ -289,6 +285,24 @@ public class Lang extends AbstractOkaeriConfigFile {
     private String cmdDistillRuined;
     @CustomKey("CMD_Age_Ruined")
     private String cmdAgeRuined;
+    @CustomKey("CMD_Timings_Enabled")
+    private String cmdTimingsEnabled;
+    @CustomKey("CMD_Timings_Disabled")
+    private String cmdTimingsDisabled;
+    @CustomKey("CMD_Timings_Reset")
+    private String cmdTimingsReset;
+    @CustomKey("CMD_Timings_Report")
+    private String cmdTimingsReport;
+    @CustomKey("CMD_Timings_Off")
+    private String cmdTimingsOff;
+    @CustomKey("CMD_Timings_Empty")
+    private String cmdTimingsEmpty;
+    @CustomKey("CMD_Timings_Header")
+    private String cmdTimingsHeader;
+    @CustomKey("CMD_Timings_Entry")
+    private String cmdTimingsEntry;
+    @CustomKey("CMD_Timings_More")
+    private String cmdTimingsMore;
 
 
     @Comment("Brew Defects")
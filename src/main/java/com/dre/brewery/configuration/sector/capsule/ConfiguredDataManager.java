@@ -47,4 +47,31 @@ public class ConfiguredDataManager extends OkaeriConfig {
     private String address;
     private String username;
     private String password;
+    @CommentSpace(0)
+    @LocalizedComment("config.storage.batchSize")
+    private int batchSize;
+    @CommentSpace(0)
+    @LocalizedComment("config.storage.barrelEvictionDelay")
+    private int barrelEvictionDelay;
+
+    /**
+     * @return The amount of objects to write per round trip, falls back to 1000 if not configured
+     */
+    public int getBatchSize() {
+        return batchSize > 0 ? batchSize : 1000;
+    }
+
+    /**
+     * @return The seconds to keep the Barrels of an unloaded chunk, falls back to 60 if not configured
+     */
+    public int getBarrelEvictionDelay() {
+        return barrelEvictionDelay > 0 ? barrelEvictionDelay : 60;
+    }
+
+    /**
+     * @return Whether Barrels are loaded and unloaded together with their chunk, turned off with -1
+     */
+    public boolean isBarrelPaging() {
+        return barrelEvictionDelay >= 0;
+    }
 }
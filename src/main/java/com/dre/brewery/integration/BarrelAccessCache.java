@@ -0,0 +1,134 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.integration;
+
+import com.dre.brewery.integration.metrics.BreweryMetrics;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers for a short while if a player may open a Barrel according to the region and claim plugins,
+ * so a Barrel that is opened again and again doesn't query the regions each time.
+ * <p>Allowed and denied access are remembered separately, denied only briefly so a player that was just trusted doesn't wait long.
+ * Where a plugin tells us that its claims or trust changed, its results are forgotten right away.
+ */
+public class BarrelAccessCache {
+
+    public enum Check {
+        WORLDGUARD,
+        GRIEFPREVENTION,
+        LANDS
+    }
+
+    private record Key(UUID player, UUID world, int x, int y, int z, Check check) {
+    }
+
+    private static final long ALLOWED_TTL = TimeUnit.SECONDS.toMillis(5);
+    private static final long DENIED_TTL = TimeUnit.SECONDS.toMillis(2);
+    // Past this size, expired entries are removed when adding
+    private static final int PURGE_SIZE = 1024;
+
+    // Time the result expires, read from the region threads as well
+    private static final Map<Key, Long> allowed = new ConcurrentHashMap<>();
+    private static final Map<Key, Long> denied = new ConcurrentHashMap<>();
+    private static final BreweryMetrics.CacheStats CACHE_STATS = BreweryMetrics.cache("barrel_access");
+
+    /**
+     * The remembered access of the player to the Barrel with this spigot, or null if it has to be checked.
+     */
+    @Nullable
+    public static Boolean get(Player player, Block spigot, Check check) {
+        Key key = key(player, spigot, check);
+        long now = System.currentTimeMillis();
+        if (isValid(allowed, key, now)) {
+            CACHE_STATS.hit();
+            return true;
+        }
+        if (isValid(denied, key, now)) {
+            CACHE_STATS.hit();
+            return false;
+        }
+        CACHE_STATS.miss();
+        return null;
+    }
+
+    public static void put(Player player, Block spigot, Check check, boolean access) {
+        Key key = key(player, spigot, check);
+        long now = System.currentTimeMillis();
+        if (access) {
+            denied.remove(key);
+            put(allowed, key, now + ALLOWED_TTL, now);
+        } else {
+            allowed.remove(key);
+            put(denied, key, now + DENIED_TTL, now);
+        }
+    }
+
+    /**
+     * Forget the results of a player, for example when they log out.
+     */
+    public static void invalidate(UUID player) {
+        allowed.keySet().removeIf(key -> key.player().equals(player));
+        denied.keySet().removeIf(key -> key.player().equals(player));
+    }
+
+    /**
+     * Forget the results of one plugin, when its claims or trust changed.
+     */
+    public static void invalidate(Check check) {
+        allowed.keySet().removeIf(key -> key.check() == check);
+        denied.keySet().removeIf(key -> key.check() == check);
+    }
+
+    public static void invalidateAll() {
+        allowed.clear();
+        denied.clear();
+    }
+
+    private static Key key(Player player, Block spigot, Check check) {
+        return new Key(player.getUniqueId(), spigot.getWorld().getUID(), spigot.getX(), spigot.getY(), spigot.getZ(), check);
+    }
+
+    private static boolean isValid(Map<Key, Long> results, Key key, long now) {
+        Long expiresAt = results.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= now) {
+            results.remove(key, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private static void put(Map<Key, Long> results, Key key, long expiresAt, long now) {
+        if (results.size() >= PURGE_SIZE) {
+            results.values().removeIf(time -> time <= now);
+        }
+        results.put(key, expiresAt);
+    }
+}
@@ -50,4 +50,16 @@ public class PlaceholderAPIHook extends Hook {
         return PlaceholderAPI.setPlaceholders(player, text);
     }
 
+    public void logout(Player player) {
+        if (this.isEnabled()) {
+            PlaceholderAPIManager.logout(player.getUniqueId());
+        }
+    }
+
+    public void invalidateAll() {
+        if (this.isEnabled()) {
+            PlaceholderAPIManager.invalidateAll();
+        }
+    }
+
 }
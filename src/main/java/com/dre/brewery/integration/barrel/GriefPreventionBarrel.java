@@ -22,6 +22,7 @@ package com.dre.brewery.integration.barrel;
 
 import com.dre.brewery.BreweryPlugin;
 import com.dre.brewery.api.events.barrel.BarrelAccessEvent;
+import com.dre.brewery.integration.BarrelAccessCache;
 import me.ryanhamshire.GriefPrevention.Claim;
 import me.ryanhamshire.GriefPrevention.ClaimPermission;
 import me.ryanhamshire.GriefPrevention.GriefPrevention;
@@ -48,15 +49,14 @@ public class GriefPreventionBarrel {
             return false;
         }
 
-        // check permissions for the claim the Barrel is in
-        Claim claim = griefPrevention.dataStore.getClaimAt(event.getSpigot().getLocation(), false, playerData.lastClaim);
-        if (claim != null) {
-            playerData.lastClaim = claim;
-            Supplier<String> supplier = claim.checkPermission(player, ClaimPermission.Inventory, null);
-            String noContainersReason = supplier != null ? supplier.get() : null;
-            if (noContainersReason != null) {
-                return false;
-            }
+        // check permissions for the claim the Barrel is in, the claim lookup is remembered for a while
+        Boolean claimAccess = BarrelAccessCache.get(player, event.getSpigot(), BarrelAccessCache.Check.GRIEFPREVENTION);
+        if (claimAccess == null) {
+            claimAccess = checkClaim(griefPrevention, playerData, event);
+            BarrelAccessCache.put(player, event.getSpigot(), BarrelAccessCache.Check.GRIEFPREVENTION, claimAccess);
+        }
+        if (!claimAccess) {
+            return false;
         }
 
         // drop any pvp protection, as the player opens a barrel
@@ -67,4 +67,15 @@ public class GriefPreventionBarrel {
         return true;
     }
 
+    private static boolean checkClaim(GriefPrevention griefPrevention, PlayerData playerData, BarrelAccessEvent event) {
+        Claim claim = griefPrevention.dataStore.getClaimAt(event.getSpigot().getLocation(), false, playerData.lastClaim);
+        if (claim != null) {
+            playerData.lastClaim = claim;
+            Supplier<String> supplier = claim.checkPermission(event.getPlayer(), ClaimPermission.Inventory, null);
+            String noContainersReason = supplier != null ? supplier.get() : null;
+            return noContainersReason == null;
+        }
+        return true;
+    }
+
 }
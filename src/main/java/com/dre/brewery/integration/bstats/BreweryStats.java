@@ -32,6 +32,7 @@ import com.dre.brewery.integration.bstats.Metrics.AdvancedPie;
 import com.dre.brewery.integration.bstats.Metrics.DrilldownPie;
 import com.dre.brewery.integration.bstats.Metrics.SimplePie;
 import com.dre.brewery.integration.bstats.Metrics.SingleLineChart;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import com.dre.brewery.recipe.BRecipe;
 import com.dre.brewery.utility.Logging;
 import org.bukkit.Bukkit;
@@ -52,6 +53,7 @@ public class BreweryStats {
     public int exc, good, norm, bad, terr; // Brews drunken with quality
 
     public void metricsForCreate(boolean byCmd) {
+        BreweryMetrics.BREWS_CREATED.increment();
         if (brewsCreated == Integer.MAX_VALUE) return;
         brewsCreated++;
         if (byCmd) {
@@ -61,6 +63,7 @@ public class BreweryStats {
     }
 
     public void forDrink(Brew brew) {
+        BreweryMetrics.BREWS_DRUNK.increment();
         if (brew.getQuality() >= 9) {
             exc++;
         } else if (brew.getQuality() >= 7) {
@@ -141,7 +144,7 @@ public class BreweryStats {
                 if (!config.isEnableWake()) {
                     return "disabled";
                 }
-                int wakeups = Wakeup.wakeups.size();
+                int wakeups = Wakeup.getWakeups().size();
                 if (wakeups == 0) {
                     return "0";
                 } else if (wakeups <= 5) {
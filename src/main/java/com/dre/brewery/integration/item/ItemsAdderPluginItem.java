@@ -24,23 +24,34 @@ import com.dre.brewery.integration.Hook;
 import com.dre.brewery.recipe.PluginItem;
 import dev.lone.itemsadder.api.CustomStack;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
 
 public class ItemsAdderPluginItem extends PluginItem {
     @Override
     public boolean matches(ItemStack itemStack) {
+        return matchesId(itemStack);
+    }
+
+    @Override
+    public boolean isIdentifiable() {
+        return true;
+    }
+
+    // Config ids with a namespace match the namespaced id, others the plain id
+    @NotNull
+    @Override
+    public Collection<String> identify(ItemStack itemStack) {
         if (!Hook.ITEMSADDER.isEnabled()) {
-            return false;
+            return List.of();
         }
 
         CustomStack cs = CustomStack.byItemStack(itemStack);
         if (cs == null) {
-            return false;
-        }
-
-        if (!this.getItemId().contains(":")) {
-            return cs.getId().equalsIgnoreCase(this.getItemId());
-        } else {
-            return cs.getNamespacedID().equalsIgnoreCase(this.getItemId());
+            return List.of();
         }
+        return List.of(cs.getId(), cs.getNamespacedID());
     }
 }
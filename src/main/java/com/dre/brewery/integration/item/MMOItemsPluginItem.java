@@ -25,6 +25,10 @@ import com.dre.brewery.recipe.PluginItem;
 import com.dre.brewery.utility.Logging;
 import io.lumine.mythic.lib.api.item.NBTItem;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
 
 public class MMOItemsPluginItem extends PluginItem {
 
@@ -34,15 +38,28 @@ public class MMOItemsPluginItem extends PluginItem {
 
     @Override
     public boolean matches(ItemStack item) {
-        if (!Hook.MMOITEMS.isEnabled()) return false;
+        return matchesId(item);
+    }
+
+    @Override
+    public boolean isIdentifiable() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public Collection<String> identify(ItemStack item) {
+        if (!Hook.MMOITEMS.isEnabled()) return List.of();
 
         try {
             NBTItem nbtItem = NBTItem.get(item);
-            return nbtItem.hasType() && nbtItem.getString("MMOITEMS_ITEM_ID").equalsIgnoreCase(getItemId());
+            if (nbtItem.hasType()) {
+                return List.of(nbtItem.getString("MMOITEMS_ITEM_ID"));
+            }
         } catch (Throwable e) {
             Logging.errorLog("Could not check MMOItems for Item ID", e);
             Hook.MMOITEMS.setEnabled(false);
-            return false;
         }
+        return List.of();
     }
 }
@@ -25,6 +25,10 @@ import com.dre.brewery.recipe.PluginItem;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
 
 // Nexo is written using Java 21, to not sacrifice current compatability with lower MC versions, we will not be using Nexo's API.
 // We'll be using Bukkit's PDC to check it the ItemStack is a Nexo item (which Nexo uses anyway)
@@ -34,19 +38,33 @@ public class NexoPluginItem extends PluginItem {
 
     @Override
     public boolean matches(ItemStack itemStack) {
-        if (!Hook.NEXO.isEnabled()) {
+        if (itemStack == null) {
             return false;
         }
+        return matchesId(itemStack);
+    }
 
-        if (itemStack == null || itemStack.getItemMeta() == null) {
-            return false;
+    @Override
+    public boolean isIdentifiable() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public Collection<String> identify(ItemStack itemStack) {
+        if (!Hook.NEXO.isEnabled()) {
+            return List.of();
+        }
+
+        if (itemStack.getItemMeta() == null) {
+            return List.of();
         }
 
         String itemId = itemStack.getItemMeta().getPersistentDataContainer().get(ITEM_ID, PersistentDataType.STRING);
         if (itemId == null) {
-            return false;
+            return List.of();
         }
-        return itemId.equalsIgnoreCase(this.getItemId());
+        return List.of(itemId);
     }
 
     // Nexo's internal API code for getting an item's ID:
@@ -24,18 +24,33 @@ import com.dre.brewery.integration.Hook;
 import com.dre.brewery.recipe.PluginItem;
 import io.th0rgal.oraxen.api.OraxenItems;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
 
 public class OraxenPluginItem extends PluginItem {
     @Override
     public boolean matches(ItemStack itemStack) {
+        return matchesId(itemStack);
+    }
+
+    @Override
+    public boolean isIdentifiable() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public Collection<String> identify(ItemStack itemStack) {
         if (!Hook.ORAXEN.isEnabled()) {
-            return false;
+            return List.of();
         }
 
         String itemId = OraxenItems.getIdByItem(itemStack);
         if (itemId == null) {
-            return false;
+            return List.of();
         }
-        return itemId.equalsIgnoreCase(this.getItemId());
+        return List.of(itemId);
     }
 }
\ No newline at end of file
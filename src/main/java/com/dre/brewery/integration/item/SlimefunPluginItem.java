@@ -25,6 +25,10 @@ import com.dre.brewery.recipe.PluginItem;
 import com.dre.brewery.utility.Logging;
 import io.github.thebusybiscuit.slimefun4.api.items.SlimefunItem;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
 
 public class SlimefunPluginItem extends PluginItem {
 
@@ -35,17 +39,28 @@ public class SlimefunPluginItem extends PluginItem {
 
     @Override
     public boolean matches(ItemStack item) {
-        if (!Hook.SLIMEFUN.isEnabled()) return false;
+        return matchesId(item);
+    }
+
+    @Override
+    public boolean isIdentifiable() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public Collection<String> identify(ItemStack item) {
+        if (!Hook.SLIMEFUN.isEnabled()) return List.of();
 
         try {
             SlimefunItem sfItem = SlimefunItem.getByItem(item);
             if (sfItem != null) {
-                return sfItem.getId().equalsIgnoreCase(getItemId());
+                return List.of(sfItem.getId());
             }
         } catch (Exception | LinkageError e) {
             Logging.errorLog("Could not check Slimefun for Item ID", e);
             Hook.SLIMEFUN.setEnabled(false);
         }
-        return false;
+        return List.of();
     }
 }
@@ -29,6 +29,7 @@ import com.dre.brewery.api.events.barrel.BarrelRemoveEvent;
 import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.files.Config;
 import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.BarrelAccessCache;
 import com.dre.brewery.integration.BlockLockerHook;
 import com.dre.brewery.integration.Hook;
 import com.dre.brewery.integration.WorldGuarkHook;
@@ -74,7 +75,12 @@ public class IntegrationListener implements Listener {
             Plugin plugin = hook.getPlugin();
             if (plugin != null) {
                 try {
-                    if (!hook.getWgBarrel().checkAccess(event.getPlayer(), event.getSpigot(), plugin)) {
+                    Boolean access = BarrelAccessCache.get(event.getPlayer(), event.getSpigot(), BarrelAccessCache.Check.WORLDGUARD);
+                    if (access == null) {
+                        access = hook.getWgBarrel().checkAccess(event.getPlayer(), event.getSpigot(), plugin);
+                        BarrelAccessCache.put(event.getPlayer(), event.getSpigot(), BarrelAccessCache.Check.WORLDGUARD, access);
+                    }
+                    if (!access) {
                         event.setCancelled(true);
                         lang.sendEntry(event.getPlayer(), "Error_NoBarrelAccess");
                     }
@@ -200,7 +206,12 @@ public class IntegrationListener implements Listener {
         }
 
         if (Hook.LANDS.isEnabled()) {
-            if (!LandsBarrel.checkAccess(event)) {
+            Boolean access = BarrelAccessCache.get(event.getPlayer(), event.getSpigot(), BarrelAccessCache.Check.LANDS);
+            if (access == null) {
+                access = LandsBarrel.checkAccess(event);
+                BarrelAccessCache.put(event.getPlayer(), event.getSpigot(), BarrelAccessCache.Check.LANDS, access);
+            }
+            if (!access) {
                 lang.sendEntry(event.getPlayer(), "Error_NoBarrelAccess");
                 event.setCancelled(true);
                 return;
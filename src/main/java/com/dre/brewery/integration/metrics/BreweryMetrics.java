@@ -0,0 +1,143 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.integration.metrics;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms served by the {@link MetricsExporter}.
+ * <p>Counters only ever increase, rates like brews per minute are taken by the scraper.
+ * Histograms only measure while the exporter is running.
+ */
+public final class BreweryMetrics {
+
+    public static final LongAdder BREWS_CREATED = new LongAdder();
+    public static final LongAdder BREWS_AGED = new LongAdder();
+    public static final LongAdder BREWS_DRUNK = new LongAdder();
+    public static final LongAdder BREW_DECODES = new LongAdder();
+    public static final LongAdder STORAGE_BYTES_WRITTEN = new LongAdder();
+
+    // Seconds, from a cheap recipe match up to a long lookup in a huge recipe list
+    public static final Histogram RECIPE_LATENCY = new Histogram(0.00001, 0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05);
+    // Seconds, autosaves are spread over many ticks
+    public static final Histogram AUTOSAVE_DURATION = new Histogram(0.1, 0.5, 1, 2.5, 5, 10, 30, 60, 120);
+
+    private static final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+    static volatile boolean enabled;
+
+    private BreweryMetrics() {
+    }
+
+    /**
+     * Get or create the hit and miss counters of a cache.
+     */
+    public static CacheStats cache(String name) {
+        return caches.computeIfAbsent(name, ignored -> new CacheStats());
+    }
+
+    static Map<String, CacheStats> getCaches() {
+        return caches;
+    }
+
+    @Getter
+    public static final class CacheStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        public void hit() {
+            hits.increment();
+        }
+
+        public void miss() {
+            misses.increment();
+        }
+    }
+
+    public static final class Histogram {
+        @Getter
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram(double... bounds) {
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length];
+            for (int i = 0; i < bounds.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * @return The start time to pass to {@link #stop(long)}, 0 if the exporter isn't running
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        public void stop(long start) {
+            if (start != 0) {
+                observeNanos(System.nanoTime() - start);
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            if (!enabled) {
+                return;
+            }
+            double seconds = nanos / 1_000_000_000.0;
+            for (int i = 0; i < bounds.length; i++) {
+                if (seconds <= bounds[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sumNanos.add(nanos);
+        }
+
+        /**
+         * @return Observations up to each bound, cumulative like the text format expects
+         */
+        long[] cumulativeCounts() {
+            long[] counts = new long[bounds.length];
+            long total = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                total += buckets[i].sum();
+                counts[i] = total;
+            }
+            return counts;
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double getSumSeconds() {
+            return sumNanos.sum() / 1_000_000_000.0;
+        }
+    }
+}
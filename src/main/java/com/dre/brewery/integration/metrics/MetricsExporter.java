@@ -0,0 +1,162 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.integration.metrics;
+
+import com.dre.brewery.BCauldron;
+import com.dre.brewery.BDistiller;
+import com.dre.brewery.BPlayer;
+import com.dre.brewery.Barrel;
+import com.dre.brewery.utility.Logging;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves {@link BreweryMetrics} and a few counts in the Prometheus text format on localhost:[port]/metrics.
+ */
+public class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsExporter(int port) {
+        this.port = port;
+    }
+
+    public void start() {
+        try {
+            // Only reachable from this machine, the metrics are not meant to be public
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            Logging.errorLog("Failed to start the metrics endpoint on port " + port + "!", e);
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BreweryX-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        BreweryMetrics.enabled = true;
+        Logging.log("Serving metrics on &6http://localhost:" + port + "/metrics");
+    }
+
+    public void stop() {
+        BreweryMetrics.enabled = false;
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        gauge(out, "brewery_barrels", "Barrels loaded in memory", Barrel.countBarrels());
+        gauge(out, "brewery_cauldrons", "Cauldrons currently cooking", BCauldron.bcauldrons.size());
+        gauge(out, "brewery_distillers", "Brewing stands currently distilling", BDistiller.numTrackedDistillers());
+        gauge(out, "brewery_drunk_players", "Players with alcohol in their blood", BPlayer.numDrunkPlayers());
+
+        counter(out, "brewery_brews_created_total", "Brews created by brewing or commands", BreweryMetrics.BREWS_CREATED);
+        counter(out, "brewery_brews_aged_total", "Brews aged in barrels", BreweryMetrics.BREWS_AGED);
+        counter(out, "brewery_brews_drunk_total", "Brews drunk by players", BreweryMetrics.BREWS_DRUNK);
+        counter(out, "brewery_brew_decodes_total", "Brews decoded from item data", BreweryMetrics.BREW_DECODES);
+        counter(out, "brewery_storage_written_bytes_total", "Bytes of serialized data written to storage, not counted for MongoDB", BreweryMetrics.STORAGE_BYTES_WRITTEN);
+
+        Map<String, BreweryMetrics.CacheStats> caches = BreweryMetrics.getCaches();
+        if (!caches.isEmpty()) {
+            header(out, "brewery_cache_requests_total", "Cache lookups by result", "counter");
+            caches.forEach((name, stats) -> {
+                out.append("brewery_cache_requests_total{cache=\"").append(name).append("\",result=\"hit\"} ").append(stats.getHits().sum()).append('\n');
+                out.append("brewery_cache_requests_total{cache=\"").append(name).append("\",result=\"miss\"} ").append(stats.getMisses().sum()).append('\n');
+            });
+        }
+
+        histogram(out, "brewery_recipe_evaluation_seconds", "Time to find the best recipe for ingredients", BreweryMetrics.RECIPE_LATENCY);
+        histogram(out, "brewery_autosave_duration_seconds", "Time from the start to the end of an autosave", BreweryMetrics.AUTOSAVE_DURATION);
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, LongAdder value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value.sum()).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, BreweryMetrics.Histogram histogram) {
+        header(out, name, help, "histogram");
+        double[] bounds = histogram.getBounds();
+        long[] counts = histogram.cumulativeCounts();
+        long count = histogram.getCount();
+        for (int i = 0; i < bounds.length; i++) {
+            out.append(name).append("_bucket{le=\"").append(format(bounds[i])).append("\"} ").append(counts[i]).append('\n');
+        }
+        // Read after the buckets, so +Inf never lags behind them
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(Math.max(count, counts[counts.length - 1])).append('\n');
+        out.append(name).append("_sum ").append(format(histogram.getSumSeconds())).append('\n');
+        out.append(name).append("_count ").append(Math.max(count, counts[counts.length - 1])).append('\n');
+    }
+
+    private static String format(double value) {
+        return Double.toString(value);
+    }
+}
@@ -22,22 +22,49 @@ package com.dre.brewery.integration.papi;
 
 import com.dre.brewery.BPlayer;
 import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import com.dre.brewery.integration.papi.placeholders.DrunkennessBarsPlaceholder;
 import com.dre.brewery.integration.papi.placeholders.DrunkennessPlaceholder;
 import com.dre.brewery.integration.papi.placeholders.QualityPlaceholder;
 import com.dre.brewery.integration.papi.placeholders.QualityStarsPlaceholder;
-import com.dre.brewery.utility.BUtil;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The placeholders only depend on the drunkenness and quality of a player, so what they return is cached per player
+ * until {@link BPlayer#getStateVersion()} changes. The params are only parsed the first time they're requested.
+ */
 public class PlaceholderAPIManager extends PlaceholderExpansion {
 
+    /**
+     * The placeholder and arguments of a params string.
+     */
+    private record CompiledParams(Placeholder placeholder, String[] args) {
+    }
+
+    /**
+     * What the placeholders returned for a player, while their state has the given version.
+     */
+    private record Rendered(BPlayer bPlayer, long version, Map<String, Optional<String>> values) {
+    }
+
     private static final BreweryPlugin plugin = BreweryPlugin.getInstance();
+    // Params come from the configs of other plugins, there shouldn't be more than a few of them
+    private static final int MAX_COMPILED_PARAMS = 256;
     private static final Map<String, Placeholder> placeholders = new HashMap<>();
+    private static final Map<String, Optional<CompiledParams>> compiledParams = new ConcurrentHashMap<>();
+    private static final Map<UUID, Rendered> rendered = new ConcurrentHashMap<>();
+    // Players that aren't drunk all look the same
+    private static final BPlayer sober = new BPlayer(new UUID(0, 0));
+    private static final Map<String, Optional<String>> soberValues = new ConcurrentHashMap<>();
+    private static final BreweryMetrics.CacheStats CACHE_STATS = BreweryMetrics.cache("placeholder");
 
     public PlaceholderAPIManager() {
         placeholders.put("drunkenness", new DrunkennessPlaceholder());
@@ -68,15 +95,65 @@ public class PlaceholderAPIManager extends PlaceholderExpansion {
 
     @Override
     public String onRequest(OfflinePlayer player, @NotNull String params) {
+        Optional<CompiledParams> compiled = compiledParams.get(params);
+        if (compiled == null) {
+            compiled = compile(params);
+            if (compiledParams.size() < MAX_COMPILED_PARAMS) {
+                compiledParams.put(params, compiled);
+            }
+        }
+        if (compiled.isEmpty()) {
+            return null;
+        }
+        CompiledParams request = compiled.get();
+
         BPlayer bPlayer = BPlayer.get(player);
-        if (bPlayer == null) bPlayer = new BPlayer(player.getUniqueId());
+        Map<String, Optional<String>> values;
+        if (bPlayer == null) {
+            rendered.remove(player.getUniqueId());
+            bPlayer = sober;
+            values = soberValues;
+        } else {
+            Rendered last = rendered.get(player.getUniqueId());
+            long version = bPlayer.getStateVersion();
+            if (last == null || last.bPlayer() != bPlayer || last.version() != version) {
+                last = new Rendered(bPlayer, version, new ConcurrentHashMap<>());
+                rendered.put(player.getUniqueId(), last);
+            }
+            values = last.values();
+        }
 
-        String[] args = params.split("_");
+        Optional<String> value = values.get(params);
+        if (value != null) {
+            CACHE_STATS.hit();
+        } else {
+            CACHE_STATS.miss();
+            value = Optional.ofNullable(request.placeholder().onReceivedRequest(plugin, player, bPlayer, request.args()));
+            if (values.size() < MAX_COMPILED_PARAMS) {
+                values.put(params, value);
+            }
+        }
+        return value.orElse(null);
+    }
 
+    private static Optional<CompiledParams> compile(String params) {
+        String[] args = params.split("_");
         Placeholder placeholder = placeholders.get(args[0].toLowerCase());
-        if (placeholder != null) {
-            return placeholder.onReceivedRequest(plugin, player, bPlayer, args);
-        }
-        return null;
+        return placeholder != null ? Optional.of(new CompiledParams(placeholder, args)) : Optional.empty();
+    }
+
+    /**
+     * Forget the cached placeholders of a player that went offline.
+     */
+    public static void logout(UUID uuid) {
+        rendered.remove(uuid);
+    }
+
+    /**
+     * Forget all rendered values, i.e. after a reload changed how they look.
+     */
+    public static void invalidateAll() {
+        rendered.clear();
+        soberValues.clear();
     }
 }
@@ -30,12 +30,15 @@ import com.dre.brewery.integration.barrel.BlockLockerBarrel;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.MinecraftVersion;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
 
+import java.util.List;
+
 public class BlockListener implements Listener {
 
     private static final MinecraftVersion VERSION = BreweryPlugin.getMCVersion();
@@ -100,28 +103,76 @@ public class BlockListener implements Listener {
     public void onBlockBurn(BlockBurnEvent event) {
         if (!BUtil.blockDestroy(event.getBlock(), null, BarrelDestroyEvent.Reason.BURNED)) {
             event.setCancelled(true);
+            return;
+        }
+        Barrel.blockChanged(event.getBlock());
+        Wakeup.blockChanged(event.getBlock());
+    }
+
+    //  --- Barrel structure and Wakeup caches, see Barrel#blockChanged and Wakeup#blockChanged ---
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlaced(BlockPlaceEvent event) {
+        Barrel.blockChanged(event.getBlock());
+        Wakeup.blockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBroken(BlockBreakEvent event) {
+        Barrel.blockChanged(event.getBlock());
+        Wakeup.blockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onFluidFlow(BlockFromToEvent event) {
+        Barrel.blockChanged(event.getToBlock());
+        Wakeup.blockChanged(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExploded(BlockExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            Barrel.blockChanged(block);
+            Wakeup.blockChanged(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetracted(BlockPistonRetractEvent event) {
+        pistonMoved(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtended(BlockPistonExtendEvent event) {
+        pistonMoved(event.getBlocks(), event.getDirection());
+    }
+
+    private void pistonMoved(List<Block> blocks, BlockFace direction) {
+        for (Block block : blocks) {
+            Barrel.blockChanged(block);
+            Wakeup.blockChanged(block);
+            Barrel.blockChanged(block.getRelative(direction));
+            Wakeup.blockChanged(block.getRelative(direction));
         }
     }
 
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        if (event.blockList().isEmpty()) return;
+        BUtil.blocksDestroy(event.getBlock().getWorld(), event.blockList(), null, BarrelDestroyEvent.Reason.EXPLODED);
+    }
+
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onPistonRetract(BlockPistonRetractEvent event) {
-        if (event.isSticky()) {
-            for (Block block : event.getBlocks()) {
-                if (Barrel.get(block) != null) {
-                    event.setCancelled(true);
-                    return;
-                }
-            }
+        if (event.isSticky() && !Barrel.getAffected(event.getBlock().getWorld(), event.getBlocks()).isEmpty()) {
+            event.setCancelled(true);
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onPistonExtend(BlockPistonExtendEvent event) {
-        for (Block block : event.getBlocks()) {
-            if (Barrel.get(block) != null) {
-                event.setCancelled(true);
-                return;
-            }
+        if (!Barrel.getAffected(event.getBlock().getWorld(), event.getBlocks()).isEmpty()) {
+            event.setCancelled(true);
         }
     }
 }
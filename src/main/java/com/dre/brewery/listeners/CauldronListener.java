@@ -23,7 +23,6 @@ package com.dre.brewery.listeners;
 import com.dre.brewery.BCauldron;
 import com.dre.brewery.utility.MaterialUtil;
 import org.bukkit.Material;
-import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.data.Levelled;
 import org.bukkit.event.EventHandler;
@@ -75,11 +74,7 @@ public class CauldronListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPistonExtend(BlockPistonExtendEvent event) {
-        for (Block block : event.getBlocks()) {
-            if (BCauldron.bcauldrons.containsKey(block)) {
-                BCauldron.remove(block);
-            }
-        }
+        BCauldron.removeAll(event.getBlocks());
     }
 
     @SuppressWarnings("deprecation")
@@ -0,0 +1,65 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.listeners;
+
+import com.dre.brewery.Barrel;
+import com.dre.brewery.BarrelVerifier;
+import com.dre.brewery.storage.BarrelPager;
+import com.dre.brewery.utility.BUtil;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Verifies the Barrels of loading chunks, and pages Barrels in and out of memory with their chunk when paging is enabled.
+ */
+public class ChunkListener implements Listener {
+
+    private final @Nullable BarrelPager pager;
+
+    public ChunkListener(@Nullable BarrelPager pager) {
+        this.pager = pager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        if (pager != null) {
+            // Paged in Barrels are verified once they're registered
+            pager.onChunkLoad(chunk, event.isNewChunk());
+        }
+        if (!event.isNewChunk() && !Barrel.getBarrelsInChunk(chunk.getWorld().getUID(), BUtil.getChunkKey(chunk.getX(), chunk.getZ())).isEmpty()) {
+            // Could have been edited while it was unloaded
+            BarrelVerifier.verifyChunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        if (pager != null) {
+            pager.onChunkUnload(event.getChunk());
+        }
+    }
+}
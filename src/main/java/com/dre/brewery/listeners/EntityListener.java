@@ -20,10 +20,10 @@
 
 package com.dre.brewery.listeners;
 
-import com.dre.brewery.BCauldron;
 import com.dre.brewery.Barrel;
 import com.dre.brewery.Brew;
 import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.Wakeup;
 import com.dre.brewery.api.events.barrel.BarrelDestroyEvent;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.MinecraftVersion;
@@ -41,10 +41,6 @@ import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.ItemDespawnEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.ListIterator;
-
 public class EntityListener implements Listener {
 
     // Legacy Brew removal
@@ -76,43 +72,25 @@ public class EntityListener implements Listener {
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onExplode(EntityExplodeEvent event) {
         if (causedByWindCharge(event)) return; // Fixes barrels being destroyed when hit by a WindCharge
-        ListIterator<Block> iter = event.blockList().listIterator();
-        if (!iter.hasNext()) return;
-        List<BarrelDestroyEvent> breakEvents = new ArrayList<>(6);
-        Block block;
-        blocks:
-        while (iter.hasNext()) {
-            block = iter.next();
-            BCauldron cauldron = BCauldron.get(block);
-            if (cauldron != null) {
-                BUtil.blockDestroy(block, null, BarrelDestroyEvent.Reason.EXPLODED);
-                continue;
-            }
-            if (!breakEvents.isEmpty()) {
-                for (BarrelDestroyEvent breakEvent : breakEvents) {
-                    if (breakEvent.getBarrel().hasBlock(block)) {
-                        if (breakEvent.isCancelled()) {
-                            iter.remove();
-                        }
-                        continue blocks;
-                    }
-                }
-            }
-            Barrel barrel = Barrel.get(block);
-            if (barrel != null) {
-                BarrelDestroyEvent breakEvent = new BarrelDestroyEvent(barrel, block, BarrelDestroyEvent.Reason.EXPLODED, null);
-                // Listened to by LWCBarrel (IntegrationListener)
-                BreweryPlugin.getInstance().getServer().getPluginManager().callEvent(breakEvent);
-                breakEvents.add(breakEvent);
-                if (breakEvent.isCancelled()) {
-                    iter.remove();
-                } else {
-                    barrel.remove(block, null, true);
-                }
-            }
+        if (event.blockList().isEmpty()) return;
+        BUtil.blocksDestroy(event.getLocation().getWorld(), event.blockList(), null, BarrelDestroyEvent.Reason.EXPLODED);
+    }
+
+    // Clear the cached structure of Barrels and Wakeups next to blocks that are gone now, see Barrel#blockChanged
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onExploded(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            Barrel.blockChanged(block);
+            Wakeup.blockChanged(block);
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockChanged(EntityChangeBlockEvent event) {
+        Barrel.blockChanged(event.getBlock());
+        Wakeup.blockChanged(event.getBlock());
+    }
+
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockChange(EntityChangeBlockEvent event) {
         if (event.getBlock().getType().name().toUpperCase().contains("CUT_COPPER")) return;
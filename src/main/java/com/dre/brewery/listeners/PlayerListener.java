@@ -32,6 +32,8 @@ import com.dre.brewery.Wakeup;
 import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.files.Config;
 import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.BarrelAccessCache;
+import com.dre.brewery.integration.PlaceholderAPIHook;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.MaterialUtil;
 import com.dre.brewery.utility.MinecraftVersion;
@@ -48,6 +50,7 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
@@ -314,6 +317,7 @@ public class PlayerListener implements Listener {
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
+        PermissionUtil.invalidate(event.getPlayer().getUniqueId());
         BPlayer bplayer = BPlayer.get(event.getPlayer());
         if (bplayer != null) {
             bplayer.join(event.getPlayer());
@@ -328,6 +332,8 @@ public class PlayerListener implements Listener {
             bplayer.disconnecting();
         }
         PermissionUtil.logout(event.getPlayer());
+        PlaceholderAPIHook.PLACEHOLDERAPI.logout(event.getPlayer());
+        BarrelAccessCache.invalidate(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
@@ -337,5 +343,13 @@ public class PlayerListener implements Listener {
             bplayer.disconnecting();
         }
         PermissionUtil.logout(event.getPlayer());
+        PlaceholderAPIHook.PLACEHOLDERAPI.logout(event.getPlayer());
+        BarrelAccessCache.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    // Permission plugins can grant permissions per world
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        PermissionUtil.invalidate(event.getPlayer().getUniqueId());
     }
 }
@@ -20,27 +20,24 @@
 
 package com.dre.brewery.listeners;
 
-import com.dre.brewery.Barrel;
-import com.dre.brewery.storage.DataManager;
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.PukeEngine;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.world.WorldUnloadEvent;
 
-public record WorldListener(DataManager dataManager) implements Listener {
+public class WorldListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onWorldLoad(WorldLoadEvent event) {
-        dataManager.getAllBarrels()
-            .thenAcceptAsync(barrels -> barrels.stream()
-                .filter(barrel -> barrel.getSpigot().getWorld().equals(event.getWorld()))
-                .forEach(Barrel::registerBarrel)
-            );
+        BreweryPlugin.getDataManager().loadWorld(event.getWorld());
     }
 
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onWorldLoad(WorldUnloadEvent event) {
-        Barrel.onUnload(event.getWorld());
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        BreweryPlugin.getDataManager().unloadWorld(event.getWorld());
+        PukeEngine.onUnload(event.getWorld());
     }
 }
@@ -36,6 +36,7 @@ import com.dre.brewery.utility.Logging;
 import com.dre.brewery.utility.MaterialUtil;
 import com.dre.brewery.utility.StringParser;
 import com.dre.brewery.utility.Tuple;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -69,6 +70,9 @@ public class BRecipe implements Cloneable {
 
     // info
     private String[] name;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient DisplayNames displayNames; // name as shown on potions, colored once
     private boolean saveInData; // If this recipe should be saved in data and loaded again when the server restarts. Applicable to non-config recipes
     private String id; // ID that might be given by the config
 
@@ -677,16 +681,43 @@ public class BRecipe implements Cloneable {
      * name that fits the quality
      */
     public String getName(int quality) {
-        if (name.length > 2) {
+        return name[nameIndex(name, quality)];
+    }
+
+    /**
+     * name that fits the quality, colored and in white unless colored otherwise, as shown on potions
+     */
+    public String getDisplayName(int quality) {
+        DisplayNames display = displayNames;
+        if (display == null || display.names() != name) {
+            // Names changed, or a clone got its own copy of them
+            display = DisplayNames.of(name);
+            displayNames = display;
+        }
+        return display.colored()[nameIndex(display.names(), quality)];
+    }
+
+    private static int nameIndex(String[] names, int quality) {
+        if (names.length > 2) {
             if (quality <= 3) {
-                return name[0];
+                return 0;
             } else if (quality <= 7) {
-                return name[1];
+                return 1;
             } else {
-                return name[2];
+                return 2;
             }
         } else {
-            return name[0];
+            return 0;
+        }
+    }
+
+    private record DisplayNames(String[] names, String[] colored) {
+        private static DisplayNames of(String[] names) {
+            String[] colored = new String[names.length];
+            for (int i = 0; i < names.length; i++) {
+                colored[i] = BUtil.color("&f" + names[i]);
+            }
+            return new DisplayNames(names, colored);
         }
     }
 
@@ -181,38 +181,43 @@ public class CustomItem extends RecipeItem implements Ingredient {
 
     @Override
     public boolean matches(ItemStack item) {
-        if (mat != null) {
-            if (item.getType() != mat) {
-                return false;
-            }
+        if (mat != null && item.getType() != mat) {
+            return false;
         }
         if (name == null && !hasLore()) {
             return true;
         }
-        if (!item.hasItemMeta()) {
+        return matches(ItemProbe.of(item));
+    }
+
+    @Override
+    public boolean matches(ItemProbe probe) {
+        if (mat != null && probe.getType() != mat) {
             return false;
         }
-        ItemMeta meta = item.getItemMeta();
-        assert meta != null;
         if (name != null) {
-            if (!meta.hasDisplayName() || !name.equalsIgnoreCase(meta.getDisplayName())) {
+            if (probe.getName() == null || !name.equalsIgnoreCase(probe.getName())) {
                 return false;
             }
         }
-
         if (hasLore()) {
-            if (!meta.hasLore()) {
-                return false;
-            }
-            return matchLore(meta.getLore());
+            return probe.getLore() != null && matchLore(probe.getLore(), probe.getStrippedLore());
         }
-
-        if (customModelData != 0) {
-            return meta.hasCustomModelData() && meta.getCustomModelData() == customModelData;
+        int requiredModelData = getRequiredModelData();
+        if (requiredModelData != 0) {
+            return probe.getCustomModelData() != null && probe.getCustomModelData() == requiredModelData;
         }
         return true;
     }
 
+    /**
+     * The custom model data an item needs to match this one, 0 if it isn't checked.
+     * <p>Items are only compared by custom model data if a name and no lore is set.
+     */
+    int getRequiredModelData() {
+        return name != null && !hasLore() ? customModelData : 0;
+    }
+
     /**
      * If this item has lore that matches the given lore.
      * <p>It matches if our lore is contained in the given lore consecutively, ignoring color of the given lore.
@@ -221,6 +226,11 @@ public class CustomItem extends RecipeItem implements Ingredient {
      * @return True if the given lore contains our lore consecutively
      */
     public boolean matchLore(List<String> usedLore) {
+        return matchLore(usedLore, null);
+    }
+
+    // strippedLore is the used lore without color if already known
+    private boolean matchLore(List<String> usedLore, @Nullable List<String> strippedLore) {
         if (lore == null) return true;
         int lastIndex = 0;
         boolean foundFirst = false;
@@ -231,7 +241,8 @@ public class CustomItem extends RecipeItem implements Ingredient {
                     return false;
                 }
                 String usedLine = usedLore.get(lastIndex);
-                if (line.equalsIgnoreCase(usedLine) || line.equalsIgnoreCase(ChatColor.stripColor(usedLine))) {
+                String strippedLine = strippedLore != null ? strippedLore.get(lastIndex) : ChatColor.stripColor(usedLine);
+                if (line.equalsIgnoreCase(usedLine) || line.equalsIgnoreCase(strippedLine)) {
                     // If the line is correct, we have found our first and we want all consecutive lines to also equal
                     foundFirst = true;
                 } else if (foundFirst) {
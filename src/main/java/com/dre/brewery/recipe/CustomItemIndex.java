@@ -0,0 +1,146 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.recipe;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The accepted custom items, with the CustomItems sorted by material, custom model data and name.
+ * <p>An item is only compared with the CustomItems that have its material, model data and name, or don't require them.
+ * Plugin items that can be identified are found by the ids of the item, other items are still compared one by one.
+ * <p>Rebuilt when items were added to {@link BCauldronRecipe#acceptedCustom}.
+ */
+final class CustomItemIndex {
+
+    private record Key(@Nullable Material mat, int customModelData, @Nullable String name) {
+    }
+
+    private record Ordered(PluginItem item, int order) {
+    }
+
+    private static volatile CustomItemIndex current;
+
+    private final List<RecipeItem> source;
+    private final int size;
+    // The first accepted plugin item for each plugin and id
+    private final Map<String, Map<String, Ordered>> identifiable = new HashMap<>();
+    private final List<Ordered> pluginItems = new ArrayList<>();
+    private final Map<Key, List<CustomItem>> customItems = new HashMap<>();
+    private final List<RecipeItem> others = new ArrayList<>();
+
+    private CustomItemIndex(List<RecipeItem> source) {
+        this.source = source;
+        List<RecipeItem> items = new ArrayList<>(source);
+        this.size = items.size();
+        for (int i = 0; i < items.size(); i++) {
+            RecipeItem item = items.get(i);
+            if (item instanceof PluginItem pluginItem) {
+                Ordered ordered = new Ordered(pluginItem, i);
+                if (pluginItem.isIdentifiable() && pluginItem.getPlugin() != null && pluginItem.getItemId() != null) {
+                    identifiable.computeIfAbsent(pluginItem.getPlugin(), p -> new HashMap<>())
+                        .putIfAbsent(ItemProbe.foldCase(pluginItem.getItemId()), ordered);
+                } else {
+                    pluginItems.add(ordered);
+                }
+            } else if (item instanceof CustomItem customItem) {
+                Key key = new Key(customItem.getMaterial(), customItem.getRequiredModelData(), ItemProbe.foldCase(customItem.getName()));
+                customItems.computeIfAbsent(key, k -> new ArrayList<>(1)).add(customItem);
+            } else {
+                others.add(item);
+            }
+        }
+    }
+
+    static CustomItemIndex get() {
+        List<RecipeItem> accepted = BCauldronRecipe.acceptedCustom;
+        CustomItemIndex index = current;
+        // Accepted custom items are only ever added
+        if (index == null || index.source != accepted || index.size != accepted.size()) {
+            index = new CustomItemIndex(accepted);
+            current = index;
+        }
+        return index;
+    }
+
+    /**
+     * The first accepted plugin item that matches the item, or null if none does.
+     * <p>The ids of the item are looked up once per plugin, other plugin items are matched one by one.
+     */
+    @Nullable
+    PluginItem findPluginItem(ItemStack item) {
+        Ordered found = null;
+        for (Map<String, Ordered> byId : identifiable.values()) {
+            // All items of one plugin identify items the same way
+            PluginItem any = byId.values().iterator().next().item();
+            for (String id : PluginItemIds.of(any, item)) {
+                Ordered ordered = byId.get(id);
+                if (ordered != null && (found == null || ordered.order() < found.order())) {
+                    found = ordered;
+                }
+            }
+        }
+        for (Ordered ordered : pluginItems) {
+            if (found != null && ordered.order() > found.order()) {
+                break;
+            }
+            if (ordered.item().matches(item)) {
+                return ordered.item();
+            }
+        }
+        return found != null ? found.item() : null;
+    }
+
+    /**
+     * All items besides plugin items that could match the probed item. Each item is in at most one of the lists.
+     */
+    List<List<? extends RecipeItem>> getCandidates(ItemProbe probe) {
+        List<List<? extends RecipeItem>> candidates = new ArrayList<>(9);
+        if (!others.isEmpty()) {
+            candidates.add(others);
+        }
+        if (customItems.isEmpty()) {
+            return candidates;
+        }
+        Material[] mats = { probe.getType(), null };
+        Integer modelData = probe.getCustomModelData();
+        int[] modelDatas = modelData != null && modelData != 0 ? new int[] { modelData, 0 } : new int[] { 0 };
+        String name = ItemProbe.foldCase(probe.getName());
+        String[] names = name != null ? new String[] { name, null } : new String[] { null };
+        for (Material mat : mats) {
+            for (int data : modelDatas) {
+                for (String n : names) {
+                    List<CustomItem> bucket = customItems.get(new Key(mat, data, n));
+                    if (bucket != null) {
+                        candidates.add(bucket);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+}
@@ -193,11 +193,18 @@ public class CustomMatchAnyItem extends RecipeItem {
     }
 
     public String getLoreMatch(List<String> usedLore) {
+        return getLoreMatch(usedLore, null);
+    }
+
+    // strippedLore is the used lore without color if already known
+    private String getLoreMatch(List<String> usedLore, @Nullable List<String> strippedLore) {
         if (!hasLore()) return null;
 
         for (String line : this.lore) {
-            for (String usedLine : usedLore) {
-                if (line.equalsIgnoreCase(usedLine) || line.equalsIgnoreCase(ChatColor.stripColor(usedLine))) {
+            for (int i = 0; i < usedLore.size(); i++) {
+                String usedLine = usedLore.get(i);
+                String strippedLine = strippedLore != null ? strippedLore.get(i) : ChatColor.stripColor(usedLine);
+                if (line.equalsIgnoreCase(usedLine) || line.equalsIgnoreCase(strippedLine)) {
                     return line;
                 }
             }
@@ -244,6 +251,20 @@ public class CustomMatchAnyItem extends RecipeItem {
         return getCustomModelDataMatch(item) != null;
     }
 
+    @Override
+    public boolean matches(ItemProbe probe) {
+        if (hasMaterials() && materials.contains(probe.getType())) {
+            return true;
+        }
+        if (probe.getName() != null && getNameMatch(probe.getName()) != null) {
+            return true;
+        }
+        if (probe.getLore() != null && getLoreMatch(probe.getLore(), probe.getStrippedLore()) != null) {
+            return true;
+        }
+        return probe.getCustomModelData() != null && getCustomModelDataMatch(probe.getCustomModelData()) != null;
+    }
+
     @Override
     public boolean matches(Ingredient ingredient) {
         // Ingredient can not be CustomMatchAnyItem, so we don't need to/can't check for similarity.
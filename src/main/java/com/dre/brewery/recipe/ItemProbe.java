@@ -0,0 +1,99 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.recipe;
+
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.utility.MinecraftVersion;
+import lombok.Getter;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The info of an ItemStack that custom items are matched against, read from it once.
+ * <p>Getting the ItemMeta copies it, and lore is compared with and without color,
+ * so this is done once per item instead of once per custom item it's compared with.
+ */
+@Getter
+public final class ItemProbe {
+
+    private static final MinecraftVersion VERSION = BreweryPlugin.getMCVersion();
+
+    private final ItemStack item;
+    private final Material type;
+    @Nullable
+    private final String name;
+    @Nullable
+    private final List<String> lore;
+    @Nullable
+    private final List<String> strippedLore; // The lore without color, line by line
+    @Nullable
+    private final Integer customModelData;
+
+    private ItemProbe(ItemStack item, String name, List<String> lore, Integer customModelData) {
+        this.item = item;
+        this.type = item.getType();
+        this.name = name;
+        this.lore = lore;
+        this.customModelData = customModelData;
+        if (lore != null) {
+            strippedLore = new ArrayList<>(lore.size());
+            for (String line : lore) {
+                strippedLore.add(ChatColor.stripColor(line));
+            }
+        } else {
+            strippedLore = null;
+        }
+    }
+
+    public static ItemProbe of(ItemStack item) {
+        if (!item.hasItemMeta()) {
+            return new ItemProbe(item, null, null, null);
+        }
+        ItemMeta meta = item.getItemMeta();
+        assert meta != null;
+        return new ItemProbe(item,
+            meta.hasDisplayName() ? meta.getDisplayName() : null,
+            meta.hasLore() ? meta.getLore() : null,
+            VERSION.isOrLater(MinecraftVersion.V1_14) && meta.hasCustomModelData() ? meta.getCustomModelData() : null);
+    }
+
+    /**
+     * The name with each char in the case that {@link String#equalsIgnoreCase} compares,
+     * so names that are equal ignoring case are equal after folding.
+     */
+    @Nullable
+    public static String foldCase(@Nullable String name) {
+        if (name == null) {
+            return null;
+        }
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
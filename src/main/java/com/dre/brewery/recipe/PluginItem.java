@@ -30,6 +30,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -99,6 +100,35 @@ public abstract class PluginItem extends RecipeItem implements Ingredient {
     protected void onConstruct() {
     }
 
+    /**
+     * If this PluginItem can tell the ids of any item with {@link #identify(ItemStack)}.
+     * <p>Then the ids of an item are only looked up once for all PluginItems of the same plugin,
+     * and PluginItems are found by their id instead of calling {@link #matches(ItemStack)} on each.
+     */
+    public boolean isIdentifiable() {
+        return false;
+    }
+
+    /**
+     * The ids that the given item has in the plugin of this PluginItem, if {@link #isIdentifiable()}.
+     * <p>Has to give the same ids for all PluginItems of the same plugin, they are compared ignoring case.
+     *
+     * @param item The item to look up
+     * @return The ids of the item, or an empty collection if it is no item of the plugin
+     */
+    @NotNull
+    public Collection<String> identify(ItemStack item) {
+        return List.of();
+    }
+
+    /**
+     * Does the item have the id of this PluginItem, with the ids of the item looked up only once.
+     * <p>To use in {@link #matches(ItemStack)} by PluginItems that are {@link #isIdentifiable()}.
+     */
+    protected boolean matchesId(ItemStack item) {
+        return itemId != null && PluginItemIds.of(this, item).contains(ItemProbe.foldCase(itemId));
+    }
+
     /**
      * Does this PluginItem Match the other Ingredient.
      * <p>By default it matches exactly when they are similar, i.e. also a PluginItem with same parameters
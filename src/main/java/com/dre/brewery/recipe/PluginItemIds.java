@@ -0,0 +1,95 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.recipe;
+
+import com.dre.brewery.integration.metrics.BreweryMetrics;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers the ids that other plugins know items by, so they are only asked once per distinct item.
+ * <p>Items are told apart by their material and ItemMeta hash, the amount doesn't matter.
+ * On a hash collision the item is only used if it's similar to the remembered one.
+ */
+public final class PluginItemIds {
+
+    private record Entry(ItemStack item, Map<String, Set<String>> ids) {
+    }
+
+    private static final int CACHE_SIZE = 1024;
+    private static final Map<Integer, Entry> cache = new ConcurrentHashMap<>();
+    private static final BreweryMetrics.CacheStats CACHE_STATS = BreweryMetrics.cache("plugin_item_ids");
+
+    private PluginItemIds() {
+    }
+
+    /**
+     * The ids the given item has in the plugin of the PluginItem, case folded, or an empty set if it is no item of that plugin.
+     */
+    static Set<String> of(PluginItem pluginItem, ItemStack item) {
+        Entry entry = entry(item);
+        String plugin = Objects.requireNonNullElse(pluginItem.getPlugin(), "");
+        Set<String> ids = entry.ids().get(plugin);
+        if (ids != null) {
+            CACHE_STATS.hit();
+            return ids;
+        }
+        CACHE_STATS.miss();
+        return entry.ids().computeIfAbsent(plugin, p -> fold(pluginItem.identify(item)));
+    }
+
+    /**
+     * Forget all ids, for example when the plugins they came from have been reloaded.
+     */
+    public static void invalidateAll() {
+        cache.clear();
+    }
+
+    private static Entry entry(ItemStack item) {
+        int hash = 31 * item.getType().hashCode() + (item.hasItemMeta() ? item.getItemMeta().hashCode() : 0);
+        Entry entry = cache.get(hash);
+        if (entry != null && entry.item().isSimilar(item)) {
+            return entry;
+        }
+        if (cache.size() >= CACHE_SIZE) {
+            // Rather start over than keep track of which items are still in use
+            cache.clear();
+        }
+        ItemStack key = item.clone();
+        key.setAmount(1);
+        entry = new Entry(key, new ConcurrentHashMap<>(2));
+        cache.put(hash, entry);
+        return entry;
+    }
+
+    private static Set<String> fold(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return ids.stream().filter(Objects::nonNull).map(ItemProbe::foldCase).collect(Collectors.toUnmodifiableSet());
+    }
+}
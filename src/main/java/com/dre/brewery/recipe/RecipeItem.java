@@ -62,6 +62,17 @@ public abstract class RecipeItem implements Cloneable, DebuggableItem {
      */
     public abstract boolean matches(ItemStack item);
 
+    /**
+     * Does this RecipeItem match the probed ItemStack?
+     * <p>Same as {@link #matches(ItemStack)}, but can use the info already read from the item
+     *
+     * @param probe The info of the ItemStack for comparison
+     * @return True if the probed item matches this recipeItem
+     */
+    public boolean matches(ItemProbe probe) {
+        return matches(probe.getItem());
+    }
+
     /**
      * Does this Item match the given Ingredient?
      * <p>A RecipeItem matches an Ingredient if all required info of the RecipeItem are fulfilled on the Ingredient
@@ -161,28 +172,25 @@ public abstract class RecipeItem implements Cloneable, DebuggableItem {
     @Nullable
     @Contract("_, true -> !null")
     public static RecipeItem getMatchingRecipeItem(ItemStack item, boolean acceptAll) {
+        CustomItemIndex index = CustomItemIndex.get();
+        PluginItem pluginItem = index.findPluginItem(item);
+        if (pluginItem != null) {
+            // If we match a plugin item, that's a very strict match, so immediately return it
+            return pluginItem;
+        }
         RecipeItem rItem = null;
-        boolean multiMatch = false;
-        for (RecipeItem ri : BCauldronRecipe.acceptedCustom) {
-            // If we already have a multi match, only check if there is a PluginItem that matches more strictly
-            if (!multiMatch || (ri instanceof PluginItem)) {
-                if (ri.matches(item)) {
-                    // If we match a plugin item, that's a very strict match, so immediately return it
-                    if (ri instanceof PluginItem) {
-                        return ri;
-                    }
-                    if (rItem == null) {
-                        rItem = ri;
-                    } else {
-                        multiMatch = true;
+        ItemProbe probe = ItemProbe.of(item);
+        for (List<? extends RecipeItem> candidates : index.getCandidates(probe)) {
+            for (RecipeItem ri : candidates) {
+                if (ri.matches(probe)) {
+                    if (rItem != null) {
+                        // We have multiple Custom Items matching, so just store all item info
+                        return new CustomItem(item);
                     }
+                    rItem = ri;
                 }
             }
         }
-        if (multiMatch) {
-            // We have multiple Custom Items matching, so just store all item info
-            return new CustomItem(item);
-        }
         if (rItem == null && (acceptAll || BCauldronRecipe.acceptedSimple.contains(item.getType()))) {
             // No Custom item found
             if (VERSION.isOrLater(MinecraftVersion.V1_13)) {
@@ -480,7 +480,7 @@ public class BData {
                 .thenAcceptAsync(barrels -> barrels.forEach(Barrel::registerBarrel));
         }
         if (!initWakeups.isEmpty()) {
-            Wakeup.wakeups.addAll(initWakeups);
+            Wakeup.addAll(initWakeups);
         }
 
     }
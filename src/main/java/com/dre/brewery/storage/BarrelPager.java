@@ -0,0 +1,255 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.storage;
+
+import com.dre.brewery.Barrel;
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.storage.records.SerializableBarrel;
+import com.dre.brewery.utility.BUtil;
+import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.Timings;
+import com.dre.brewery.utility.jfr.StorageEvent;
+import com.github.Anon8281.universalScheduler.scheduling.tasks.MyScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps only the Barrels of loaded chunks in memory.
+ * <p>When a chunk unloads, its Barrels are saved and released after a grace period, so chunks that are
+ * only briefly unloaded don't cause any storage traffic. When a chunk loads, its Barrels are read back
+ * with a chunk-indexed query. Barrels keep ageing while paged out, see {@link Barrel#getAgingEpoch()}.
+ * <p>All storage access of the pager runs on a single thread, so a Barrel is always written
+ * before it can be read again and deletes can't be overtaken by older saves.
+ */
+public class BarrelPager {
+
+    private record ChunkRef(UUID world, long key) {
+        Location location(World world) {
+            return new Location(world, BUtil.getChunkX(key) << 4, 0, BUtil.getChunkZ(key) << 4);
+        }
+    }
+
+    private static final Timings.Timing LOAD_TIMING = Timings.of("storage.pager.load");
+    private static final Timings.Timing SAVE_TIMING = Timings.of("storage.pager.save");
+
+    private final long evictionDelayMillis;
+    private final ExecutorService io;
+    // Chunks that have been unloaded, with the time at which their Barrels are paged out
+    private final Map<ChunkRef, Long> pendingEvictions = new ConcurrentHashMap<>();
+    private final Queue<ChunkRef> pendingLoads = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean loadQueued = new AtomicBoolean();
+    private MyScheduledTask evictionTask;
+
+    public BarrelPager(int evictionDelaySeconds) {
+        this.evictionDelayMillis = evictionDelaySeconds * 1000L;
+        this.io = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BreweryX-Pager");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        evictionTask = BreweryPlugin.getScheduler().runTaskTimerAsynchronously(this::evictExpired, 20L, 20L);
+    }
+
+    /**
+     * Stop paging, waits for all queued storage access to finish.
+     */
+    public void shutdown() {
+        if (evictionTask != null) {
+            evictionTask.cancel();
+        }
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(30, TimeUnit.SECONDS)) {
+                Logging.warningLog("Timed out while waiting for barrels to be written to storage!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    public void onChunkLoad(Chunk chunk, boolean newChunk) {
+        ChunkRef ref = new ChunkRef(chunk.getWorld().getUID(), BUtil.getChunkKey(chunk.getX(), chunk.getZ()));
+        if (pendingEvictions.remove(ref) != null || newChunk) {
+            // Its Barrels are still in memory, or it can't have any
+            return;
+        }
+        if (!Barrel.getBarrelsInChunk(ref.world(), ref.key()).isEmpty()) {
+            return;
+        }
+        pendingLoads.add(ref);
+        if (loadQueued.compareAndSet(false, true)) {
+            io.execute(this::loadPending);
+        }
+    }
+
+    public void onChunkUnload(Chunk chunk) {
+        ChunkRef ref = new ChunkRef(chunk.getWorld().getUID(), BUtil.getChunkKey(chunk.getX(), chunk.getZ()));
+        if (!Barrel.getBarrelsInChunk(ref.world(), ref.key()).isEmpty()) {
+            pendingEvictions.put(ref, System.currentTimeMillis() + evictionDelayMillis);
+        }
+    }
+
+    /**
+     * The world is saved and released as a whole, forget about its chunks.
+     */
+    public void onWorldUnload(World world) {
+        UUID worldUuid = world.getUID();
+        pendingEvictions.keySet().removeIf(ref -> ref.world().equals(worldUuid));
+    }
+
+    /**
+     * Save Barrels without touching the stored Barrels that are paged out.
+     *
+     * @return Future that completes once the Barrels have been written
+     */
+    public CompletableFuture<Void> save(Collection<Barrel> barrels) {
+        return CompletableFuture.runAsync(() -> {
+            List<SerializableBarrel> serializableBarrels = barrels.stream()
+                .filter(barrel -> barrel.getBounds() != null)
+                .map(SerializableBarrel::new)
+                .toList();
+            BreweryPlugin.getDataManager().saveBarrels(serializableBarrels);
+        }, io);
+    }
+
+    /**
+     * Executor of the pager's storage thread, for other writes that have to stay in order with it.
+     */
+    public Executor getWriter() {
+        return io;
+    }
+
+    /**
+     * Remove a Barrel from storage, in order with the pending saves.
+     */
+    public void delete(UUID id) {
+        io.execute(() -> BreweryPlugin.getDataManager().deleteBarrel(id));
+    }
+
+
+    // Runs async every second
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<ChunkRef, Long>> iterator = pendingEvictions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ChunkRef, Long> entry = iterator.next();
+            if (entry.getValue() > now) {
+                continue;
+            }
+            iterator.remove();
+            ChunkRef ref = entry.getKey();
+            World world = Bukkit.getWorld(ref.world());
+            if (world != null) {
+                BreweryPlugin.getScheduler().runTask(ref.location(world), () -> evict(world, ref));
+            }
+        }
+    }
+
+    // Runs on the region thread of the chunk
+    private void evict(World world, ChunkRef ref) {
+        if (world.isChunkLoaded(BUtil.getChunkX(ref.key()), BUtil.getChunkZ(ref.key()))) {
+            // Loaded again in the meantime
+            return;
+        }
+        List<Barrel> barrels = Barrel.getBarrelsInChunk(ref.world(), ref.key());
+        for (Barrel barrel : barrels) {
+            if (barrel.getBounds() == null || !barrel.getInventory().getViewers().isEmpty()) {
+                // Still in use, try again later. A chunk is always paged out as a whole
+                pendingEvictions.putIfAbsent(ref, System.currentTimeMillis() + evictionDelayMillis);
+                return;
+            }
+        }
+
+        List<SerializableBarrel> evicted = new ArrayList<>(barrels.size());
+        for (Barrel barrel : barrels) {
+            evicted.add(new SerializableBarrel(barrel));
+            Barrel.unregisterBarrel(barrel);
+        }
+        if (!evicted.isEmpty()) {
+            io.execute(() -> {
+                long timingStart = SAVE_TIMING.start();
+                StorageEvent event = new StorageEvent();
+                event.begin();
+                BreweryPlugin.getDataManager().saveBarrels(evicted);
+                event.commit("page out", "barrels", evicted.size());
+                SAVE_TIMING.stop(timingStart);
+                Logging.debugLog("Paged out " + evicted.size() + " barrels of chunk " + BUtil.getChunkX(ref.key()) + "/" + BUtil.getChunkZ(ref.key()));
+            });
+        }
+    }
+
+    // Runs on the io thread
+    private void loadPending() {
+        loadQueued.set(false);
+        Map<UUID, Set<Long>> chunksByWorld = new HashMap<>();
+        ChunkRef ref;
+        while ((ref = pendingLoads.poll()) != null) {
+            chunksByWorld.computeIfAbsent(ref.world(), ignored -> new HashSet<>()).add(ref.key());
+        }
+
+        for (Map.Entry<UUID, Set<Long>> entry : chunksByWorld.entrySet()) {
+            long timingStart = LOAD_TIMING.start();
+            StorageEvent event = new StorageEvent();
+            event.begin();
+            List<StreamingLoader.DecodedBarrel> decoded = new ArrayList<>();
+            try {
+                BreweryPlugin.getDataManager().streamBarrelsInChunks(entry.getKey(), entry.getValue(), supplier -> {
+                    StreamingLoader.DecodedBarrel barrel = StreamingLoader.decodeBarrel(supplier);
+                    if (barrel != null) {
+                        decoded.add(barrel);
+                    }
+                });
+            } catch (Exception e) {
+                Logging.errorLog("Failed to load barrels of " + entry.getValue().size() + " chunks from storage!", e);
+                continue;
+            } finally {
+                event.commit("page in", "barrels", decoded.size());
+                LOAD_TIMING.stop(timingStart);
+            }
+            StreamingLoader.handOver(decoded, StreamingLoader.DecodedBarrel::spigot, StreamingLoader::registerBarrel);
+        }
+    }
+}
@@ -37,8 +37,16 @@ import com.dre.brewery.storage.impls.MySQLStorage;
 import com.dre.brewery.storage.impls.SQLiteStorage;
 import com.dre.brewery.storage.interfaces.ExternallyAutoSavable;
 import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.storage.records.BreweryMiscData;
+import com.dre.brewery.storage.records.SerializableBarrel;
+import com.dre.brewery.storage.records.SerializableCauldron;
+import com.dre.brewery.storage.records.SerializableWakeup;
+import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.Timings;
+import com.dre.brewery.utility.jfr.StorageEvent;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -47,11 +55,19 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Getter
 public abstract class DataManager {
@@ -59,8 +75,16 @@ public abstract class DataManager {
     protected static BreweryPlugin plugin = BreweryPlugin.getInstance();
     protected static long lastAutoSave = System.currentTimeMillis();
     protected static Set<ExternallyAutoSavable> autoSavabales = new HashSet<>();
+    private static final Timings.Timing SAVE_ALL_TIMING = Timings.of("storage.saveAll");
+    private static final Timings.Timing SAVE_WORLD_TIMING = Timings.of("storage.saveWorld");
 
     private final DataManagerType type;
+    // Counted by the StreamingLoader, Barrels and Cauldrons are not saved while they're still being loaded
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger loading = new AtomicInteger();
+    // Worlds whose data is in memory, a world is only loaded again after it was unloaded
+    @Getter(AccessLevel.NONE)
+    private final Set<UUID> loadedWorlds = ConcurrentHashMap.newKeySet();
 
     protected DataManager(DataManagerType type) throws StorageInitException {
         this.type = type;
@@ -78,31 +102,133 @@ public abstract class DataManager {
 
     public abstract <T extends SerializableThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type);
 
+    /**
+     * Replace all stored objects of a table that are located in the given world.
+     * Objects of other worlds are left untouched.
+     */
+    public abstract <T extends WorldBoundThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type, UUID worldUuid);
+
     public abstract <T extends SerializableThing> void saveGeneric(T serializableThing, String table);
 
+    /**
+     * Insert or update the given objects, without removing any other stored objects of the table.
+     * <p>Implementations should write these in batches, this default writes them one by one.
+     */
+    public <T extends SerializableThing> void upsertAllGeneric(List<T> serializableThings, String table) {
+        for (T thing : serializableThings) {
+            saveGeneric(thing, table);
+        }
+    }
+
     public abstract void deleteGeneric(String id, String table);
 
+    /**
+     * Delete all stored objects of a table that are located in the given world, except for the given ones.
+     * <p>Used after objects have been saved with {@link #upsertAllGeneric(List, String)},
+     * to remove the ones that don't exist anymore.
+     */
+    public abstract void deleteAllGenericExcept(String table, UUID worldUuid, Set<String> keepIds);
+
+    /**
+     * Stream all objects of a table to the given sink, without collecting them into a list first.
+     * <p>Objects are handed over as Suppliers, so decoding them can be done on another thread.
+     * Implementations should read from storage in batches rather than all at once.
+     */
+    public <T extends SerializableThing> void streamAllGeneric(String table, Class<T> type, Consumer<Supplier<T>> sink) {
+        streamAllGeneric(table, type, null, sink);
+    }
+
+    /**
+     * Stream all objects of a table that are located in the given world.
+     * Implementations should use their world index, instead of reading other worlds' data.
+     *
+     * @param worldUuid The world to stream, or null to stream all objects regardless of their world
+     * @see #streamAllGeneric(String, Class, Consumer)
+     */
+    public abstract <T extends SerializableThing> void streamAllGeneric(String table, Class<T> type, @Nullable UUID worldUuid, Consumer<Supplier<T>> sink);
+
     public abstract CompletableFuture<Barrel> getBarrel(UUID id);
 
     public abstract CompletableFuture<List<Barrel>> getAllBarrels();
 
+    /**
+     * Replace all stored Barrels with the given ones, in every world.
+     * <p>Deletes the Barrels of unloaded worlds, use {@link #saveAllBarrels(Collection, UUID)} for each loaded world instead.
+     */
     public abstract void saveAllBarrels(Collection<Barrel> barrels);
 
     public abstract void saveBarrel(Barrel barrel);
 
     public abstract void deleteBarrel(UUID id);
 
+    public void streamAllBarrels(Consumer<Supplier<SerializableBarrel>> sink) {
+        streamAllBarrels(null, sink);
+    }
+
+    public void streamAllBarrels(@Nullable UUID worldUuid, Consumer<Supplier<SerializableBarrel>> sink) {
+        streamAllGeneric("barrels", SerializableBarrel.class, worldUuid, sink);
+    }
+
+    /**
+     * Stream the Barrels that have their spigot in one of the given chunks.
+     * Implementations should use their chunk index, instead of reading the whole world.
+     *
+     * @param chunkKeys Keys of the chunks, as created by {@link BUtil#getChunkKey(int, int)}
+     */
+    public abstract void streamBarrelsInChunks(UUID worldUuid, Collection<Long> chunkKeys, Consumer<Supplier<SerializableBarrel>> sink);
+
+    /**
+     * Insert or update the given Barrels, leaving all other stored Barrels as they are.
+     */
+    public void saveBarrels(List<SerializableBarrel> barrels) {
+        upsertAllGeneric(barrels, "barrels");
+    }
+
+    public void saveAllBarrels(Collection<Barrel> barrels, UUID worldUuid) {
+        List<SerializableBarrel> serializableBarrels = barrels.stream()
+            .filter(it -> it.getBounds() != null)
+            .map(SerializableBarrel::new)
+            .toList();
+        saveAllGeneric(serializableBarrels, "barrels", SerializableBarrel.class, worldUuid);
+    }
+
 
     public abstract BCauldron getCauldron(UUID id);
 
     public abstract Collection<BCauldron> getAllCauldrons();
 
+    /**
+     * Replace all stored Cauldrons with the given ones, in every world.
+     * <p>Deletes the Cauldrons of unloaded worlds, use {@link #saveAllCauldrons(Collection, UUID)} for each loaded world instead.
+     */
     public abstract void saveAllCauldrons(Collection<BCauldron> cauldrons);
 
     public abstract void saveCauldron(BCauldron cauldron);
 
     public abstract void deleteCauldron(UUID id);
 
+    public void streamAllCauldrons(Consumer<Supplier<SerializableCauldron>> sink) {
+        streamAllCauldrons(null, sink);
+    }
+
+    public void streamAllCauldrons(@Nullable UUID worldUuid, Consumer<Supplier<SerializableCauldron>> sink) {
+        streamAllGeneric("cauldrons", SerializableCauldron.class, worldUuid, sink);
+    }
+
+    /**
+     * Insert or update the given Cauldrons, leaving all other stored Cauldrons as they are.
+     */
+    public void saveCauldrons(List<SerializableCauldron> cauldrons) {
+        upsertAllGeneric(cauldrons, "cauldrons");
+    }
+
+    public void saveAllCauldrons(Collection<BCauldron> cauldrons, UUID worldUuid) {
+        List<SerializableCauldron> serializableCauldrons = cauldrons.stream()
+            .map(SerializableCauldron::new)
+            .toList();
+        saveAllGeneric(serializableCauldrons, "cauldrons", SerializableCauldron.class, worldUuid);
+    }
+
 
     public abstract BPlayer getPlayer(UUID playerUUID);
 
@@ -119,12 +245,34 @@ public abstract class DataManager {
 
     public abstract Collection<Wakeup> getAllWakeups();
 
+    /**
+     * Replace all stored Wakeups with the given ones, in every world.
+     * <p>Deletes the Wakeups of unloaded worlds, use {@link #saveAllWakeups(Collection, UUID)} for each loaded world instead.
+     */
     public abstract void saveAllWakeups(Collection<Wakeup> wakeups);
 
     public abstract void saveWakeup(Wakeup wakeup);
 
     public abstract void deleteWakeup(UUID id);
 
+    public Collection<Wakeup> getAllWakeups(UUID worldUuid) {
+        List<Wakeup> wakeups = new ArrayList<>();
+        streamAllGeneric("wakeups", SerializableWakeup.class, worldUuid, supplier -> {
+            Wakeup wakeup = supplier.get().toWakeup();
+            if (wakeup != null) {
+                wakeups.add(wakeup);
+            }
+        });
+        return wakeups;
+    }
+
+    public void saveAllWakeups(Collection<Wakeup> wakeups, UUID worldUuid) {
+        List<SerializableWakeup> serializableWakeups = wakeups.stream()
+            .map(SerializableWakeup::new)
+            .toList();
+        saveAllGeneric(serializableWakeups, "wakeups", SerializableWakeup.class, worldUuid);
+    }
+
 
     public abstract BreweryMiscData getBreweryMiscData();
 
@@ -139,9 +287,9 @@ public abstract class DataManager {
         long interval = ConfigManager.getConfig(Config.class).getAutosave() * 60000L;
 
         if (System.currentTimeMillis() - lastAutoSave > interval) {
-            saveAll(true);
+            // Spread over the next ticks, see SlicedSave
+            SlicedSave.start(this);
             lastAutoSave = System.currentTimeMillis();
-            Logging.debugLog("Auto saved all data!");
         }
     }
 
@@ -172,33 +320,100 @@ public abstract class DataManager {
     }
 
     public void saveAll(boolean async, Runnable callback) {
+        SlicedSave.cancelRunning();
         Collection<Barrel> barrels = Barrel.getAllBarrels();
         Collection<BCauldron> cauldrons = BCauldron.getBcauldrons().values();
         Collection<BPlayer> bPlayers = BPlayer.getPlayers().values();
         Collection<Wakeup> wakeups = Wakeup.getWakeups();
+        Set<UUID> worldUuids = new HashSet<>();
+        for (World world : Bukkit.getWorlds()) {
+            worldUuids.add(world.getUID());
+        }
 
-        if (async) {
-            BreweryPlugin.getScheduler().runTaskAsynchronously(() -> {
-                doSave(barrels, cauldrons, bPlayers, wakeups);
-                if (callback != null) {
-                    callback.run();
-                }
-            });
-        } else {
-            doSave(barrels, cauldrons, bPlayers, wakeups);
+        // Only some Barrels are in memory when they're paged, they must not replace all stored Barrels.
+        // Queued right away, so they're written in order with the pager's own writes
+        BarrelPager pager = BreweryPlugin.getBarrelPager();
+        CompletableFuture<Void> pagedSave = pager != null ? pager.save(barrels) : null;
+
+        Runnable save = () -> {
+            doSave(pagedSave == null ? barrels : null, cauldrons, bPlayers, wakeups, worldUuids);
+            if (pagedSave != null) {
+                pagedSave.join();
+            }
             if (callback != null) {
                 callback.run();
             }
+        };
+        if (async) {
+            BreweryPlugin.getScheduler().runTaskAsynchronously(save);
+        } else {
+            save.run();
         }
     }
 
-    private void doSave(Collection<Barrel> barrels, Collection<BCauldron> cauldrons, Collection<BPlayer> players, Collection<Wakeup> wakeups) {
+    /**
+     * Saves Barrels, Cauldrons and Wakeups world by world, so the stored data of unloaded worlds is kept.
+     *
+     * @param barrels    All Barrels to replace the stored ones with, null if they're saved by the BarrelPager
+     * @param worldUuids The loaded worlds, their stored data is replaced even if nothing of them is in memory
+     */
+    private void doSave(@Nullable Collection<Barrel> barrels, Collection<BCauldron> cauldrons, Collection<BPlayer> players, Collection<Wakeup> wakeups, Set<UUID> worldUuids) {
+        long timingStart = SAVE_ALL_TIMING.start();
         this.saveBreweryMiscData(getLoadedMiscData());
-        this.saveAllBarrels(barrels);
-        this.saveAllCauldrons(cauldrons);
+        if (isLoading()) {
+            // Saving now would delete everything that hasn't been loaded yet
+            Logging.warningLog("Data is still being loaded, skipped saving barrels and cauldrons!");
+        } else {
+            if (barrels != null) {
+                Map<UUID, List<Barrel>> byWorld = byWorld(barrels, barrel -> barrel.getSpigot().getWorld().getUID(), worldUuids);
+                StorageEvent event = new StorageEvent();
+                event.begin();
+                byWorld.forEach((worldUuid, inWorld) -> this.saveAllBarrels(inWorld, worldUuid));
+                event.commit("save", "barrels", barrels.size());
+            }
+            Map<UUID, List<BCauldron>> byWorld = byWorld(cauldrons, cauldron -> cauldron.getBlock().getWorld().getUID(), worldUuids);
+            StorageEvent event = new StorageEvent();
+            event.begin();
+            byWorld.forEach((worldUuid, inWorld) -> this.saveAllCauldrons(inWorld, worldUuid));
+            event.commit("save", "cauldrons", cauldrons.size());
+        }
+        StorageEvent event = new StorageEvent();
+        event.begin();
         this.saveAllPlayers(players);
-        this.saveAllWakeups(wakeups);
+        event.commit("save", "players", players.size());
+        saveAllWakeupsByWorld(wakeups, worldUuids);
 
+        runExternalAutoSaves();
+        SAVE_ALL_TIMING.stop(timingStart);
+        Logging.debugLog("Saved all data!");
+    }
+
+    /**
+     * Save the Wakeups world by world, keeping the stored Wakeups of worlds that are not loaded.
+     *
+     * @param worldUuids The loaded worlds, their stored Wakeups are replaced even if none of them is in memory
+     */
+    void saveAllWakeupsByWorld(Collection<Wakeup> wakeups, Set<UUID> worldUuids) {
+        Map<UUID, List<Wakeup>> byWorld = byWorld(wakeups, wakeup -> wakeup.getLoc().getWorld().getUID(), worldUuids);
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        byWorld.forEach((worldUuid, inWorld) -> this.saveAllWakeups(inWorld, worldUuid));
+        event.commit("save", "wakeups", wakeups.size());
+    }
+
+    // Groups by world, with an empty list for each given world that has nothing in memory
+    private static <T> Map<UUID, List<T>> byWorld(Collection<T> things, Function<T, UUID> worldOf, Set<UUID> worldUuids) {
+        Map<UUID, List<T>> byWorld = new HashMap<>();
+        for (UUID worldUuid : worldUuids) {
+            byWorld.put(worldUuid, new ArrayList<>());
+        }
+        for (T thing : things) {
+            byWorld.computeIfAbsent(worldOf.apply(thing), uuid -> new ArrayList<>()).add(thing);
+        }
+        return byWorld;
+    }
+
+    void runExternalAutoSaves() {
         for (ExternallyAutoSavable autoSaveAble : autoSavabales) {
             try {
                 autoSaveAble.onAutoSave(this);
@@ -206,7 +421,109 @@ public abstract class DataManager {
                 Logging.errorLog("An external auto-savable class threw an exception. This is most likely an addon not saving properly.", e);
             }
         }
-        Logging.debugLog("Saved all data!");
+    }
+
+
+    // Worlds
+
+    /**
+     * Load and register the Barrels, Cauldrons and Wakeups of a single world, without reading the data of other worlds.
+     * Does nothing if this world has already been loaded.
+     *
+     * @return Future that completes once everything has been registered
+     */
+    public CompletableFuture<Void> loadWorld(World world) {
+        UUID worldUuid = world.getUID();
+        if (!loadedWorlds.add(worldUuid)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> wakeups = new CompletableFuture<>();
+        BreweryPlugin.getScheduler().runTaskAsynchronously(() -> {
+            Collection<Wakeup> loaded = getAllWakeups(worldUuid);
+            BreweryPlugin.getScheduler().runTask(() -> {
+                Wakeup.addAll(loaded);
+                wakeups.complete(null);
+            });
+        });
+
+        int batchSize = ConfigManager.getConfig(Config.class).getStorage().getBatchSize();
+        return new StreamingLoader(this, batchSize).load(worldUuid).thenCombine(wakeups, (a, b) -> null);
+    }
+
+    /**
+     * Save the Barrels, Cauldrons and Wakeups of a single world, only replacing the stored data of that world.
+     */
+    public void saveWorld(World world, boolean async) {
+        UUID worldUuid = world.getUID();
+        List<Barrel> barrels = List.copyOf(Barrel.getBarrels(worldUuid));
+        List<BCauldron> cauldrons = BCauldron.getBcauldrons().values().stream()
+            .filter(cauldron -> cauldron.getBlock().getWorld().getUID().equals(worldUuid))
+            .toList();
+        List<Wakeup> wakeups = Wakeup.getWakeups().stream()
+            .filter(wakeup -> wakeup.getLoc().getWorld().getUID().equals(worldUuid))
+            .toList();
+
+        BarrelPager pager = BreweryPlugin.getBarrelPager();
+        CompletableFuture<Void> pagedSave = pager != null ? pager.save(barrels) : null;
+
+        Runnable save = () -> {
+            long timingStart = SAVE_WORLD_TIMING.start();
+            StorageEvent event = new StorageEvent();
+            event.begin();
+            if (pagedSave == null) {
+                this.saveAllBarrels(barrels, worldUuid);
+            }
+            this.saveAllCauldrons(cauldrons, worldUuid);
+            this.saveAllWakeups(wakeups, worldUuid);
+            if (pagedSave != null) {
+                pagedSave.join();
+            }
+            event.commit("save world", world.getName(), barrels.size() + cauldrons.size() + wakeups.size());
+            SAVE_WORLD_TIMING.stop(timingStart);
+            Logging.debugLog("Saved data of world: " + world.getName());
+        };
+        if (async) {
+            BreweryPlugin.getScheduler().runTaskAsynchronously(save);
+        } else {
+            save.run();
+        }
+    }
+
+    /**
+     * Save the data of a world and release it from memory.
+     */
+    /**
+     * Remember the given worlds as loaded, their data is loaded with everything else.
+     */
+    public void markWorldsLoaded(Collection<World> worlds) {
+        for (World world : worlds) {
+            loadedWorlds.add(world.getUID());
+        }
+    }
+
+    public void unloadWorld(World world) {
+        loadedWorlds.remove(world.getUID());
+        saveWorld(world, true);
+        BarrelPager pager = BreweryPlugin.getBarrelPager();
+        if (pager != null) {
+            pager.onWorldUnload(world);
+        }
+        Barrel.onUnload(world);
+        BCauldron.onUnload(world);
+        Wakeup.onUnload(world);
+    }
+
+    boolean isLoading() {
+        return loading.get() > 0;
+    }
+
+    void beginLoading() {
+        loading.incrementAndGet();
+    }
+
+    void endLoading() {
+        loading.decrementAndGet();
     }
 
 
@@ -259,6 +576,7 @@ public abstract class DataManager {
     public static void loadMiscData(BreweryMiscData miscData) {
         Brew.installTime = miscData.installTime();
         MCBarrel.mcBarrelTime = miscData.mcBarrelTime();
+        Barrel.setAgingEpoch(miscData.barrelEpoch() != null ? miscData.barrelEpoch() : 0);
         Brew.loadPrevSeeds(miscData.prevSaveSeeds());
 
 
@@ -286,11 +604,50 @@ public abstract class DataManager {
             MCBarrel.mcBarrelTime,
             Brew.getPrevSeeds(),
             brewsCreated,
-            brewsCreated.hashCode()
+            brewsCreated.hashCode(),
+            Barrel.getAgingEpoch()
         );
     }
 
 
+    /**
+     * Get the world uuid of a serialized location, without looking up the world.
+     *
+     * @return The world uuid as a String, or null if the location is null
+     */
+    @Nullable
+    public static String getWorldId(@Nullable String serializedLocation) {
+        if (serializedLocation == null) {
+            return null;
+        }
+        int separator = serializedLocation.indexOf(',');
+        return separator < 0 ? serializedLocation : serializedLocation.substring(0, separator);
+    }
+
+    /**
+     * Get the chunk key of a serialized location, without looking up the world.
+     *
+     * @return The chunk key, or null if the location is null or malformed
+     * @see BUtil#getChunkKey(int, int)
+     */
+    @Nullable
+    public static Long getChunkKey(@Nullable String serializedLocation) {
+        if (serializedLocation == null) {
+            return null;
+        }
+        int nameSeparator = serializedLocation.indexOf("?=");
+        String[] parts = (nameSeparator < 0 ? serializedLocation : serializedLocation.substring(0, nameSeparator)).split(",");
+        if (parts.length < 4) {
+            return null;
+        }
+        OptionalInt x = BUtil.parseInt(parts[1]);
+        OptionalInt z = BUtil.parseInt(parts[3]);
+        if (x.isEmpty() || z.isEmpty()) {
+            return null;
+        }
+        return BUtil.getChunkKey(x.getAsInt() >> 4, z.getAsInt() >> 4);
+    }
+
     public static Location deserializeLocation(String locationString) {
         return deserializeLocation(locationString, false);
     }
@@ -0,0 +1,394 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.storage;
+
+import com.dre.brewery.BCauldron;
+import com.dre.brewery.BPlayer;
+import com.dre.brewery.Barrel;
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.Wakeup;
+import com.dre.brewery.configuration.ConfigManager;
+import com.dre.brewery.configuration.files.Config;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
+import com.dre.brewery.storage.records.SerializableBarrel;
+import com.dre.brewery.storage.records.SerializableCauldron;
+import com.dre.brewery.utility.BUtil;
+import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.Timings;
+import com.dre.brewery.utility.jfr.StorageEvent;
+import com.github.Anon8281.universalScheduler.scheduling.tasks.MyScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Autosave that collects Barrels and Cauldrons over many ticks instead of all at once.
+ * <p>Everything is grouped by chunk, and every tick only as many chunks are serialized as fit into the configured
+ * time budget. On Folia each chunk is serialized on the thread owning its region. Finished batches are written
+ * right away on a single storage thread, so the storage writes are spread over the save as well.
+ * <p>Stored objects are only inserted or updated. Objects removed since the last save are deleted per world,
+ * after everything else has been written.
+ */
+public class SlicedSave {
+
+    // Guess of how long serializing one object takes, until it has been measured
+    private static final long INITIAL_NANOS_PER_OBJECT = 50_000;
+
+    private static final Timings.Timing TICK_TIMING = Timings.of("task.SlicedSave");
+    private static final Timings.Timing WRITE_TIMING = Timings.of("storage.autosave.write");
+    private static final Timings.Timing PRUNE_TIMING = Timings.of("storage.autosave.prune");
+
+    private static volatile @Nullable SlicedSave running;
+
+    private record Slice(UUID world, long chunkKey, Location location, List<Barrel> barrels, List<BCauldron> cauldrons) {
+        int size() {
+            return barrels.size() + cauldrons.size();
+        }
+    }
+
+    private record ChunkRef(UUID world, long key) {
+    }
+
+    private final DataManager dataManager;
+    private final long budgetNanos;
+    private final int batchSize;
+    private final long start = System.currentTimeMillis();
+    // Only accessed by the global tick task
+    private final Queue<Slice> slices = new ArrayDeque<>();
+    private final Map<UUID, World> worlds = new HashMap<>();
+    private final boolean prunable;
+    private final boolean pruneBarrels;
+    private final Map<UUID, Set<String>> barrelIds = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> cauldronIds = new ConcurrentHashMap<>();
+    private final List<SerializableBarrel> pendingBarrels = new ArrayList<>();
+    private final List<SerializableCauldron> pendingCauldrons = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Executor writer;
+    private final @Nullable ExecutorService ownWriter;
+    private volatile long nanosPerObject = INITIAL_NANOS_PER_OBJECT;
+    private volatile boolean cancelled;
+    // Held while writing, a cancel waits for the write that already started
+    private final Object writeLock = new Object();
+    private MyScheduledTask task;
+
+    private SlicedSave(DataManager dataManager) {
+        this.dataManager = dataManager;
+        Config config = ConfigManager.getConfig(Config.class);
+        this.budgetNanos = Math.max(1, (long) (config.getAutosaveTickBudget() * 1_000_000));
+        this.batchSize = config.getStorage().getBatchSize();
+        // Objects that are still being loaded are not registered yet, they must not be deleted from storage
+        this.prunable = !dataManager.isLoading();
+
+        BarrelPager pager = BreweryPlugin.getBarrelPager();
+        // Paged out Barrels are not in memory, only the pager deletes stored Barrels then
+        this.pruneBarrels = pager == null;
+        if (pager != null) {
+            // Keeps the writes in order with the pager's own loads and deletes
+            this.writer = pager.getWriter();
+            this.ownWriter = null;
+        } else {
+            this.ownWriter = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "BreweryX-Autosave");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.writer = ownWriter;
+        }
+
+        for (World world : Bukkit.getWorlds()) {
+            worlds.put(world.getUID(), world);
+        }
+        Map<ChunkRef, Slice> byChunk = new LinkedHashMap<>();
+        for (Barrel barrel : Barrel.getAllBarrels()) {
+            slice(byChunk, barrel.getSpigot()).barrels().add(barrel);
+        }
+        for (BCauldron cauldron : BCauldron.getBcauldrons().values()) {
+            slice(byChunk, cauldron.getBlock()).cauldrons().add(cauldron);
+        }
+        slices.addAll(byChunk.values());
+    }
+
+    private static Slice slice(Map<ChunkRef, Slice> byChunk, Block block) {
+        UUID world = block.getWorld().getUID();
+        long key = BUtil.getChunkKey(block.getX() >> 4, block.getZ() >> 4);
+        return byChunk.computeIfAbsent(new ChunkRef(world, key), ref -> new Slice(world, key, block.getLocation(), new ArrayList<>(), new ArrayList<>()));
+    }
+
+    /**
+     * Start a sliced save, unless the previous one is still running.
+     */
+    public static void start(DataManager dataManager) {
+        if (running != null) {
+            Logging.debugLog("Previous autosave is still running, skipped this one");
+            return;
+        }
+        SlicedSave save = new SlicedSave(dataManager);
+        running = save;
+        save.begin();
+    }
+
+    /**
+     * Stop the running sliced save, if any. Used when everything is saved at once, which would otherwise
+     * be partially overwritten or pruned by the older sliced save.
+     */
+    public static void cancelRunning() {
+        SlicedSave save = running;
+        if (save != null) {
+            save.cancelled = true;
+            // A write that already started finishes first, so it can't land after the full save
+            synchronized (save.writeLock) {
+                Logging.debugLog("Cancelled running autosave");
+            }
+        }
+    }
+
+    private void begin() {
+        // Players, Wakeups and the misc data are small and not bound to a region, they're written first
+        List<BPlayer> players = List.copyOf(BPlayer.getPlayers().values());
+        List<Wakeup> wakeups = List.copyOf(Wakeup.getWakeups());
+        Set<UUID> worldUuids = Set.copyOf(worlds.keySet());
+        write(() -> {
+            dataManager.saveBreweryMiscData(DataManager.getLoadedMiscData());
+            dataManager.saveAllPlayers(players);
+            // Per world, the Wakeups of unloaded worlds stay stored
+            dataManager.saveAllWakeupsByWorld(wakeups, worldUuids);
+        });
+        task = BreweryPlugin.getScheduler().runTaskTimer(this::tick, 1L, 1L);
+    }
+
+    // Runs every tick on the global thread
+    private void tick() {
+        long timingStart = TICK_TIMING.start();
+        try {
+            collectSlices();
+        } finally {
+            TICK_TIMING.stop(timingStart);
+        }
+    }
+
+    private void collectSlices() {
+        if (cancelled) {
+            slices.clear();
+            // Slices handed to region threads may still be running, the writer is only shut down after them
+            if (inFlight.get() == 0) {
+                task.cancel();
+                finish();
+            }
+            return;
+        }
+
+        if (MinecraftVersion.isFolia()) {
+            // Serialized on the region threads, only hand out what fits into the budget
+            long budgetObjects = Math.max(1, budgetNanos / Math.max(1, nanosPerObject));
+            long handedOut = 0;
+            while (!slices.isEmpty() && handedOut < budgetObjects) {
+                Slice slice = slices.poll();
+                handedOut += slice.size();
+                inFlight.incrementAndGet();
+                BreweryPlugin.getScheduler().runTask(slice.location(), () -> {
+                    try {
+                        collect(slice);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        } else {
+            long deadline = System.nanoTime() + budgetNanos;
+            do {
+                Slice slice = slices.poll();
+                if (slice == null) {
+                    break;
+                }
+                collect(slice);
+            } while (System.nanoTime() < deadline);
+        }
+
+        if (slices.isEmpty() && inFlight.get() == 0) {
+            task.cancel();
+            flush();
+            finish();
+        }
+    }
+
+    // Runs on the thread owning the region of the slice
+    private void collect(Slice slice) {
+        if (cancelled) {
+            return;
+        }
+        long sliceStart = System.nanoTime();
+
+        List<Barrel> registered = slice.barrels().isEmpty() ? List.of() : Barrel.getBarrelsInChunk(slice.world(), slice.chunkKey());
+        List<SerializableBarrel> barrels = new ArrayList<>(slice.barrels().size());
+        for (Barrel barrel : slice.barrels()) {
+            if (!registered.contains(barrel)) {
+                // Removed or paged out since the save started
+                continue;
+            }
+            // Kept in storage even if it can't be written right now
+            barrelIds.computeIfAbsent(slice.world(), ignored -> ConcurrentHashMap.newKeySet()).add(barrel.getId().toString());
+            if (barrel.getBounds() == null) {
+                continue;
+            }
+            try {
+                barrels.add(new SerializableBarrel(barrel));
+            } catch (Exception e) {
+                Logging.errorLog("Failed to serialize barrel " + barrel.getId() + " for autosave!", e);
+            }
+        }
+
+        List<SerializableCauldron> cauldrons = new ArrayList<>(slice.cauldrons().size());
+        for (BCauldron cauldron : slice.cauldrons()) {
+            if (BCauldron.getBcauldrons().get(cauldron.getBlock()) != cauldron) {
+                continue;
+            }
+            cauldronIds.computeIfAbsent(slice.world(), ignored -> ConcurrentHashMap.newKeySet()).add(cauldron.getId().toString());
+            try {
+                cauldrons.add(new SerializableCauldron(cauldron));
+            } catch (Exception e) {
+                Logging.errorLog("Failed to serialize cauldron " + cauldron.getId() + " for autosave!", e);
+            }
+        }
+
+        // Moving average, only used to estimate how many objects fit into the budget
+        long perObject = (System.nanoTime() - sliceStart) / Math.max(1, slice.size());
+        nanosPerObject = (nanosPerObject * 7 + perObject) / 8;
+
+        synchronized (this) {
+            pendingBarrels.addAll(barrels);
+            pendingCauldrons.addAll(cauldrons);
+            if (pendingBarrels.size() + pendingCauldrons.size() >= batchSize) {
+                flush();
+            }
+        }
+    }
+
+    // Hands the collected objects to the storage thread
+    private synchronized void flush() {
+        if (cancelled) {
+            // Everything is being saved at once instead
+            pendingBarrels.clear();
+            pendingCauldrons.clear();
+            return;
+        }
+        if (pendingBarrels.isEmpty() && pendingCauldrons.isEmpty()) {
+            return;
+        }
+        List<SerializableBarrel> barrels = List.copyOf(pendingBarrels);
+        List<SerializableCauldron> cauldrons = List.copyOf(pendingCauldrons);
+        pendingBarrels.clear();
+        pendingCauldrons.clear();
+        write(() -> {
+            if (!barrels.isEmpty()) {
+                StorageEvent event = new StorageEvent();
+                event.begin();
+                dataManager.saveBarrels(barrels);
+                event.commit("autosave", "barrels", barrels.size());
+            }
+            if (!cauldrons.isEmpty()) {
+                StorageEvent event = new StorageEvent();
+                event.begin();
+                dataManager.saveCauldrons(cauldrons);
+                event.commit("autosave", "cauldrons", cauldrons.size());
+            }
+        });
+    }
+
+    private void write(Runnable write) {
+        writer.execute(() -> {
+            synchronized (writeLock) {
+                if (cancelled) {
+                    // Everything is being saved at once instead
+                    return;
+                }
+                long timingStart = WRITE_TIMING.start();
+                try {
+                    write.run();
+                } catch (Exception e) {
+                    Logging.errorLog("Failed to write autosave to storage!", e);
+                } finally {
+                    WRITE_TIMING.stop(timingStart);
+                }
+            }
+        });
+    }
+
+    // Queued after all writes of this save, the storage thread runs them in order
+    private void finish() {
+        writer.execute(() -> {
+            try {
+                synchronized (writeLock) {
+                    if (!cancelled) {
+                        prune();
+                        dataManager.runExternalAutoSaves();
+                        BreweryMetrics.AUTOSAVE_DURATION.observeNanos((System.currentTimeMillis() - start) * 1_000_000);
+                        Logging.debugLog("Auto saved all data in " + (System.currentTimeMillis() - start) + "ms");
+                    }
+                }
+            } catch (Exception e) {
+                Logging.errorLog("Failed to finish autosave!", e);
+            } finally {
+                running = null;
+                if (ownWriter != null) {
+                    ownWriter.shutdown();
+                }
+            }
+        });
+    }
+
+    // Runs on the storage thread
+    private void prune() {
+        if (!prunable || dataManager.isLoading()) {
+            return;
+        }
+        long timingStart = PRUNE_TIMING.start();
+        for (Map.Entry<UUID, World> entry : worlds.entrySet()) {
+            UUID worldUuid = entry.getKey();
+            if (Bukkit.getWorld(worldUuid) != entry.getValue()) {
+                // Unloaded or reloaded since the save started, the world was saved on its own
+                continue;
+            }
+            if (pruneBarrels) {
+                dataManager.deleteAllGenericExcept("barrels", worldUuid, barrelIds.getOrDefault(worldUuid, Set.of()));
+            }
+            dataManager.deleteAllGenericExcept("cauldrons", worldUuid, cauldronIds.getOrDefault(worldUuid, Set.of()));
+        }
+        PRUNE_TIMING.stop(timingStart);
+    }
+}
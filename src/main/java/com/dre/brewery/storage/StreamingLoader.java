@@ -0,0 +1,311 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.storage;
+
+import com.dre.brewery.BCauldron;
+import com.dre.brewery.BIngredients;
+import com.dre.brewery.Barrel;
+import com.dre.brewery.BarrelAsset;
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.storage.records.SerializableBarrel;
+import com.dre.brewery.storage.records.SerializableCauldron;
+import com.dre.brewery.storage.serialization.BukkitSerialization;
+import com.dre.brewery.utility.BUtil;
+import com.dre.brewery.utility.BoundingBox;
+import com.dre.brewery.utility.FutureUtil;
+import com.dre.brewery.utility.Logging;
+import com.dre.brewery.utility.MinecraftVersion;
+import com.dre.brewery.utility.Timings;
+import com.dre.brewery.utility.jfr.StorageEvent;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Loads Barrels and Cauldrons from a DataManager while the server keeps running.
+ * <p>Objects are streamed from storage, decoded on a small pool of worker threads
+ * and then handed to the thread owning their region in batches, where they are created and registered.
+ */
+public class StreamingLoader {
+
+    private static final int MAX_WORKERS = 4;
+    private static final Timings.Timing BARREL_TIMING = Timings.of("storage.load.barrels");
+    private static final Timings.Timing CAULDRON_TIMING = Timings.of("storage.load.cauldrons");
+
+    private final DataManager dataManager;
+    private final int batchSize;
+    private final ExecutorService workers;
+
+    public StreamingLoader(DataManager dataManager, int batchSize) {
+        this.dataManager = dataManager;
+        this.batchSize = batchSize;
+
+        AtomicInteger threadId = new AtomicInteger();
+        int threads = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "BreweryX-Loader-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load and register all Barrels and Cauldrons.
+     * <p>Saving Barrels and Cauldrons is held back by the DataManager until the returned future completes,
+     * so a partially loaded state is never written back to storage.
+     *
+     * @return Future that completes once everything has been registered
+     */
+    public CompletableFuture<Void> loadAll() {
+        return load(null);
+    }
+
+    /**
+     * Load and register the Barrels and Cauldrons of a single world.
+     *
+     * @param worldUuid The world to load, or null to load all worlds
+     * @see #loadAll()
+     */
+    public CompletableFuture<Void> load(@Nullable UUID worldUuid) {
+        long start = System.currentTimeMillis();
+        dataManager.beginLoading();
+
+        CompletableFuture<Integer> barrels = loadBatched(sink -> dataManager.streamAllBarrels(worldUuid, sink), this::decodeBarrels);
+        CompletableFuture<Integer> cauldrons = loadBatched(sink -> dataManager.streamAllCauldrons(worldUuid, sink), this::decodeCauldrons);
+
+        return barrels.thenCombine(cauldrons, (barrelCount, cauldronCount) -> {
+            Logging.log("Loaded&7: &a" + barrelCount + " &fbarrels and &a" + cauldronCount + " &fcauldrons in &a" + (System.currentTimeMillis() - start) + "ms");
+            return null;
+        }).<Void>handle((ignored, throwable) -> {
+            if (throwable != null) {
+                Logging.errorLog("Failed to load data from&7:&a " + dataManager.getType().getFormattedName(), throwable);
+            }
+            dataManager.endLoading();
+            workers.shutdown();
+            return null;
+        });
+    }
+
+    /**
+     * Reads the stream on an async thread and submits every full batch to the workers
+     *
+     * @param stream The storage stream to read from
+     * @param decode Decodes and registers one batch, completing with the amount of registered objects
+     */
+    private <T> CompletableFuture<Integer> loadBatched(Consumer<Consumer<Supplier<T>>> stream, Function<List<Supplier<T>>, CompletableFuture<Integer>> decode) {
+        CompletableFuture<Integer> output = new CompletableFuture<>();
+        BreweryPlugin.getScheduler().runTaskAsynchronously(() -> {
+            try {
+                List<CompletableFuture<Integer>> batches = new ArrayList<>();
+                List<Supplier<T>> pending = new ArrayList<>(batchSize);
+                stream.accept(supplier -> {
+                    pending.add(supplier);
+                    if (pending.size() >= batchSize) {
+                        List<Supplier<T>> batch = new ArrayList<>(pending);
+                        batches.add(CompletableFuture.supplyAsync(() -> batch, workers).thenCompose(decode));
+                        pending.clear();
+                    }
+                });
+                if (!pending.isEmpty()) {
+                    batches.add(CompletableFuture.supplyAsync(() -> pending, workers).thenCompose(decode));
+                }
+
+                FutureUtil.mergeFutures(batches).whenComplete((counts, throwable) -> {
+                    if (throwable != null) {
+                        output.completeExceptionally(throwable);
+                    } else {
+                        output.complete(counts.stream().mapToInt(Integer::intValue).sum());
+                    }
+                });
+            } catch (Throwable e) {
+                output.completeExceptionally(e);
+            }
+        });
+        return output;
+    }
+
+
+    // Barrels
+
+    record DecodedBarrel(UUID id, Location spigot, byte sign, @Nullable BoundingBox bounds,
+                         @Nullable ItemStack[] items, float time, @Nullable Long epoch) {
+    }
+
+    // Runs on a worker thread
+    private CompletableFuture<Integer> decodeBarrels(List<Supplier<SerializableBarrel>> batch) {
+        long timingStart = BARREL_TIMING.start();
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        List<DecodedBarrel> decoded = new ArrayList<>(batch.size());
+        for (Supplier<SerializableBarrel> supplier : batch) {
+            DecodedBarrel barrel = decodeBarrel(supplier);
+            if (barrel != null) {
+                decoded.add(barrel);
+            }
+        }
+        event.commit("load", "barrels", decoded.size());
+        BARREL_TIMING.stop(timingStart);
+        return handOver(decoded, DecodedBarrel::spigot, StreamingLoader::registerBarrel);
+    }
+
+    /**
+     * Decode everything of a Barrel that doesn't need the world, can be done on any thread.
+     *
+     * @return The decoded Barrel, null if it couldn't be decoded
+     */
+    @Nullable
+    static DecodedBarrel decodeBarrel(Supplier<SerializableBarrel> supplier) {
+        try {
+            SerializableBarrel data = supplier.get();
+            if (data == null) {
+                return null;
+            }
+            Location spigot = DataManager.deserializeLocation(data.serializedLocation());
+            if (spigot == null) {
+                return null;
+            }
+            BoundingBox bounds = data.bounds() != null ? BoundingBox.fromPoints(data.bounds()) : null;
+            ItemStack[] items = BukkitSerialization.itemStackArrayFromBase64(data.serializedItems());
+            return new DecodedBarrel(BUtil.uuidFromString(data.id()), spigot, data.sign(), bounds, items, data.time(), data.epoch());
+        } catch (Exception e) {
+            Logging.errorLog("Failed to decode a barrel, skipping it!", e);
+            return null;
+        }
+    }
+
+    // Runs on the region thread of the barrel
+    static void registerBarrel(DecodedBarrel decoded) {
+        Location location = decoded.spigot();
+        if (BreweryPlugin.getBarrelPager() != null && !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+            // Stays in storage until its chunk is loaded
+            return;
+        }
+        Block spigot = location.getBlock();
+        boolean small;
+        if (decoded.bounds() != null && !decoded.bounds().isBad()) {
+            // Small barrels are 2x2x2, large ones 3x3x4. No need to look at (and maybe load) the chunk
+            small = decoded.bounds().volume() == 8;
+        } else {
+            small = BarrelAsset.isBarrelAsset(BarrelAsset.SIGN, spigot.getType());
+        }
+        // Catch up on the ageing it missed while it was in storage. Done when registering rather than when decoding,
+        // so minutes passing in between aren't lost
+        float time = decoded.epoch() == null ? decoded.time() : decoded.time() + Barrel.getAgingSince(decoded.epoch());
+        Barrel.registerBarrel(new Barrel(spigot, decoded.sign(), decoded.bounds(), decoded.items(), time, decoded.id(), small));
+    }
+
+
+    // Cauldrons
+
+    record DecodedCauldron(UUID id, Location location, BIngredients ingredients, int state) {
+    }
+
+    // Runs on a worker thread
+    private CompletableFuture<Integer> decodeCauldrons(List<Supplier<SerializableCauldron>> batch) {
+        long timingStart = CAULDRON_TIMING.start();
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        List<DecodedCauldron> decoded = new ArrayList<>(batch.size());
+        for (Supplier<SerializableCauldron> supplier : batch) {
+            try {
+                SerializableCauldron data = supplier.get();
+                if (data == null) {
+                    continue;
+                }
+                Location location = DataManager.deserializeLocation(data.serializedLocation());
+                if (location == null) {
+                    continue;
+                }
+                BIngredients ingredients = BIngredients.deserializeIngredients(data.serializedIngredients());
+                decoded.add(new DecodedCauldron(BUtil.uuidFromString(data.id()), location, ingredients, data.state()));
+            } catch (Exception e) {
+                Logging.errorLog("Failed to decode a cauldron, skipping it!", e);
+            }
+        }
+        event.commit("load", "cauldrons", decoded.size());
+        CAULDRON_TIMING.stop(timingStart);
+        return handOver(decoded, DecodedCauldron::location, StreamingLoader::registerCauldron);
+    }
+
+    // Runs on the region thread of the cauldron
+    static void registerCauldron(DecodedCauldron decoded) {
+        BCauldron cauldron = new BCauldron(decoded.location().getBlock(), decoded.ingredients(), decoded.state(), decoded.id());
+        BCauldron.getBcauldrons().put(cauldron.getBlock(), cauldron); // Replace existing, Issues#68
+    }
+
+
+    private record ChunkKey(UUID world, int x, int z) {
+    }
+
+    /**
+     * Run the given action for all objects on the thread owning their region.
+     * <p>On Folia one task is scheduled per chunk, everywhere else the whole batch is one task on the main thread.
+     */
+    static <T> CompletableFuture<Integer> handOver(List<T> decoded, Function<T, Location> location, Consumer<T> action) {
+        if (decoded.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        Map<ChunkKey, List<T>> regions = new HashMap<>();
+        if (MinecraftVersion.isFolia()) {
+            for (T object : decoded) {
+                Location loc = location.apply(object);
+                ChunkKey key = new ChunkKey(loc.getWorld().getUID(), loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+                regions.computeIfAbsent(key, ignored -> new ArrayList<>()).add(object);
+            }
+        } else {
+            regions.put(null, decoded);
+        }
+
+        List<CompletableFuture<Integer>> tasks = new ArrayList<>(regions.size());
+        for (List<T> region : regions.values()) {
+            CompletableFuture<Integer> task = new CompletableFuture<>();
+            BreweryPlugin.getScheduler().runTask(location.apply(region.get(0)), () -> {
+                int count = 0;
+                for (T object : region) {
+                    try {
+                        action.accept(object);
+                        count++;
+                    } catch (Exception e) {
+                        Logging.errorLog("Failed to register loaded object!", e);
+                    }
+                }
+                task.complete(count);
+            });
+            tasks.add(task);
+        }
+        return FutureUtil.mergeFutures(tasks).thenApply(counts -> counts.stream().mapToInt(Integer::intValue).sum());
+    }
+}
@@ -24,18 +24,24 @@ import com.dre.brewery.BCauldron;
 import com.dre.brewery.BIngredients;
 import com.dre.brewery.BPlayer;
 import com.dre.brewery.Barrel;
+import com.dre.brewery.BreweryPlugin;
 import com.dre.brewery.Wakeup;
 import com.dre.brewery.configuration.sector.capsule.ConfiguredDataManager;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import com.dre.brewery.storage.DataManager;
 import com.dre.brewery.storage.StorageInitException;
 import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.storage.records.BreweryMiscData;
+import com.dre.brewery.storage.records.SerializableBarrel;
+import com.dre.brewery.storage.records.SerializableCauldron;
 import com.dre.brewery.storage.serialization.BukkitSerialization;
 import com.dre.brewery.storage.serialization.SQLDataSerializer;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.BoundingBox;
 import com.dre.brewery.utility.FutureUtil;
 import com.dre.brewery.utility.Logging;
+import com.github.Anon8281.universalScheduler.scheduling.tasks.MyScheduledTask;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
@@ -54,15 +60,23 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 // TODO: Simplify methods
 public class FlatFileStorage extends DataManager {
 
+    private static final long SAVE_DELAY = 20L; // ticks
+
     private final File rawFile;
     private final YamlConfiguration dataFile;
     private SQLDataSerializer serializer;
+    // Small writes are collected and saved together, see saveLater()
+    private @Nullable MyScheduledTask pendingSave;
 
     public FlatFileStorage(ConfiguredDataManager record) throws StorageInitException {
         super(record.getType());
@@ -82,13 +96,44 @@ public class FlatFileStorage extends DataManager {
 
 
     private void save() {
+        if (pendingSave != null) {
+            // Included in this save
+            pendingSave.cancel();
+            pendingSave = null;
+        }
         try {
             dataFile.save(rawFile);
+            BreweryMetrics.STORAGE_BYTES_WRITTEN.add(rawFile.length());
         } catch (IOException e) {
             Logging.errorLog("Failed to save to FlatFile!", e);
         }
     }
 
+    /**
+     * Save the file a second from now, together with everything else written until then.
+     * <p>Used for the frequent small writes of the autosave and the barrel pager, which would otherwise
+     * write the whole file every time.
+     */
+    private void saveLater() {
+        if (pendingSave == null) {
+            pendingSave = BreweryPlugin.getScheduler().runTaskLaterAsynchronously(this::savePending, SAVE_DELAY);
+        }
+    }
+
+    private synchronized void savePending() {
+        if (pendingSave != null) {
+            save();
+        }
+    }
+
+    @Override
+    protected synchronized void closeConnection() {
+        // Writes still waiting for their save must not be lost
+        if (pendingSave != null) {
+            save();
+        }
+    }
+
     private SQLDataSerializer getLazySerializerInstance() {
         if (serializer == null) {
             serializer = new SQLDataSerializer();
@@ -97,7 +142,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public boolean createTable(String name, int maxIdLength) {
+    public synchronized boolean createTable(String name, int maxIdLength) {
         if (dataFile.contains(name)) {
             return false;
         }
@@ -107,7 +152,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public boolean dropTable(String name) {
+    public synchronized boolean dropTable(String name) {
         dataFile.set(name, null);
         save();
         return true;
@@ -115,7 +160,7 @@ public class FlatFileStorage extends DataManager {
 
 
     @Override
-    public <T extends SerializableThing> T getGeneric(String id, String table, Class<T> type) {
+    public synchronized <T extends SerializableThing> T getGeneric(String id, String table, Class<T> type) {
         String path = table + "." + id;
 
         ConfigurationSection section = dataFile.getConfigurationSection(path);
@@ -133,7 +178,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public <T extends SerializableThing> List<T> getAllGeneric(String table, Class<T> type) {
+    public synchronized <T extends SerializableThing> List<T> getAllGeneric(String table, Class<T> type) {
         ConfigurationSection section = dataFile.getConfigurationSection(table);
         if (section == null) {
             return Collections.emptyList();
@@ -146,7 +191,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public <T extends SerializableThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type) {
+    public synchronized <T extends SerializableThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type) {
         ConfigurationSection section = dataFile.getConfigurationSection(table);
         if (section != null) {
             section.getKeys(false).forEach(key -> dataFile.set(table + "." + key, null));
@@ -155,13 +200,40 @@ public class FlatFileStorage extends DataManager {
         }
 
         for (T thing : serializableThings) {
-            saveGeneric(thing, table);
+            writeGeneric(thing, table);
+        }
+        save();
+    }
+
+    @Override
+    public synchronized <T extends WorldBoundThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type, UUID worldUuid) {
+        clearWorld(table, "serializedLocation", worldUuid);
+        for (T thing : serializableThings) {
+            writeGeneric(thing, table);
         }
         save();
     }
 
     @Override
-    public <T extends SerializableThing> void saveGeneric(T serializableThing, String table) {
+    public synchronized <T extends SerializableThing> void streamAllGeneric(String table, Class<T> type, @Nullable UUID worldUuid, Consumer<Supplier<T>> sink) {
+        ConfigurationSection section = dataFile.getConfigurationSection(table);
+        if (section == null) {
+            return;
+        }
+        for (String key : section.getKeys(false)) {
+            if (isInWorld(table + "." + key + ".serializedLocation", worldUuid)) {
+                sink.accept(() -> getGeneric(key, table, type));
+            }
+        }
+    }
+
+    @Override
+    public synchronized <T extends SerializableThing> void saveGeneric(T serializableThing, String table) {
+        writeGeneric(serializableThing, table);
+        save();
+    }
+
+    private <T extends SerializableThing> void writeGeneric(T serializableThing, String table) {
         String path = table + "." + serializableThing.getId();
 
         Gson gson = getLazySerializerInstance().getGson();
@@ -172,17 +244,61 @@ public class FlatFileStorage extends DataManager {
         for (Map.Entry<String, Object> entry : map.entrySet()) {
             dataFile.set(path + "." + entry.getKey(), entry.getValue());
         }
-        save();
+    }
+
+    /**
+     * @param locationPath Path to the serialized location of a stored object
+     * @param worldUuid    The world to check against, null matches every world
+     */
+    private boolean isInWorld(String locationPath, @Nullable UUID worldUuid) {
+        return worldUuid == null || worldUuid.toString().equals(getWorldId(dataFile.getString(locationPath)));
+    }
+
+    // Remove all objects of a table that are located in the given world
+    private void clearWorld(String table, String locationKey, UUID worldUuid) {
+        ConfigurationSection section = dataFile.getConfigurationSection(table);
+        if (section == null) {
+            return;
+        }
+        for (String key : section.getKeys(false)) {
+            if (isInWorld(table + "." + key + "." + locationKey, worldUuid)) {
+                dataFile.set(table + "." + key, null);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void deleteAllGenericExcept(String table, UUID worldUuid, Set<String> keepIds) {
+        ConfigurationSection section = dataFile.getConfigurationSection(table);
+        if (section == null) {
+            return;
+        }
+        String locationKey = switch (table) {
+            case "barrels" -> "spigot";
+            case "cauldrons" -> "block";
+            case "wakeups" -> "location";
+            default -> "serializedLocation";
+        };
+        boolean changed = false;
+        for (String key : section.getKeys(false)) {
+            if (!keepIds.contains(key) && isInWorld(table + "." + key + "." + locationKey, worldUuid)) {
+                dataFile.set(table + "." + key, null);
+                changed = true;
+            }
+        }
+        if (changed) {
+            save();
+        }
     }
 
     @Override
-    public void deleteGeneric(String id, String table) {
+    public synchronized void deleteGeneric(String id, String table) {
         dataFile.set(table + "." + id, null);
         save();
     }
 
     @Override
-    public CompletableFuture<Barrel> getBarrel(UUID id) {
+    public synchronized CompletableFuture<Barrel> getBarrel(UUID id) {
         String path = "barrels." + id;
 
         Location spigotLoc = deserializeLocation(dataFile.getString(path + ".spigot"));
@@ -197,6 +313,9 @@ public class FlatFileStorage extends DataManager {
 
         BoundingBox boundingBox = BoundingBox.fromPoints(bounds);
         float time = (float) dataFile.getDouble(path + ".time", 0.0);
+        if (dataFile.contains(path + ".epoch")) {
+            time += Barrel.getAgingSince(dataFile.getLong(path + ".epoch"));
+        }
         byte sign = (byte) dataFile.getInt(path + ".sign", 0);
         ItemStack[] items = BukkitSerialization.itemStackArrayFromBase64(dataFile.getString(path + ".items", null));
 
@@ -207,7 +326,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public CompletableFuture<List<Barrel>> getAllBarrels() {
+    public synchronized CompletableFuture<List<Barrel>> getAllBarrels() {
         ConfigurationSection section = dataFile.getConfigurationSection("barrels");
         if (section == null) {
             return CompletableFuture.completedFuture(Collections.emptyList());
@@ -225,36 +344,113 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public void saveAllBarrels(Collection<Barrel> barrels) {
+    public synchronized void streamAllBarrels(@Nullable UUID worldUuid, Consumer<Supplier<SerializableBarrel>> sink) {
+        ConfigurationSection section = dataFile.getConfigurationSection("barrels");
+        if (section == null) {
+            return;
+        }
+
+        for (String key : section.getKeys(false)) {
+            String path = "barrels." + key;
+            if (!isInWorld(path + ".spigot", worldUuid)) {
+                continue;
+            }
+            sink.accept(readBarrel(key));
+        }
+    }
+
+    @Override
+    public synchronized void streamBarrelsInChunks(UUID worldUuid, Collection<Long> chunkKeys, Consumer<Supplier<SerializableBarrel>> sink) {
+        ConfigurationSection section = dataFile.getConfigurationSection("barrels");
+        if (section == null) {
+            return;
+        }
+
+        // Everything is in memory anyway, there is no index to use
+        for (String key : section.getKeys(false)) {
+            String spigot = dataFile.getString("barrels." + key + ".spigot");
+            if (isInWorld("barrels." + key + ".spigot", worldUuid) && chunkKeys.contains(getChunkKey(spigot))) {
+                sink.accept(readBarrel(key));
+            }
+        }
+    }
+
+    // Read the values right away, the supplier may be called from another thread
+    private Supplier<SerializableBarrel> readBarrel(String key) {
+        String path = "barrels." + key;
+        String spigot = dataFile.getString(path + ".spigot");
+        String bounds = dataFile.getString(path + ".bounds");
+        float time = (float) dataFile.getDouble(path + ".time", 0.0);
+        byte sign = (byte) dataFile.getInt(path + ".sign", 0);
+        String items = dataFile.getString(path + ".items", null);
+        Long epoch = dataFile.contains(path + ".epoch") ? dataFile.getLong(path + ".epoch") : null;
+
+        return () -> new SerializableBarrel(key, spigot,
+            bounds == null ? null : Arrays.stream(bounds.split(",")).map(Integer::parseInt).toList(),
+            time, sign, items, epoch, getChunkKey(spigot));
+    }
+
+    @Override
+    public synchronized void saveBarrels(List<SerializableBarrel> barrels) {
+        for (SerializableBarrel barrel : barrels) {
+            String path = "barrels." + barrel.id();
+            dataFile.set(path + ".spigot", barrel.serializedLocation());
+            dataFile.set(path + ".bounds", barrel.bounds().stream().map(String::valueOf).collect(Collectors.joining(",")));
+            dataFile.set(path + ".time", barrel.time());
+            dataFile.set(path + ".sign", barrel.sign());
+            dataFile.set(path + ".items", barrel.serializedItems());
+            dataFile.set(path + ".epoch", barrel.epoch());
+        }
+        saveLater();
+    }
+
+    @Override
+    public synchronized void saveAllBarrels(Collection<Barrel> barrels) {
         dataFile.set("barrels", null);
         for (Barrel barrel : barrels) {
-            saveBarrel(barrel);
+            writeBarrel(barrel);
+        }
+        save();
+    }
+
+    @Override
+    public synchronized void saveAllBarrels(Collection<Barrel> barrels, UUID worldUuid) {
+        clearWorld("barrels", "spigot", worldUuid);
+        for (Barrel barrel : barrels) {
+            writeBarrel(barrel);
         }
+        save();
     }
 
     @Override
-    public void saveBarrel(Barrel barrel) {
+    public synchronized void saveBarrel(Barrel barrel) {
+        writeBarrel(barrel);
+        save();
+    }
+
+    private void writeBarrel(Barrel barrel) {
         if (barrel.getBounds() == null) {
             return;
         }
         String path = "barrels." + barrel.getId();
 
+        Barrel.AgingState aging = barrel.getAgingState();
         dataFile.set(path + ".spigot", serializeLocation(barrel.getSpigot().getLocation()));
         dataFile.set(path + ".bounds", barrel.getBounds().serialize());
-        dataFile.set(path + ".time", barrel.getTime());
+        dataFile.set(path + ".time", aging.time());
         dataFile.set(path + ".sign", barrel.getSignoffset());
         dataFile.set(path + ".items", BukkitSerialization.itemStackArrayToBase64(barrel.getInventory().getContents()));
-        save();
+        dataFile.set(path + ".epoch", aging.epoch());
     }
 
     @Override
-    public void deleteBarrel(UUID id) {
+    public synchronized void deleteBarrel(UUID id) {
         dataFile.set("barrels." + id, null);
-        save();
+        saveLater();
     }
 
     @Override
-    public BCauldron getCauldron(UUID id) {
+    public synchronized BCauldron getCauldron(UUID id) {
         String path = "cauldrons." + id;
 
         Location loc = deserializeLocation(dataFile.getString(path + ".block"));
@@ -268,7 +464,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public Collection<BCauldron> getAllCauldrons() {
+    public synchronized Collection<BCauldron> getAllCauldrons() {
         ConfigurationSection section = dataFile.getConfigurationSection("cauldrons");
 
         if (section == null) {
@@ -287,33 +483,78 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public void saveAllCauldrons(Collection<BCauldron> cauldrons) {
+    public synchronized void streamAllCauldrons(@Nullable UUID worldUuid, Consumer<Supplier<SerializableCauldron>> sink) {
+        ConfigurationSection section = dataFile.getConfigurationSection("cauldrons");
+        if (section == null) {
+            return;
+        }
+
+        for (String key : section.getKeys(false)) {
+            String path = "cauldrons." + key;
+            if (!isInWorld(path + ".block", worldUuid)) {
+                continue;
+            }
+            String block = dataFile.getString(path + ".block");
+            String ingredients = dataFile.getString(path + ".ingredients");
+            int state = dataFile.getInt(path + ".state", 0);
+
+            sink.accept(() -> new SerializableCauldron(key, block, ingredients, state));
+        }
+    }
+
+    @Override
+    public synchronized void saveCauldrons(List<SerializableCauldron> cauldrons) {
+        for (SerializableCauldron cauldron : cauldrons) {
+            String path = "cauldrons." + cauldron.id();
+            dataFile.set(path + ".block", cauldron.serializedLocation());
+            dataFile.set(path + ".ingredients", cauldron.serializedIngredients());
+            dataFile.set(path + ".state", cauldron.state());
+        }
+        saveLater();
+    }
+
+    @Override
+    public synchronized void saveAllCauldrons(Collection<BCauldron> cauldrons) {
         dataFile.set("cauldrons", null);
         for (BCauldron cauldron : cauldrons) {
-            saveCauldron(cauldron);
+            writeCauldron(cauldron);
         }
+        save();
     }
 
     @Override
-    public void saveCauldron(BCauldron cauldron) {
+    public synchronized void saveAllCauldrons(Collection<BCauldron> cauldrons, UUID worldUuid) {
+        clearWorld("cauldrons", "block", worldUuid);
+        for (BCauldron cauldron : cauldrons) {
+            writeCauldron(cauldron);
+        }
+        save();
+    }
+
+    @Override
+    public synchronized void saveCauldron(BCauldron cauldron) {
+        writeCauldron(cauldron);
+        save();
+    }
+
+    private void writeCauldron(BCauldron cauldron) {
         String path = "cauldrons." + cauldron.getId();
 
         dataFile.set(path + ".block", serializeLocation(cauldron.getBlock().getLocation()));
         dataFile.set(path + ".ingredients", cauldron.getIngredients().serializeIngredients());
         dataFile.set(path + ".state", cauldron.getState());
-        save();
     }
 
 
     @Override
-    public void deleteCauldron(UUID id) {
+    public synchronized void deleteCauldron(UUID id) {
         dataFile.set("cauldrons." + id, null);
         save();
     }
 
 
     @Override
-    public BPlayer getPlayer(UUID playerUUID) {
+    public synchronized BPlayer getPlayer(UUID playerUUID) {
         String path = "players." + playerUUID;
 
         int quality = dataFile.getInt(path + ".quality", 0);
@@ -323,7 +564,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public Collection<BPlayer> getAllPlayers() {
+    public synchronized Collection<BPlayer> getAllPlayers() {
         ConfigurationSection section = dataFile.getConfigurationSection("players");
 
         if (section == null) {
@@ -342,7 +583,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public void saveAllPlayers(Collection<BPlayer> players) {
+    public synchronized void saveAllPlayers(Collection<BPlayer> players) {
         dataFile.set("players", null);
         for (BPlayer player : players) {
             savePlayer(player);
@@ -350,7 +591,7 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public void savePlayer(BPlayer player) {
+    public synchronized void savePlayer(BPlayer player) {
         String path = "players." + player.getUuid();
 
         dataFile.set(path + ".quality", player.getQuality());
@@ -360,13 +601,13 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public void deletePlayer(UUID playerUUID) {
+    public synchronized void deletePlayer(UUID playerUUID) {
         dataFile.set("players." + playerUUID, null);
         save();
     }
 
     @Override
-    public Wakeup getWakeup(UUID id) {
+    public synchronized Wakeup getWakeup(UUID id) {
         String path = "wakeups." + id;
         Location wakeupLocation = deserializeLocation(dataFile.getString(path + ".location"), true);
         if (wakeupLocation == null) {
@@ -376,7 +617,26 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public Collection<Wakeup> getAllWakeups() {
+    public synchronized Collection<Wakeup> getAllWakeups() {
+        ConfigurationSection section = dataFile.getConfigurationSection("wakeups");
+
+        if (section == null) {
+            return Collections.emptyList();
+        }
+
+        List<Wakeup> wakeups = new ArrayList<>();
+
+        for (String key : section.getKeys(false)) {
+            Wakeup wakeup = getWakeup(BUtil.uuidFromString(key));
+            if (wakeup != null) {
+                wakeups.add(wakeup);
+            }
+        }
+        return wakeups;
+    }
+
+    @Override
+    public synchronized Collection<Wakeup> getAllWakeups(UUID worldUuid) {
         ConfigurationSection section = dataFile.getConfigurationSection("wakeups");
 
         if (section == null) {
@@ -386,6 +646,9 @@ public class FlatFileStorage extends DataManager {
         List<Wakeup> wakeups = new ArrayList<>();
 
         for (String key : section.getKeys(false)) {
+            if (!isInWorld("wakeups." + key + ".location", worldUuid)) {
+                continue;
+            }
             Wakeup wakeup = getWakeup(BUtil.uuidFromString(key));
             if (wakeup != null) {
                 wakeups.add(wakeup);
@@ -395,44 +658,60 @@ public class FlatFileStorage extends DataManager {
     }
 
     @Override
-    public void saveAllWakeups(Collection<Wakeup> wakeups) {
+    public synchronized void saveAllWakeups(Collection<Wakeup> wakeups) {
         dataFile.set("wakeups", null);
         for (Wakeup wakeup : wakeups) {
-            saveWakeup(wakeup);
+            writeWakeup(wakeup);
         }
+        save();
     }
 
     @Override
-    public void saveWakeup(Wakeup wakeup) {
+    public synchronized void saveAllWakeups(Collection<Wakeup> wakeups, UUID worldUuid) {
+        clearWorld("wakeups", "location", worldUuid);
+        for (Wakeup wakeup : wakeups) {
+            writeWakeup(wakeup);
+        }
+        save();
+    }
+
+    @Override
+    public synchronized void saveWakeup(Wakeup wakeup) {
+        writeWakeup(wakeup);
+        save();
+    }
+
+    private void writeWakeup(Wakeup wakeup) {
         String path = "wakeups." + wakeup.getId();
         dataFile.set(path + ".location", serializeLocation(wakeup.getLoc(), true));
-        save();
     }
 
     @Override
-    public void deleteWakeup(UUID id) {
+    public synchronized void deleteWakeup(UUID id) {
         dataFile.set("wakeups." + id, null);
         save();
     }
 
     @Override
-    public BreweryMiscData getBreweryMiscData() {
+    public synchronized BreweryMiscData getBreweryMiscData() {
         return new BreweryMiscData(
             dataFile.getLong("misc.installTime", System.currentTimeMillis()),
             dataFile.getLong("misc.mcBarrelTime", 0),
             dataFile.getLongList("misc.previousSaveSeeds"),
             dataFile.getIntegerList("misc.brewsCreated"),
-            dataFile.getInt("misc.brewsCreatedHash", 0)
+            dataFile.getInt("misc.brewsCreatedHash", 0),
+            dataFile.getLong("misc.barrelEpoch", 0)
         );
     }
 
     @Override
-    public void saveBreweryMiscData(BreweryMiscData data) {
+    public synchronized void saveBreweryMiscData(BreweryMiscData data) {
         dataFile.set("misc.installTime", data.installTime());
         dataFile.set("misc.mcBarrelTime", data.mcBarrelTime());
         dataFile.set("misc.previousSaveSeeds", data.prevSaveSeeds());
         dataFile.set("misc.brewsCreated", data.brewsCreated());
         dataFile.set("misc.brewsCreatedHash", data.brewsCreatedHash());
+        dataFile.set("misc.barrelEpoch", data.barrelEpoch());
         save();
     }
 }
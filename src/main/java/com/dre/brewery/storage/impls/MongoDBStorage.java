@@ -28,40 +28,60 @@ import com.dre.brewery.configuration.sector.capsule.ConfiguredDataManager;
 import com.dre.brewery.storage.DataManager;
 import com.dre.brewery.storage.StorageInitException;
 import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.storage.records.BreweryMiscData;
 import com.dre.brewery.storage.records.SerializableBPlayer;
 import com.dre.brewery.storage.records.SerializableBarrel;
 import com.dre.brewery.storage.records.SerializableCauldron;
 import com.dre.brewery.storage.records.SerializableWakeup;
 import com.dre.brewery.utility.FutureUtil;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.Logger;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class MongoDBStorage extends DataManager {
 
     private static final String URL = "mongodb+srv://%s:%s@%s/?retryWrites=true&w=majority&appName=BreweryX#%d";
     private static final String[] COLLECTIONS = { "misc", "barrels", "cauldrons", "players", "wakeups" };
+    private static final String[] LOCATED_COLLECTIONS = { "barrels", "cauldrons", "wakeups" };
     private static final String MONGO_ID = "_id";
+    private static final String LOCATION_FIELD = "serializedLocation";
+    private static final String CHUNK_FIELD = "chunk";
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
 
     private final MongoClient mongoClient;
     private final MongoDatabase mongoDatabase;
     private final String collectionPrefix;
+    private final int batchSize;
 
     public MongoDBStorage(ConfiguredDataManager record) throws StorageInitException {
         super(record.getType());
@@ -78,15 +98,39 @@ public class MongoDBStorage extends DataManager {
             this.mongoClient.startSession();
             this.mongoDatabase = mongoClient.getDatabase(record.getDatabase());
             this.collectionPrefix = record.getTablePrefix();
+            this.batchSize = record.getBatchSize();
 
             for (String collection : COLLECTIONS) {
-                mongoDatabase.createCollection(collectionPrefix + collection); // Create the collection if it doesn't exist
+                createTable(collection, 36); // Create the collection if it doesn't exist
             }
+            // '_id' is always indexed by MongoDB, we only need an index to look up objects by their world
+            for (String collection : LOCATED_COLLECTIONS) {
+                mongoDatabase.getCollection(collectionPrefix + collection).createIndex(Indexes.ascending(LOCATION_FIELD));
+            }
+            // Barrels are also loaded by their chunk
+            MongoCollection<Document> barrels = mongoDatabase.getCollection(collectionPrefix + "barrels");
+            barrels.createIndex(Indexes.ascending(CHUNK_FIELD));
+            backfillChunks(barrels);
         } catch (Exception e) {
             throw new StorageInitException("Failed to start MongoDB client or get database!", e);
         }
     }
 
+    // Barrels saved by older versions don't have a chunk yet
+    private void backfillChunks(MongoCollection<Document> collection) {
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        for (Document document : collection.find(Filters.eq(CHUNK_FIELD, null)).projection(Projections.include(LOCATION_FIELD))) {
+            Long chunk = getChunkKey(document.getString(LOCATION_FIELD));
+            if (chunk != null) {
+                batch.add(new UpdateOneModel<>(Filters.eq(MONGO_ID, document.get(MONGO_ID)), Updates.set(CHUNK_FIELD, chunk)));
+                if (batch.size() >= batchSize) {
+                    flushBatch(collection, batch);
+                }
+            }
+        }
+        flushBatch(collection, batch);
+    }
+
     @Override
     protected void closeConnection() {
         mongoClient.close();
@@ -130,24 +174,109 @@ public class MongoDBStorage extends DataManager {
         return mongoCollection.find().into(new ArrayList<>());
     }
 
+    /**
+     * Get all objects of a collection which are located in the given world.
+     * Uses the index on the serialized location, so other worlds are never scanned.
+     */
+    public <T extends SerializableThing> List<T> getAllGeneric(String collection, Class<T> type, UUID worldUuid) {
+        MongoCollection<T> mongoCollection = mongoDatabase.getCollection(collectionPrefix + collection, type);
+        return mongoCollection.find(worldFilter(worldUuid)).into(new ArrayList<>());
+    }
+
+    @Override
+    public <T extends SerializableThing> void streamAllGeneric(String collection, Class<T> type, @Nullable UUID worldUuid, Consumer<Supplier<T>> sink) {
+        MongoCollection<T> mongoCollection = mongoDatabase.getCollection(collectionPrefix + collection, type);
+        FindIterable<T> found = worldUuid != null ? mongoCollection.find(worldFilter(worldUuid)) : mongoCollection.find();
+        for (T thing : found.batchSize(batchSize)) {
+            sink.accept(() -> thing);
+        }
+    }
+
     @Override
     public <T extends SerializableThing> void saveGeneric(T thing, String collection) {
         MongoCollection<T> mongoCollection = (MongoCollection<T>) mongoDatabase.getCollection(collectionPrefix + collection, thing.getClass());
-        mongoCollection.replaceOne(Filters.eq(MONGO_ID, thing.getId()), thing, new ReplaceOptions().upsert(true));
+        mongoCollection.replaceOne(Filters.eq(MONGO_ID, thing.getId()), thing, UPSERT);
     }
 
     @Override
     public <T extends SerializableThing> void saveAllGeneric(List<T> things, String collection, @Nullable Class<T> type) {
+        saveAllInWorld(things, collection, type, null);
+    }
+
+    @Override
+    public <T extends WorldBoundThing> void saveAllGeneric(List<T> things, String collection, @Nullable Class<T> type, UUID worldUuid) {
+        saveAllInWorld(things, collection, type, worldUuid);
+    }
+
+    // Only objects of the given world are replaced, or the whole collection if no world is given
+    private <T extends SerializableThing> void saveAllInWorld(List<T> things, String collection, @Nullable Class<T> type, @Nullable UUID worldUuid) {
         assert type != null : "'type' cannot be null when using mongo storage!";
         MongoCollection<T> mongoCollection = mongoDatabase.getCollection(collectionPrefix + collection, type);
 
-        Set<String> thingsIds = things.stream().map(T::getId).collect(Collectors.toSet());
+        Set<String> staleIds = getStoredIds(collection, worldUuid);
+        List<WriteModel<T>> batch = new ArrayList<>(Math.min(batchSize, things.size()));
+        for (T thing : things) {
+            staleIds.remove(thing.getId());
+            // Upsert to handle both insert and update
+            batch.add(new ReplaceOneModel<>(Filters.eq(MONGO_ID, thing.getId()), thing, UPSERT));
+            if (batch.size() >= batchSize) {
+                flushBatch(mongoCollection, batch);
+            }
+        }
+
         // Delete objects from the collection that are no longer in the list
-        mongoCollection.deleteMany(Filters.not(Filters.in(MONGO_ID, thingsIds)));
+        for (String staleId : staleIds) {
+            batch.add(new DeleteOneModel<>(Filters.eq(MONGO_ID, staleId)));
+            if (batch.size() >= batchSize) {
+                flushBatch(mongoCollection, batch);
+            }
+        }
+        flushBatch(mongoCollection, batch);
+    }
 
+    @Override
+    public <T extends SerializableThing> void upsertAllGeneric(List<T> things, String collection) {
+        if (things.isEmpty()) {
+            return;
+        }
+        MongoCollection<T> mongoCollection = (MongoCollection<T>) mongoDatabase.getCollection(collectionPrefix + collection, things.get(0).getClass());
+        List<WriteModel<T>> batch = new ArrayList<>(Math.min(batchSize, things.size()));
         for (T thing : things) {
-            mongoCollection.replaceOne(Filters.eq(MONGO_ID, thing.getId()), thing, new ReplaceOptions().upsert(true)); // Upsert to handle both insert and update
+            batch.add(new ReplaceOneModel<>(Filters.eq(MONGO_ID, thing.getId()), thing, UPSERT));
+            if (batch.size() >= batchSize) {
+                flushBatch(mongoCollection, batch);
+            }
         }
+        flushBatch(mongoCollection, batch);
+    }
+
+    private <T> void flushBatch(MongoCollection<T> mongoCollection, List<WriteModel<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Unordered, so the server may apply the writes in parallel. None of them depend on each other.
+        mongoCollection.bulkWrite(batch, UNORDERED);
+        batch.clear();
+    }
+
+    /**
+     * Get the ids of all stored objects in a collection without decoding the objects themselves.
+     *
+     * @param worldUuid Only get the ids of objects in this world, null for all
+     */
+    private Set<String> getStoredIds(String collection, @Nullable UUID worldUuid) {
+        Set<String> ids = new HashSet<>();
+        MongoCollection<Document> mongoCollection = mongoDatabase.getCollection(collectionPrefix + collection);
+        FindIterable<Document> found = worldUuid != null ? mongoCollection.find(worldFilter(worldUuid)) : mongoCollection.find();
+        for (Document document : found.projection(Projections.include(MONGO_ID))) {
+            ids.add(String.valueOf(document.get(MONGO_ID)));
+        }
+        return ids;
+    }
+
+    // Serialized locations start with the world's uuid, an anchored prefix regex can use the location index
+    private static Bson worldFilter(UUID worldUuid) {
+        return Filters.regex(LOCATION_FIELD, "^" + worldUuid + ",");
     }
 
     @Override
@@ -157,6 +286,34 @@ public class MongoDBStorage extends DataManager {
     }
 
 
+    @Override
+    public void deleteAllGenericExcept(String collection, UUID worldUuid, Set<String> keepIds) {
+        Set<String> staleIds = getStoredIds(collection, worldUuid);
+        staleIds.removeAll(keepIds);
+        if (staleIds.isEmpty()) {
+            return;
+        }
+        MongoCollection<Document> mongoCollection = mongoDatabase.getCollection(collectionPrefix + collection);
+        List<WriteModel<Document>> batch = new ArrayList<>(Math.min(batchSize, staleIds.size()));
+        for (String staleId : staleIds) {
+            batch.add(new DeleteOneModel<>(Filters.eq(MONGO_ID, staleId)));
+            if (batch.size() >= batchSize) {
+                flushBatch(mongoCollection, batch);
+            }
+        }
+        flushBatch(mongoCollection, batch);
+    }
+
+    @Override
+    public void streamBarrelsInChunks(UUID worldUuid, Collection<Long> chunkKeys, Consumer<Supplier<SerializableBarrel>> sink) {
+        MongoCollection<SerializableBarrel> mongoCollection = mongoDatabase.getCollection(collectionPrefix + "barrels", SerializableBarrel.class);
+        // Chunk keys are the same in every world, the location prefix sorts out the other worlds
+        Bson filter = Filters.and(Filters.in(CHUNK_FIELD, chunkKeys), worldFilter(worldUuid));
+        for (SerializableBarrel barrel : mongoCollection.find(filter).batchSize(batchSize)) {
+            sink.accept(() -> barrel);
+        }
+    }
+
     @Override
     public CompletableFuture<Barrel> getBarrel(UUID id) {
         SerializableBarrel serializableBarrel = getGeneric(id, "barrels", SerializableBarrel.class);
@@ -302,7 +459,7 @@ public class MongoDBStorage extends DataManager {
         if (data != null) {
             return data;
         }
-        return new BreweryMiscData(System.currentTimeMillis(), 0, new ArrayList<>(), new ArrayList<>(), 0);
+        return new BreweryMiscData(System.currentTimeMillis(), 0, new ArrayList<>(), new ArrayList<>(), 0, 0L);
     }
 
     @Override
@@ -28,6 +28,7 @@ import com.dre.brewery.configuration.sector.capsule.ConfiguredDataManager;
 import com.dre.brewery.storage.DataManager;
 import com.dre.brewery.storage.StorageInitException;
 import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.storage.records.BreweryMiscData;
 import com.dre.brewery.storage.records.SerializableBPlayer;
 import com.dre.brewery.storage.records.SerializableBarrel;
@@ -43,11 +44,16 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 // I don't write the greatest SQL, but I did my best ¯\_(ツ)_/¯ - Jsinco
 @SuppressWarnings({ "SqlSourceToSinkFlow", "Duplicates" }) // Dupe code from SQLiteStorage
@@ -56,15 +62,21 @@ public class MySQLStorage extends DataManager {
     private static final String URL = "jdbc:mysql://";
     private static final String[] TABLES = {
         "misc (id VARCHAR(4) PRIMARY KEY, data LONGTEXT);",
-        "barrels (id VARCHAR(36) PRIMARY KEY, data LONGTEXT);",
-        "cauldrons (id VARCHAR(36) PRIMARY KEY, data LONGTEXT);",
+        "barrels (id VARCHAR(36) PRIMARY KEY, data LONGTEXT, world VARCHAR(36), chunk BIGINT, INDEX location_index (world, chunk));",
+        "cauldrons (id VARCHAR(36) PRIMARY KEY, data LONGTEXT, world VARCHAR(36), chunk BIGINT, INDEX location_index (world, chunk));",
         "players (id VARCHAR(36) PRIMARY KEY, data LONGTEXT);",
-        "wakeups (id VARCHAR(36) PRIMARY KEY, data LONGTEXT);"
+        "wakeups (id VARCHAR(36) PRIMARY KEY, data LONGTEXT, world VARCHAR(36), chunk BIGINT, INDEX location_index (world, chunk));"
     };
 
+    // Only the tables of objects bound to a location have the world and chunk columns
+    private static final Set<String> LOCATED_TABLES = Set.of("barrels", "cauldrons", "wakeups");
+
+    private static final int CHUNKS_PER_QUERY = 500;
+
     private final Connection connection;
     private final String tablePrefix;
     private final SQLDataSerializer serializer;
+    private final int fetchSize;
 
     public MySQLStorage(ConfiguredDataManager record) throws StorageInitException {
         super(record.getType());
@@ -72,6 +84,7 @@ public class MySQLStorage extends DataManager {
             this.connection = DriverManager.getConnection(URL + record.getAddress(), record.getUsername(), record.getPassword());
             this.tablePrefix = record.getTablePrefix();
             this.serializer = new SQLDataSerializer();
+            this.fetchSize = record.getBatchSize();
         } catch (SQLException e) {
             throw new StorageInitException("Failed to connect to MySQL database! (Did you configure it correctly?)", e);
         }
@@ -85,14 +98,63 @@ public class MySQLStorage extends DataManager {
                 try (PreparedStatement statement = connection.prepareStatement("CREATE TABLE IF NOT EXISTS " + tablePrefix + table)) {
                     statement.execute();
                 }
+                String name = table.substring(0, table.indexOf(' '));
+                if (LOCATED_TABLES.contains(name)) {
+                    ensureLocationColumns(name);
+                }
             }
         } catch (SQLException e) {
             throw new StorageInitException("Failed to create tables!", e);
         }
     }
 
+    // Tables created by older versions don't have the location columns yet, add and fill them
+    private void ensureLocationColumns(String table) throws SQLException {
+        boolean hasWorld = hasColumn(table, "world");
+        boolean hasChunk = hasColumn(table, "chunk");
+        if (hasWorld && hasChunk) {
+            return;
+        }
+        List<String> changes = new ArrayList<>();
+        if (!hasWorld) {
+            changes.add("ADD COLUMN world VARCHAR(36)");
+        }
+        changes.add("ADD COLUMN chunk BIGINT");
+        changes.add("ADD INDEX location_index (world, chunk)");
+        try (PreparedStatement statement = connection.prepareStatement("ALTER TABLE " + tablePrefix + table + " " + String.join(", ", changes))) {
+            statement.execute();
+        }
+        backfillLocationColumns(table);
+    }
+
+    private boolean hasColumn(String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, tablePrefix + table, column)) {
+            return columns.next();
+        }
+    }
+
+    private void backfillLocationColumns(String table) throws SQLException {
+        String selectSql = "SELECT id, data FROM " + tablePrefix + table;
+        String updateSql = "UPDATE " + tablePrefix + table + " SET world = ?, chunk = ? WHERE id = ?";
+        try (PreparedStatement selectStmt = connection.prepareStatement(selectSql);
+             ResultSet resultSet = selectStmt.executeQuery();
+             PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
+
+            while (resultSet.next()) {
+                String location = serializer.getSerializedLocation(resultSet.getString("data"));
+                if (location != null) {
+                    updateStmt.setString(1, getWorldId(location));
+                    updateStmt.setObject(2, getChunkKey(location), Types.BIGINT);
+                    updateStmt.setString(3, resultSet.getString("id"));
+                    updateStmt.addBatch();
+                }
+            }
+            updateStmt.executeBatch();
+        }
+    }
+
     @Override
-    protected void closeConnection() {
+    protected synchronized void closeConnection() {
         try {
             connection.close();
         } catch (SQLException e) {
@@ -102,7 +164,7 @@ public class MySQLStorage extends DataManager {
 
 
     @Override
-    public boolean createTable(String name, int maxIdLength) {
+    public synchronized boolean createTable(String name, int maxIdLength) {
         String sql = "CREATE TABLE IF NOT EXISTS " + tablePrefix + name + " (id VARCHAR(" + maxIdLength + ") PRIMARY KEY, data LONGTEXT);";
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.execute();
@@ -114,7 +176,7 @@ public class MySQLStorage extends DataManager {
     }
 
     @Override
-    public boolean dropTable(String name) {
+    public synchronized boolean dropTable(String name) {
         String sql = "DROP TABLE IF EXISTS " + tablePrefix + name;
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.execute();
@@ -126,7 +188,7 @@ public class MySQLStorage extends DataManager {
     }
 
     @Override
-    public <T extends SerializableThing> T getGeneric(String id, String table, Class<T> type) {
+    public synchronized <T extends SerializableThing> T getGeneric(String id, String table, Class<T> type) {
         String sql = "SELECT data FROM " + tablePrefix + table + " WHERE id = ?";
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, id.toString());
@@ -142,7 +204,7 @@ public class MySQLStorage extends DataManager {
     }
 
     @Override
-    public <T extends SerializableThing> List<T> getAllGeneric(String table, Class<T> type) {
+    public synchronized <T extends SerializableThing> List<T> getAllGeneric(String table, Class<T> type) {
         String sql = "SELECT id, data FROM " + tablePrefix + table;
         List<T> objects = new ArrayList<>();
 
@@ -159,6 +221,27 @@ public class MySQLStorage extends DataManager {
         return objects;
     }
 
+    @Override
+    public synchronized <T extends SerializableThing> void streamAllGeneric(String table, Class<T> type, @Nullable UUID worldUuid, Consumer<Supplier<T>> sink) {
+        String sql = "SELECT data FROM " + tablePrefix + table + (worldUuid != null ? " WHERE world = ?" : "");
+        // MySQL only honours the fetch size when 'useCursorFetch=true' is part of the address
+        try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            if (worldUuid != null) {
+                statement.setString(1, worldUuid.toString());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    // Decoding the Base64 and JSON is left to whoever calls the supplier
+                    String data = resultSet.getString("data");
+                    sink.accept(() -> serializer.deserialize(data, type));
+                }
+            }
+        } catch (SQLException e) {
+            Logging.errorLog("Failed to stream objects from table: " + table + ", from: MySQL!", e);
+        }
+    }
+
     public <T extends SerializableThing> void saveAllGeneric(List<T> serializableThings, String table) {
         saveAllGeneric(serializableThings, table, null);
     }
@@ -166,11 +249,23 @@ public class MySQLStorage extends DataManager {
     // Batch saving/deleting
     @Override
     public <T extends SerializableThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type) {
-        String createTempTableSql = "CREATE TEMPORARY TABLE temp_" + table + " (id VARCHAR(36), data LONGTEXT, PRIMARY KEY (id))";
-        String insertTempTableSql = "INSERT INTO temp_" + table + " (id, data) VALUES (?, ?) ON DUPLICATE KEY UPDATE data = VALUES(data)";
-        String replaceTableSql = "REPLACE INTO " + tablePrefix + table + " SELECT * FROM temp_" + table;
+        saveAllInWorld(serializableThings, table, null);
+    }
+
+    @Override
+    public <T extends WorldBoundThing> void saveAllGeneric(List<T> serializableThings, String table, @Nullable Class<T> type, UUID worldUuid) {
+        saveAllInWorld(serializableThings, table, worldUuid);
+    }
+
+    // Only rows of the given world are replaced, or the whole table if no world is given
+    private synchronized <T extends SerializableThing> void saveAllInWorld(List<T> serializableThings, String table, @Nullable UUID worldUuid) {
+        boolean located = LOCATED_TABLES.contains(table);
+        String columns = located ? "id, data, world, chunk" : "id, data";
+        String createTempTableSql = "CREATE TEMPORARY TABLE temp_" + table + " (id VARCHAR(36), data LONGTEXT" + (located ? ", world VARCHAR(36), chunk BIGINT" : "") + ", PRIMARY KEY (id))";
+        String insertTempTableSql = upsertSql("temp_" + table, table);
+        String replaceTableSql = "REPLACE INTO " + tablePrefix + table + " (" + columns + ") SELECT " + columns + " FROM temp_" + table;
         String dropTempTableSql = "DROP TEMPORARY TABLE temp_" + table;
-        String deleteOldRecordsSql = "DELETE FROM " + tablePrefix + table + " WHERE id NOT IN (SELECT id FROM temp_" + table + ")";
+        String deleteOldRecordsSql = "DELETE FROM " + tablePrefix + table + " WHERE id NOT IN (SELECT id FROM temp_" + table + ")" + (worldUuid != null ? " AND world = ?" : "");
 
         try {
             connection.setAutoCommit(false);
@@ -181,13 +276,15 @@ public class MySQLStorage extends DataManager {
                 createTempTableStmt.execute();
 
                 for (SerializableThing serializableThing : serializableThings) {
-                    insertTempTableStmt.setString(1, serializableThing.getId());
-                    insertTempTableStmt.setString(2, serializer.serialize(serializableThing));
+                    bindRow(insertTempTableStmt, serializableThing, table);
                     insertTempTableStmt.addBatch();
                 }
                 insertTempTableStmt.executeBatch();
 
                 try (PreparedStatement deleteStmt = connection.prepareStatement(deleteOldRecordsSql)) {
+                    if (worldUuid != null) {
+                        deleteStmt.setString(1, worldUuid.toString());
+                    }
                     deleteStmt.executeUpdate();
                 }
 
@@ -210,12 +307,27 @@ public class MySQLStorage extends DataManager {
         }
     }
 
+    private static String upsertSql(String into, String table) {
+        if (LOCATED_TABLES.contains(table)) {
+            return "INSERT INTO " + into + " (id, data, world, chunk) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE data = VALUES(data), world = VALUES(world), chunk = VALUES(chunk)";
+        }
+        return "INSERT INTO " + into + " (id, data) VALUES (?, ?) ON DUPLICATE KEY UPDATE data = VALUES(data)";
+    }
+
+    private void bindRow(PreparedStatement statement, SerializableThing serializableThing, String table) throws SQLException {
+        statement.setString(1, serializableThing.getId());
+        statement.setString(2, serializer.serialize(serializableThing));
+        if (LOCATED_TABLES.contains(table)) {
+            statement.setString(3, serializer.getWorldId(serializableThing));
+            statement.setObject(4, serializer.getChunkKey(serializableThing), Types.BIGINT);
+        }
+    }
+
     @Override
-    public <T extends SerializableThing> void saveGeneric(T serializableThing, String table) {
-        String sql = "INSERT INTO " + tablePrefix + table + " (id, data) VALUES (?, ?) ON DUPLICATE KEY UPDATE data = VALUES(data)";
+    public synchronized <T extends SerializableThing> void saveGeneric(T serializableThing, String table) {
+        String sql = upsertSql(tablePrefix + table, table);
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, serializableThing.getId());
-            statement.setString(2, serializer.serialize(serializableThing));
+            bindRow(statement, serializableThing, table);
             statement.execute();
         } catch (SQLException e) {
             Logging.errorLog("Failed to save object to:" + table + ", to: MySQL!", e);
@@ -223,7 +335,30 @@ public class MySQLStorage extends DataManager {
     }
 
     @Override
-    public void deleteGeneric(String id, String table) {
+    public synchronized <T extends SerializableThing> void upsertAllGeneric(List<T> serializableThings, String table) {
+        String sql = upsertSql(tablePrefix + table, table);
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (SerializableThing serializableThing : serializableThings) {
+                    bindRow(statement, serializableThing, table);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                Logging.errorLog("Failed to save objects to: " + table + " due to MySQL exception!", e);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            Logging.errorLog("Failed to manage transaction for saving objects to: " + table + " due to MySQL exception!", e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteGeneric(String id, String table) {
         String sql = "DELETE FROM " + tablePrefix + table + " WHERE id = ?";
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, id);
@@ -233,6 +368,71 @@ public class MySQLStorage extends DataManager {
         }
     }
 
+    @Override
+    public synchronized void deleteAllGenericExcept(String table, UUID worldUuid, Set<String> keepIds) {
+        String selectSql = "SELECT id FROM " + tablePrefix + table + " WHERE world = ?";
+        String deleteSql = "DELETE FROM " + tablePrefix + table + " WHERE id = ?";
+        try {
+            // Usually nothing or only a few rows are stale, collect them before touching the table
+            List<String> staleIds = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+                statement.setString(1, worldUuid.toString());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String id = resultSet.getString("id");
+                        if (!keepIds.contains(id)) {
+                            staleIds.add(id);
+                        }
+                    }
+                }
+            }
+            if (staleIds.isEmpty()) {
+                return;
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(deleteSql)) {
+                for (String id : staleIds) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                Logging.errorLog("Failed to delete objects from: " + table + " due to MySQL exception!", e);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            Logging.errorLog("Failed to delete objects from: " + table + ", from: MySQL!", e);
+        }
+    }
+
+    @Override
+    public synchronized void streamBarrelsInChunks(UUID worldUuid, Collection<Long> chunkKeys, Consumer<Supplier<SerializableBarrel>> sink) {
+        List<Long> keys = List.copyOf(chunkKeys);
+        // Keep the amount of parameters per query reasonable
+        for (int start = 0; start < keys.size(); start += CHUNKS_PER_QUERY) {
+            List<Long> batch = keys.subList(start, Math.min(keys.size(), start + CHUNKS_PER_QUERY));
+            String sql = "SELECT data FROM " + tablePrefix + "barrels WHERE world = ? AND chunk IN (" + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, worldUuid.toString());
+                for (int i = 0; i < batch.size(); i++) {
+                    statement.setLong(i + 2, batch.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String data = resultSet.getString("data");
+                        sink.accept(() -> serializer.deserialize(data, SerializableBarrel.class));
+                    }
+                }
+            } catch (SQLException e) {
+                Logging.errorLog("Failed to load barrels of " + batch.size() + " chunks from: MySQL!", e);
+            }
+        }
+    }
+
     @Override
     public CompletableFuture<Barrel> getBarrel(UUID id) {
         SerializableBarrel serializableBarrel = getGeneric(id.toString(), "barrels", SerializableBarrel.class);
@@ -373,7 +573,7 @@ public class MySQLStorage extends DataManager {
     }
 
     @Override
-    public BreweryMiscData getBreweryMiscData() {
+    public synchronized BreweryMiscData getBreweryMiscData() {
         String sql = "SELECT CASE WHEN EXISTS (SELECT 1 FROM " + tablePrefix + "misc WHERE id = 'misc') THEN (SELECT data FROM " + tablePrefix + "misc WHERE id = 'misc') ELSE NULL END AS data";
         try (PreparedStatement statement = connection.prepareStatement(sql);
              ResultSet resultSet = statement.executeQuery()) {
@@ -383,11 +583,11 @@ public class MySQLStorage extends DataManager {
         } catch (SQLException e) {
             Logging.errorLog("Failed to retrieve misc data from MySQL!", e);
         }
-        return new BreweryMiscData(System.currentTimeMillis(), 0, new ArrayList<>(), new ArrayList<>(), 0);
+        return new BreweryMiscData(System.currentTimeMillis(), 0, new ArrayList<>(), new ArrayList<>(), 0, 0L);
     }
 
     @Override
-    public void saveBreweryMiscData(BreweryMiscData data) {
+    public synchronized void saveBreweryMiscData(BreweryMiscData data) {
         String sql = "INSERT INTO " + tablePrefix + "misc (id, data) VALUES ('misc', ?) ON DUPLICATE KEY UPDATE data = VALUES(data)";
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, serializer.serialize(data));
@@ -0,0 +1,57 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.storage.interfaces;
+
+import com.dre.brewery.storage.DataManager;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link SerializableThing} which is located in a single world.
+ * Storage implementations partition these by their world and chunk, so a world or chunk can be loaded and saved on its own.
+ */
+public interface WorldBoundThing extends SerializableThing {
+
+    /**
+     * @return The location of this object, as serialized by {@link DataManager#serializeLocation}
+     */
+    String serializedLocation();
+
+    /**
+     * The uuid of the world this object is located in.
+     *
+     * @return The world's uuid as a String, or null if it can't be determined
+     */
+    @Nullable
+    default String getWorldId() {
+        return DataManager.getWorldId(serializedLocation());
+    }
+
+    /**
+     * The key of the chunk this object is located in.
+     *
+     * @return The chunk key, or null if it can't be determined
+     * @see com.dre.brewery.utility.BUtil#getChunkKey(int, int)
+     */
+    @Nullable
+    default Long getChunkKey() {
+        return DataManager.getChunkKey(serializedLocation());
+    }
+}
@@ -22,6 +22,8 @@ package com.dre.brewery.storage.records;
 
 import com.dre.brewery.storage.interfaces.SerializableThing;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.util.List;
 
 /**
@@ -30,7 +32,7 @@ import java.util.List;
  * read through by me.
  */
 public record BreweryMiscData(long installTime, long mcBarrelTime, List<Long> prevSaveSeeds, List<Integer> brewsCreated,
-                              int brewsCreatedHash) implements SerializableThing {
+                              int brewsCreatedHash, @Nullable Long barrelEpoch) implements SerializableThing {
 
     @Override
     public String getId() {
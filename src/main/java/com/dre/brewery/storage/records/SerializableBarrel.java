@@ -22,11 +22,12 @@ package com.dre.brewery.storage.records;
 
 import com.dre.brewery.Barrel;
 import com.dre.brewery.storage.DataManager;
-import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.storage.serialization.BukkitSerialization;
 import com.dre.brewery.utility.BUtil;
 import com.dre.brewery.utility.BoundingBox;
 import org.bukkit.Location;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -40,11 +41,25 @@ import java.util.concurrent.CompletableFuture;
  * @param time               no idea
  * @param sign               The sign byte offset the barrel
  * @param serializedItems    Serialized ItemStacks 'BukkitSerialization.itemStackArrayToBase64(ItemStack[])'
+ * @param epoch              The {@link Barrel#getAgingEpoch() ageing epoch} up to which 'time' is counted, null if unknown
+ * @param chunk              The key of the chunk the spigot is in, stored for the chunk index of storages
  */
 public record SerializableBarrel(String id, String serializedLocation, List<Integer> bounds, float time, byte sign,
-                                 String serializedItems) implements SerializableThing {
+                                 String serializedItems, @Nullable Long epoch, @Nullable Long chunk) implements WorldBoundThing {
     public SerializableBarrel(Barrel barrel) {
-        this(barrel.getId().toString(), DataManager.serializeLocation(barrel.getSpigot().getLocation()), barrel.getBounds().serializeToIntList(), barrel.getTime(), barrel.getSignoffset(), BukkitSerialization.itemStackArrayToBase64(barrel.getInventory().getContents()));
+        this(barrel, barrel.getAgingState());
+    }
+
+    private SerializableBarrel(Barrel barrel, Barrel.AgingState aging) {
+        this(barrel.getId().toString(), DataManager.serializeLocation(barrel.getSpigot().getLocation()), barrel.getBounds().serializeToIntList(), aging.time(), barrel.getSignoffset(), BukkitSerialization.itemStackArrayToBase64(barrel.getInventory().getContents()),
+            aging.epoch(), BUtil.getChunkKey(barrel.getSpigot().getX() >> 4, barrel.getSpigot().getZ() >> 4));
+    }
+
+    /**
+     * The time this barrel has aged, including the minutes it spent in storage since it was saved.
+     */
+    public float currentTime() {
+        return epoch == null ? time : time + Barrel.getAgingSince(epoch);
     }
 
     public CompletableFuture<Barrel> toBarrel() {
@@ -53,7 +68,7 @@ public record SerializableBarrel(String id, String serializedLocation, List<Inte
             return null;
         }
         return Barrel.computeSmall(loc).thenApplyAsync(small ->
-            new Barrel(loc.getBlock(), sign, BoundingBox.fromPoints(bounds), BukkitSerialization.itemStackArrayFromBase64(serializedItems), time, BUtil.uuidFromString(id), small)
+            new Barrel(loc.getBlock(), sign, BoundingBox.fromPoints(bounds), BukkitSerialization.itemStackArrayFromBase64(serializedItems), currentTime(), BUtil.uuidFromString(id), small)
         );
     }
 
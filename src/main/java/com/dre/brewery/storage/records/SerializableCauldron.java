@@ -23,7 +23,7 @@ package com.dre.brewery.storage.records;
 import com.dre.brewery.BCauldron;
 import com.dre.brewery.BIngredients;
 import com.dre.brewery.storage.DataManager;
-import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.utility.BUtil;
 import org.bukkit.Location;
 
@@ -36,7 +36,7 @@ import org.bukkit.Location;
  * @param state                 The state
  */
 public record SerializableCauldron(String id, String serializedLocation, String serializedIngredients,
-                                   int state) implements SerializableThing {
+                                   int state) implements WorldBoundThing {
     public SerializableCauldron(BCauldron cauldron) {
         this(cauldron.getId().toString(), DataManager.serializeLocation(cauldron.getBlock().getLocation()), cauldron.getIngredients().serializeIngredients(), cauldron.getState());
     }
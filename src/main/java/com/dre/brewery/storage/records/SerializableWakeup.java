@@ -22,7 +22,7 @@ package com.dre.brewery.storage.records;
 
 import com.dre.brewery.Wakeup;
 import com.dre.brewery.storage.DataManager;
-import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.dre.brewery.utility.BUtil;
 import org.bukkit.Location;
 
@@ -32,7 +32,7 @@ import org.bukkit.Location;
  * @param id                 The UUID of the wakeup
  * @param serializedLocation The Location of the wakeup
  */
-public record SerializableWakeup(String id, String serializedLocation) implements SerializableThing {
+public record SerializableWakeup(String id, String serializedLocation) implements WorldBoundThing {
     public SerializableWakeup(Wakeup wakeup) {
         this(wakeup.getId().toString(), DataManager.serializeLocation(wakeup.getLoc(), true));
     }
@@ -20,9 +20,15 @@
 
 package com.dre.brewery.storage.serialization;
 
+import com.dre.brewery.integration.metrics.BreweryMetrics;
+import com.dre.brewery.storage.interfaces.SerializableThing;
+import com.dre.brewery.storage.interfaces.WorldBoundThing;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Modifier;
 import java.util.Base64;
@@ -35,7 +41,10 @@ public class SQLDataSerializer {
     private final Gson gson = new GsonBuilder().setPrettyPrinting().excludeFieldsWithModifiers(Modifier.STATIC).create();
 
     public String serialize(Object object) {
-        return Base64.getEncoder().encodeToString(gson.toJson(object).getBytes());
+        String data = Base64.getEncoder().encodeToString(gson.toJson(object).getBytes());
+        // Base64 is ASCII, one byte per char
+        BreweryMetrics.STORAGE_BYTES_WRITTEN.add(data.length());
+        return data;
     }
 
     public <T> T deserialize(String data, Class<T> type) {
@@ -49,4 +58,35 @@ public class SQLDataSerializer {
             return defaultValue;
         }
     }
+
+    /**
+     * @return The world uuid to store alongside the serialized object, null if it isn't bound to a world
+     */
+    @Nullable
+    public String getWorldId(SerializableThing thing) {
+        return thing instanceof WorldBoundThing worldBound ? worldBound.getWorldId() : null;
+    }
+
+    /**
+     * @return The chunk key to store alongside the serialized object, null if it isn't bound to a world
+     */
+    @Nullable
+    public Long getChunkKey(SerializableThing thing) {
+        return thing instanceof WorldBoundThing worldBound ? worldBound.getChunkKey() : null;
+    }
+
+    /**
+     * Read the serialized location from already serialized data, without knowing its type.
+     *
+     * @return The serialized location, null if the data has none
+     */
+    @Nullable
+    public String getSerializedLocation(String data) {
+        JsonObject json = deserialize(data, JsonObject.class, null);
+        if (json == null) {
+            return null;
+        }
+        JsonElement location = json.get("serializedLocation");
+        return location != null && location.isJsonPrimitive() ? location.getAsString() : null;
+    }
 }
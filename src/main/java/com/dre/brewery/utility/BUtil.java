@@ -27,6 +27,7 @@ import com.dre.brewery.BreweryPlugin;
 import com.dre.brewery.api.events.barrel.BarrelDestroyEvent;
 import com.dre.brewery.configuration.ConfigManager;
 import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Color;
@@ -48,13 +49,16 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -69,7 +73,11 @@ public final class BUtil {
     /* *********                      ********* */
     /* **************************************** */
 
-    private static final String WITH_DELIMITER = "((?<=%1$s)|(?=%1$s))";
+    // The codes ChatColor.translateAlternateColorCodes translates
+    private static final String COLOR_CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+    private static final int COLOR_CACHE_SIZE = 1024;
+    private static final Map<String, String> colorCache = new ConcurrentHashMap<>();
+    private static final BreweryMetrics.CacheStats COLOR_CACHE_STATS = BreweryMetrics.cache("color");
     private static final MinecraftVersion VERSION = BreweryPlugin.getMCVersion();
     private static final Pattern RANGE_PATTERN = Pattern.compile("([-+]?\\d+)\\.\\.([-+]?\\d+)");
 
@@ -80,6 +88,21 @@ public final class BUtil {
         return block.getWorld().isChunkLoaded(block.getX() >> 4, block.getZ() >> 4);
     }
 
+    /**
+     * Pack chunk coordinates into a single long, the same way Paper's Chunk#getChunkKey does.
+     */
+    public static long getChunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | ((chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    public static int getChunkX(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    public static int getChunkZ(long chunkKey) {
+        return (int) (chunkKey >>> 32);
+    }
+
     /**
      * Color code a message. Supports HEX colors and default minecraft colors!
      *
@@ -88,26 +111,69 @@ public final class BUtil {
      */
     public static String color(String msg) {
         if (msg == null) return null;
-        String[] texts = msg.split(String.format(WITH_DELIMITER, "&"));
+        if (msg.indexOf('&') < 0) return msg;
 
-        StringBuilder finalText = new StringBuilder();
-
-        for (int i = 0; i < texts.length; i++) {
-            if (texts[i].equalsIgnoreCase("&")) {
-                //get the next string
-                i++;
-                if (texts[i].charAt(0) == '#') {
-                    finalText.append(net.md_5.bungee.api.ChatColor.of(texts[i].substring(0, 7))).append(texts[i].substring(7));
-                } else {
-                    finalText.append(ChatColor.translateAlternateColorCodes('&', "&" + texts[i]));
+        String colored = colorCache.get(msg);
+        if (colored != null) {
+            COLOR_CACHE_STATS.hit();
+        } else {
+            COLOR_CACHE_STATS.miss();
+            colored = translateColors(msg);
+            if (colorCache.size() >= COLOR_CACHE_SIZE) {
+                // Starting over is cheaper than tracking what's used, the frequent messages are back soon
+                colorCache.clear();
+            }
+            colorCache.put(msg, colored);
+        }
+        return colored;
+    }
+
+    // &#rrggbb and the &-codes of ChatColor, in one pass. Anything else is left as it is
+    private static String translateColors(String msg) {
+        int length = msg.length();
+        StringBuilder finalText = new StringBuilder(length + 16);
+        for (int i = 0; i < length; i++) {
+            char c = msg.charAt(i);
+            if (c == '&' && i + 1 < length) {
+                char code = msg.charAt(i + 1);
+                if (code == '#' && isHexColor(msg, i + 2)) {
+                    // The digits keep their case, like ChatColor.of(String) does
+                    finalText.append(ChatColor.COLOR_CHAR).append('x');
+                    for (int hex = i + 2; hex < i + 8; hex++) {
+                        finalText.append(ChatColor.COLOR_CHAR).append(msg.charAt(hex));
+                    }
+                    i += 7;
+                    continue;
+                }
+                if (COLOR_CODES.indexOf(code) >= 0) {
+                    finalText.append(ChatColor.COLOR_CHAR).append(Character.toLowerCase(code));
+                    i++;
+                    continue;
+                }
+                if (code == '&') {
+                    // "&&" stays as it is and doesn't color what follows
+                    finalText.append("&&");
+                    i++;
+                    continue;
                 }
-            } else {
-                finalText.append(texts[i]);
             }
+            finalText.append(c);
         }
         return finalText.toString();
     }
 
+    private static boolean isHexColor(String msg, int start) {
+        if (start + 6 > msg.length()) {
+            return false;
+        }
+        for (int i = start; i < start + 6; i++) {
+            if (Character.digit(msg.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static List<String> colorArrayList(List<String> list) {
         if (list == null) return null;
         return list.stream().map(BUtil::color).toList();
@@ -440,6 +506,33 @@ public final class BUtil {
         return true;
     }
 
+    /**
+     * Many blocks are destroyed at once, like in an explosion.
+     * <p>Every affected Barrel is asked for permission and removed once, not once per block.
+     *
+     * @param blocks The destroyed blocks, blocks of Barrels that may not be destroyed are taken out of it
+     */
+    public static void blocksDestroy(World world, List<Block> blocks, @Nullable Player player, BarrelDestroyEvent.Reason reason) {
+        BCauldron.removeAll(blocks);
+        Map<Barrel, List<Block>> affected = Barrel.getAffected(world, blocks);
+        if (affected.isEmpty()) {
+            return;
+        }
+        Set<Block> kept = new HashSet<>();
+        for (Map.Entry<Barrel, List<Block>> entry : affected.entrySet()) {
+            Barrel barrel = entry.getKey();
+            Block first = entry.getValue().get(0);
+            if (barrel.hasPermsDestroy(player, first, reason)) {
+                barrel.remove(first, player, true);
+            } else {
+                kept.addAll(entry.getValue());
+            }
+        }
+        if (!kept.isEmpty()) {
+            blocks.removeIf(kept::contains);
+        }
+    }
+
     /* **************************************** */
     /* *********                      ********* */
     /* *********     Other Utils      ********* */
@@ -66,7 +66,7 @@ public class BoundingBox {
     }
 
     public long volume() {
-        return ((long) (max.z - min.z + 1)) * ((long) (max.y - min.y + 1)) * ((long) (max.z - min.z + 1));
+        return ((long) (max.x - min.x + 1)) * ((long) (max.y - min.y + 1)) * ((long) (max.z - min.z + 1));
     }
 
     // Quick check if the bounds are valid or seem corrupt
@@ -0,0 +1,104 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message with the parameters &amp;v1 to &amp;v9, split once into its text and the parameters in between.
+ * <p>The text is colored in advance, so formatting it only has to color the arguments.
+ * Like before, &amp;v1 is the first argument that isn't null.
+ */
+public final class MessageTemplate {
+
+    private final String raw;
+    private final String colored;
+    // One more text than parameters, the text before, between and after them
+    private final String[] texts;
+    private final String[] coloredTexts;
+    private final int[] params;
+
+    private MessageTemplate(String raw, String[] texts, int[] params) {
+        this.raw = raw;
+        this.colored = BUtil.color(raw);
+        this.texts = texts;
+        this.params = params;
+        this.coloredTexts = new String[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            coloredTexts[i] = BUtil.color(texts[i]);
+        }
+    }
+
+    public static MessageTemplate compile(String raw) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> params = new ArrayList<>();
+        int textStart = 0;
+        int index = raw.indexOf("&v");
+        while (index >= 0) {
+            char digit = index + 2 < raw.length() ? raw.charAt(index + 2) : 0;
+            if (digit >= '1' && digit <= '9') {
+                texts.add(raw.substring(textStart, index));
+                params.add(digit - '0');
+                textStart = index + 3;
+            }
+            index = raw.indexOf("&v", index + 2);
+        }
+        texts.add(raw.substring(textStart));
+        return new MessageTemplate(raw, texts.toArray(new String[0]), params.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @param color If the message should be colored, arguments included
+     * @param args  The arguments for the parameters, null arguments are skipped
+     */
+    public String format(boolean color, Object... args) {
+        if (params.length == 0) {
+            return color ? colored : raw;
+        }
+        String[] values = new String[args.length];
+        int count = 0;
+        for (Object arg : args) {
+            if (arg != null) {
+                values[count++] = arg.toString();
+            }
+        }
+
+        String[] texts = color ? coloredTexts : this.texts;
+        StringBuilder message = new StringBuilder(raw.length() + 16 * count);
+        message.append(texts[0]);
+        for (int i = 0; i < params.length; i++) {
+            int param = params[i];
+            if (param <= count) {
+                message.append(color ? BUtil.color(values[param - 1]) : values[param - 1]);
+            } else {
+                // No argument for it, left in the message
+                message.append("&v").append(param);
+            }
+            message.append(texts[i + 1]);
+        }
+        return message.toString();
+    }
+
+    public String getRaw() {
+        return raw;
+    }
+}
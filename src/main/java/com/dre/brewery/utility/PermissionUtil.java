@@ -20,20 +20,58 @@
 
 package com.dre.brewery.utility;
 
+import com.dre.brewery.integration.metrics.BreweryMetrics;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.PermissionAttachmentInfo;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class PermissionUtil {
 
-    public static Map<CommandSender, Boolean> extendedPermsCache = new HashMap<>();
+    private static final String SENSITIVE_PERMISSION = "brewery.sensitive.";
+    private static final String RECOVERY_PERMISSION = "brewery.recovery.";
+    // Permission plugins don't tell us when they change a players permissions, so the ranges are looked up again after a while
+    private static final long RANGED_CACHE_TTL = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * The ranged permissions of a player, parsed in one walk over their effective permissions.
+     */
+    private record RangedPermissions(int sensitive, int recovery, long expiresAt) {
+    }
+
+    // Read from the chat and region threads as well
+    private static final Map<UUID, Boolean> extendedPermsCache = new ConcurrentHashMap<>();
+    private static final Map<UUID, RangedPermissions> rangedPermsCache = new ConcurrentHashMap<>();
+    private static final BreweryMetrics.CacheStats EXTENDED_CACHE_STATS = BreweryMetrics.cache("permission_extended");
+    private static final BreweryMetrics.CacheStats RANGED_CACHE_STATS = BreweryMetrics.cache("permission_ranged");
 
     public static void logout(CommandSender sender) {
-        extendedPermsCache.remove(sender);
+        if (sender instanceof Entity entity) {
+            invalidate(entity.getUniqueId());
+        }
+    }
+
+    /**
+     * Forget the cached permissions of a player, they are looked up again on next use.
+     * <p>Call when the permissions of the player changed.
+     */
+    public static void invalidate(UUID uuid) {
+        extendedPermsCache.remove(uuid);
+        rangedPermsCache.remove(uuid);
+    }
+
+    /**
+     * Forget the cached permissions of all players.
+     */
+    public static void invalidateAll() {
+        extendedPermsCache.clear();
+        rangedPermsCache.clear();
     }
 
     /**
@@ -43,15 +81,21 @@ public class PermissionUtil {
      * @param sender The sender of which to update the permission cache
      */
     public static void evaluateExtendedPermissions(CommandSender sender) {
+        boolean extendedPerms = hasExtendedPermissions(sender);
+        if (sender instanceof Entity entity) {
+            extendedPermsCache.put(entity.getUniqueId(), extendedPerms);
+        }
+    }
+
+    private static boolean hasExtendedPermissions(CommandSender sender) {
         for (BPermission perm : BPermission.values()) {
             if (perm != BPermission.UNLABEL) { // This is the default permission
                 if (sender.hasPermission(perm.permission)) {
-                    extendedPermsCache.put(sender, true);
-                    return;
+                    return true;
                 }
             }
         }
-        extendedPermsCache.put(sender, false);
+        return false;
     }
 
     /**
@@ -60,14 +104,21 @@ public class PermissionUtil {
      * @return false if there _might be_ more permissions for this sender
      */
     public static boolean noExtendedPermissions(CommandSender sender) {
-        Boolean extendedPerms = extendedPermsCache.get(sender);
+        if (!(sender instanceof Entity entity)) {
+            // The console and command blocks aren't cached
+            return !hasExtendedPermissions(sender);
+        }
+        Boolean extendedPerms = extendedPermsCache.get(entity.getUniqueId());
 
-        if (extendedPerms == null) {
-            evaluateExtendedPermissions(sender);
-            extendedPerms = extendedPermsCache.get(sender);
+        if (extendedPerms != null) {
+            EXTENDED_CACHE_STATS.hit();
+        } else {
+            EXTENDED_CACHE_STATS.miss();
+            extendedPerms = hasExtendedPermissions(sender);
+            extendedPermsCache.put(entity.getUniqueId(), extendedPerms);
         }
 
-        return extendedPerms == null || !extendedPerms;
+        return !extendedPerms;
     }
 
     /**
@@ -112,7 +163,10 @@ public class PermissionUtil {
      * @return The Players alcohol sensitivity
      */
     public static int getDrinkSensitive(Permissible player) {
-        return getRangedPermission(player, "brewery.sensitive.");
+        if (player instanceof Entity entity) {
+            return getRangedPermissions(entity).sensitive();
+        }
+        return getRangedPermission(player, SENSITIVE_PERMISSION);
     }
 
     /**
@@ -123,7 +177,36 @@ public class PermissionUtil {
      * @return The Players alcohol recovery rate
      */
     public static int getAlcRecovery(Permissible player) {
-        return getRangedPermission(player, "brewery.recovery.");
+        if (player instanceof Entity entity) {
+            return getRangedPermissions(entity).recovery();
+        }
+        return getRangedPermission(player, RECOVERY_PERMISSION);
+    }
+
+    private static RangedPermissions getRangedPermissions(Entity player) {
+        long now = System.currentTimeMillis();
+        RangedPermissions ranged = rangedPermsCache.get(player.getUniqueId());
+        if (ranged != null && ranged.expiresAt() >= now) {
+            RANGED_CACHE_STATS.hit();
+        } else {
+            RANGED_CACHE_STATS.miss();
+            int sensitive = -1;
+            int recovery = -1;
+            for (PermissionAttachmentInfo info : player.getEffectivePermissions()) {
+                if (!info.getValue()) { // Only active permissions
+                    continue;
+                }
+                String permission = info.getPermission();
+                if (sensitive == -1 && permission.startsWith(SENSITIVE_PERMISSION)) {
+                    sensitive = parseRange(permission);
+                } else if (recovery == -1 && permission.startsWith(RECOVERY_PERMISSION)) {
+                    recovery = parseRange(permission);
+                }
+            }
+            ranged = new RangedPermissions(sensitive, recovery, now + RANGED_CACHE_TTL);
+            rangedPermsCache.put(player.getUniqueId(), ranged);
+        }
+        return ranged;
     }
 
     /**
@@ -140,16 +223,17 @@ public class PermissionUtil {
                 filter(x -> x.getPermission().startsWith(subPermission)).
             findFirst();
 
-        if (found.isPresent()) {
-            String permission = found.get().getPermission();
-            int lastDot = permission.lastIndexOf('.');
-            try {
-                int value = Integer.parseInt(permission.substring(lastDot + 1));
-                if (value >= 0) {
-                    return value;
-                }
-            } catch (NumberFormatException ignored) {
+        return found.map(info -> parseRange(info.getPermission())).orElse(-1);
+    }
+
+    private static int parseRange(String permission) {
+        int lastDot = permission.lastIndexOf('.');
+        try {
+            int value = Integer.parseInt(permission.substring(lastDot + 1));
+            if (value >= 0) {
+                return value;
             }
+        } catch (NumberFormatException ignored) {
         }
         return -1;
     }
@@ -0,0 +1,93 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.ToLongFunction;
+
+/**
+ * Spreads work on many objects evenly over a cycle of ticks.
+ * <p>Every object has a stable phase within the cycle, derived from its key, so it's always processed
+ * in the same tick of every cycle and exactly once per cycle.
+ *
+ * @param <T> Type of the objects
+ */
+public class StaggeredCycle<T> {
+
+    private final List<List<T>> phases;
+    private final ToLongFunction<T> key;
+
+    /**
+     * @param length Ticks per cycle
+     * @param key    Stable key of an object, its phase is derived from it
+     */
+    public StaggeredCycle(int length, ToLongFunction<T> key) {
+        this.phases = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            phases.add(new ArrayList<>(0));
+        }
+        this.key = key;
+    }
+
+    public static long key(UUID id) {
+        return id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+    }
+
+    public int getLength() {
+        return phases.size();
+    }
+
+    public int phaseOf(T object) {
+        // Mix the bits first, keys that only differ in a few bits would otherwise land in the same phases
+        long hash = key.applyAsLong(object);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) phases.size());
+    }
+
+    /**
+     * Start a new cycle with the given objects, replacing everything that wasn't processed in the last one.
+     */
+    public void fill(Collection<T> objects) {
+        for (List<T> phase : phases) {
+            phase.clear();
+        }
+        for (T object : objects) {
+            phases.get(phaseOf(object)).add(object);
+        }
+    }
+
+    /**
+     * Take the objects of a phase, they're removed from the cycle.
+     */
+    public List<T> drain(int phase) {
+        List<T> objects = phases.get(phase);
+        if (objects.isEmpty()) {
+            return List.of();
+        }
+        phases.set(phase, new ArrayList<>(0));
+        return objects;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility;
+
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.configuration.ConfigManager;
+import com.dre.brewery.configuration.files.Config;
+import com.github.Anon8281.universalScheduler.scheduling.tasks.MyScheduledTask;
+import org.bukkit.Location;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the plugin's periodic work within a time budget per tick.
+ * <p>Work is queued by priority. {@link Priority#CRITICAL} work always runs in the tick it is due,
+ * everything else runs while the budget lasts and otherwise rolls over to the next tick, in submission order.
+ * <p>Work bound to a location runs on the thread owning its region. On Folia it's handed to the region thread
+ * when its turn comes, and the time it takes there is charged to the budget of the next tick.
+ */
+public class TickScheduler {
+
+    public enum Priority {
+        /** Must never be delayed, like ageing */
+        CRITICAL,
+        NORMAL,
+        /** May be delayed for a few ticks, like integrity checks and particles */
+        DEFERRABLE
+    }
+
+    /**
+     * Statistics since the scheduler started, or since they were last reset.
+     *
+     * @param ticks         Ticks the scheduler ran
+     * @param overrunTicks  Ticks in which the budget was exceeded
+     * @param rolledOver    Times work was left over at the end of a tick
+     * @param maxTickNanos  Longest time spent in a single tick
+     * @param totalNanos    Time spent over all ticks
+     * @param maxDelayTicks Most ticks any work had to wait before it ran
+     */
+    public record Stats(long ticks, long overrunTicks, long rolledOver, long maxTickNanos, long totalNanos, long maxDelayTicks) {
+        public double averageTickMillis() {
+            return ticks == 0 ? 0 : totalNanos / (ticks * 1_000_000.0);
+        }
+    }
+
+    private record Job(Runnable task, @Nullable Location location, long dueTick) {
+    }
+
+    private static final class Periodic {
+        private final Priority priority;
+        private final Runnable task;
+        private final long period;
+        private final Timings.Timing timing;
+        private long nextTick;
+        // Not submitted again while the last run is still queued
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        private Periodic(Priority priority, Runnable task, long firstTick, long period) {
+            this.priority = priority;
+            this.task = task;
+            this.period = period;
+            this.timing = Timings.of("task." + task.getClass().getSimpleName());
+            this.nextTick = firstTick;
+        }
+    }
+
+    private static final Config config = ConfigManager.getConfig(Config.class);
+    private static final Timings.Timing TIMING = Timings.of("task.TickScheduler");
+
+    private final EnumMap<Priority, Queue<Job>> queues = new EnumMap<>(Priority.class);
+    private final List<Periodic> periodics = new ArrayList<>();
+    // Measured on region threads, charged to the next tick
+    private final AtomicLong regionNanos = new AtomicLong();
+    private volatile long currentTick;
+    private MyScheduledTask task;
+
+    private long ticks;
+    private long overrunTicks;
+    private long rolledOver;
+    private long maxTickNanos;
+    private long totalNanos;
+    private long maxDelayTicks;
+
+    public TickScheduler() {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    public void start() {
+        task = BreweryPlugin.getScheduler().runTaskTimer(this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop running work, queued work is dropped.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+        }
+        queues.values().forEach(Queue::clear);
+    }
+
+    /**
+     * Run work within one of the next ticks, on the global thread.
+     */
+    public void submit(Priority priority, Runnable work) {
+        submit(priority, null, work);
+    }
+
+    /**
+     * Run work within one of the next ticks, on the thread owning the region of the location.
+     */
+    public void submit(Priority priority, @Nullable Location location, Runnable work) {
+        queues.get(priority).add(new Job(work, location, currentTick));
+    }
+
+    /**
+     * Submit work every period, starting after the delay. Has to be called on the global thread.
+     * <p>If the work of the last period hasn't run yet, it's not submitted again.
+     */
+    public void repeat(Priority priority, long delay, long period, Runnable work) {
+        periodics.add(new Periodic(priority, work, currentTick + delay, period));
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(ticks, overrunTicks, rolledOver, maxTickNanos, totalNanos, maxDelayTicks);
+    }
+
+    public synchronized void resetStats() {
+        ticks = 0;
+        overrunTicks = 0;
+        rolledOver = 0;
+        maxTickNanos = 0;
+        totalNanos = 0;
+        maxDelayTicks = 0;
+    }
+
+
+    // Runs every tick on the global thread
+    private void tick() {
+        long start = System.nanoTime();
+        long tick = ++currentTick;
+        long budgetNanos = (long) (config.getTickBudget() * 1_000_000);
+        // Time spent on region threads since the last tick counts against this one
+        long deadline = start + budgetNanos - regionNanos.getAndSet(0);
+
+        for (Periodic periodic : periodics) {
+            if (tick >= periodic.nextTick) {
+                periodic.nextTick = tick + periodic.period;
+                if (periodic.queued.compareAndSet(false, true)) {
+                    queues.get(periodic.priority).add(new Job(() -> {
+                        periodic.queued.set(false);
+                        long timingStart = periodic.timing.start();
+                        try {
+                            periodic.task.run();
+                        } finally {
+                            periodic.timing.stop(timingStart);
+                        }
+                    }, null, tick));
+                }
+            }
+        }
+
+        long maxDelay = 0;
+        boolean leftOver = false;
+        boolean progressed = false;
+        for (Priority priority : Priority.values()) {
+            Queue<Job> queue = queues.get(priority);
+            Job job;
+            while ((job = queue.peek()) != null) {
+                // At least one job per tick, so work can't starve behind a single expensive one
+                if (priority != Priority.CRITICAL && progressed && System.nanoTime() >= deadline) {
+                    leftOver = true;
+                    break;
+                }
+                queue.poll();
+                maxDelay = Math.max(maxDelay, tick - job.dueTick());
+                run(job);
+                progressed |= priority != Priority.CRITICAL;
+            }
+        }
+
+        long spent = System.nanoTime() - start;
+        if (Timings.isEnabled()) {
+            TIMING.record(spent);
+        }
+        synchronized (this) {
+            ticks++;
+            totalNanos += spent;
+            maxTickNanos = Math.max(maxTickNanos, spent);
+            maxDelayTicks = Math.max(maxDelayTicks, maxDelay);
+            if (spent > budgetNanos) {
+                overrunTicks++;
+            }
+            if (leftOver) {
+                rolledOver++;
+            }
+        }
+    }
+
+    private void run(Job job) {
+        if (job.location() != null && MinecraftVersion.isFolia()) {
+            BreweryPlugin.getScheduler().runTask(job.location(), () -> {
+                long start = System.nanoTime();
+                runSafely(job.task());
+                regionNanos.addAndGet(System.nanoTime() - start);
+            });
+        } else {
+            // Everything else is owned by the main thread we're already on
+            runSafely(job.task());
+        }
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            Logging.errorLog("A scheduled task threw an exception!", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight timings of the plugin's own work, like listeners, periodic tasks, storage access and recipe evaluation.
+ * <p>Usage:
+ * <pre>{@code
+ * private static final Timings.Timing TIMING = Timings.of("recipe.bestRecipe");
+ *
+ * long start = TIMING.start();
+ * try {
+ *     ...
+ * } finally {
+ *     TIMING.stop(start);
+ * }
+ * }</pre>
+ * While timings are disabled, start() and stop() only read a flag.
+ */
+public final class Timings {
+
+    @Getter
+    @Setter
+    private static volatile boolean enabled;
+    private static final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    private Timings() {
+    }
+
+    /**
+     * Get or create the timing with the given name. Names are grouped by their first part, like "storage.saveAll".
+     */
+    public static Timing of(String name) {
+        return timings.computeIfAbsent(name, Timing::new);
+    }
+
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>(timings.size());
+        for (Timing timing : timings.values()) {
+            Snapshot snapshot = timing.snapshot();
+            if (snapshot.calls() > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        snapshots.sort(Comparator.comparingLong(Snapshot::totalNanos).reversed());
+        return snapshots;
+    }
+
+    public static void reset() {
+        timings.values().forEach(Timing::reset);
+    }
+
+    /**
+     * Register the handlers of a listener like {@link org.bukkit.plugin.PluginManager#registerEvents(Listener, Plugin)},
+     * with every handler timed as "listener.[Listener].[Event]".
+     */
+    public static void registerEvents(Listener listener, Plugin plugin) {
+        Map<Class<? extends Event>, Set<RegisteredListener>> handlers = plugin.getPluginLoader().createRegisteredListeners(listener, plugin);
+        Map<HandlerList, List<RegisteredListener>> timed = new HashMap<>();
+        try {
+            for (Map.Entry<Class<? extends Event>, Set<RegisteredListener>> entry : handlers.entrySet()) {
+                HandlerList handlerList = getHandlerList(entry.getKey());
+                Timing timing = of("listener." + listener.getClass().getSimpleName() + "." + entry.getKey().getSimpleName());
+                for (RegisteredListener registered : entry.getValue()) {
+                    timed.computeIfAbsent(handlerList, ignored -> new ArrayList<>()).add(new RegisteredListener(listener, (owner, event) -> {
+                        long start = timing.start();
+                        try {
+                            registered.callEvent(event);
+                        } finally {
+                            timing.stop(start);
+                        }
+                    }, registered.getPriority(), plugin, false));
+                }
+            }
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            Logging.debugLog("Can't time the handlers of " + listener.getClass().getSimpleName() + ": " + e);
+            Bukkit.getPluginManager().registerEvents(listener, plugin);
+            return;
+        }
+        timed.forEach(HandlerList::registerAll);
+    }
+
+    // Same lookup as Bukkit does, the handler list may be declared by a super class of the event
+    private static HandlerList getHandlerList(Class<?> eventClass) throws ReflectiveOperationException {
+        Class<?> clazz = eventClass;
+        while (clazz != null && Event.class.isAssignableFrom(clazz)) {
+            try {
+                Method method = clazz.getDeclaredMethod("getHandlerList");
+                method.setAccessible(true);
+                return (HandlerList) method.invoke(null);
+            } catch (NoSuchMethodException e) {
+                clazz = clazz.getSuperclass();
+            }
+        }
+        throw new NoSuchMethodException("No handler list for " + eventClass.getName());
+    }
+
+
+    /**
+     * @param name        Name of the timing
+     * @param calls       Calls since the last reset
+     * @param totalNanos  Time of all calls since the last reset
+     * @param maxNanos    Longest call since the last reset
+     * @param recentCalls Amount of recent calls the average and percentiles are taken from
+     * @param avgNanos    Average of the recent calls
+     */
+    public record Snapshot(String name, long calls, long totalNanos, long maxNanos,
+                           int recentCalls, double avgNanos, long p50Nanos, long p95Nanos, long p99Nanos) {
+    }
+
+    public static final class Timing {
+        // Recent calls kept for the rolling average and percentiles
+        private static final int WINDOW = 1024;
+
+        @Getter
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray recent = new AtomicLongArray(WINDOW);
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Timing(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The start time to pass to {@link #stop(long)}, 0 if timings are disabled
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        public void stop(long start) {
+            if (start != 0) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        public void record(long nanos) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            recent.set(Math.floorMod(next.getAndIncrement(), WINDOW), nanos);
+        }
+
+        private void reset() {
+            calls.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            next.set(0);
+        }
+
+        private Snapshot snapshot() {
+            long count = calls.sum();
+            int recentCalls = (int) Math.min(count, WINDOW);
+            long[] samples = new long[recentCalls];
+            for (int i = 0; i < recentCalls; i++) {
+                samples[i] = recent.get(i);
+            }
+            Arrays.sort(samples);
+            double avg = recentCalls == 0 ? 0 : Arrays.stream(samples).average().orElse(0);
+            return new Snapshot(name, count, totalNanos.sum(), maxNanos.get(), recentCalls, avg,
+                percentile(samples, 0.5), percentile(samples, 0.95), percentile(samples, 0.99));
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.dre.brewery.BrewDecode")
+@Label("Brew Decode")
+@Category({"BreweryX", "Brew"})
+@Description("A Brew read from the data of an item")
+public class BrewDecodeEvent extends Event {
+
+    @Label("Source")
+    @Description("Where the data was stored, NBT or lore")
+    public String source;
+
+    @Label("Found")
+    @Description("If the item held Brew data")
+    public boolean found;
+
+    @Label("Ingredients")
+    @Description("Amount of ingredient types")
+    public int ingredients;
+
+    @Label("Recipe")
+    public String recipe;
+}
@@ -0,0 +1,50 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.dre.brewery.ChatDistort")
+@Label("Chat Distortion")
+@Category({"BreweryX", "Chat"})
+@Description("Distortion of a drunk player's message")
+public class ChatDistortEvent extends Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Source")
+    @Description("Chat, command or sign")
+    public String source;
+
+    @Label("Drunkenness")
+    public int drunkenness;
+
+    @Label("Length")
+    public int length;
+
+    @Label("Distorted Length")
+    public int distortedLength;
+}
@@ -0,0 +1,56 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.dre.brewery.RecipeEvaluation")
+@Label("Recipe Evaluation")
+@Category({"BreweryX", "Recipe"})
+@Description("Search for the recipe that fits ingredients best")
+public class RecipeEvaluationEvent extends Event {
+
+    @Label("Recipes")
+    @Description("Amount of recipes compared")
+    public int recipes;
+
+    @Label("Ingredients")
+    @Description("Amount of ingredient types")
+    public int ingredients;
+
+    @Label("Wood")
+    public String wood;
+
+    @Label("Age")
+    @Description("Years in a barrel")
+    public float time;
+
+    @Label("Distilled")
+    public boolean distilled;
+
+    @Label("Result")
+    @Description("Name of the recipe found, empty if none fits")
+    public String result;
+}
@@ -0,0 +1,58 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.dre.brewery.Storage")
+@Label("Storage Access")
+@Category({"BreweryX", "Storage"})
+@Description("Objects saved to or loaded from storage")
+public class StorageEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Table")
+    @Description("Kind of objects, or the world for world saves")
+    public String table;
+
+    @Label("Count")
+    @Description("Amount of objects")
+    public int count;
+
+    /**
+     * Commit the event if it's recorded, end it first to leave the filling of the fields out of the duration.
+     */
+    public void commit(String operation, String table, int count) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.table = table;
+            this.count = count;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The expected messages are what the regex based distortion gave before the words were compiled.
+ */
+class DistortChatTest {
+
+    @BeforeEach
+    @AfterEach
+    void clearWords() {
+        DistortChat.words.clear();
+        DistortChat.ignoreText.clear();
+    }
+
+    @Test
+    void chainedWordsApplyInOrder() {
+        word("replace", "a", "to", "b");
+        word("replace", "b", "to", "c");
+        assertEquals("c ccc", DistortChat.distortMessage("a cab", 100));
+    }
+
+    @Test
+    void chainSkipsWordsAboveDrunkenness() {
+        word("replace", "a", "to", "b");
+        word("replace", "b", "to", "c", "alcohol", 50);
+        assertEquals("b cbb", DistortChat.distortMessage("a cab", 20));
+    }
+
+    @Test
+    void preMatch() {
+        word("replace", "s", "to", "sh", "pre", "u,a", "match", true);
+        assertEquals("sush mash is", DistortChat.distortMessage("sus mas is", 100));
+        assertEquals("ash", DistortChat.distortMessage("as", 100));
+    }
+
+    @Test
+    void preNoMatch() {
+        word("replace", "ch", "to", "sh", "pre", "u,s,o,a", "match", false);
+        assertEquals("such shat ach ish", DistortChat.distortMessage("such chat ach ich", 100));
+    }
+
+    @Test
+    void preChecksOnlyThePartSinceTheLastOccurrence() {
+        word("replace", "h", "to", "hh", "pre", "sch,h,t", "match", false);
+        assertEquals("the schhool hhhhhh ahhhh", DistortChat.distortMessage("the school hhh ahh", 100));
+        DistortChat.words.clear();
+        word("replace", "o", "to", "oo", "pre", "n", "match", true);
+        assertEquals("noo go noo", DistortChat.distortMessage("no go no", 100));
+    }
+
+    @Test
+    void space() {
+        word("replace", "-space", "to", "");
+        assertEquals("helloyouthere", DistortChat.distortMessage("hello you there", 100));
+        DistortChat.words.clear();
+        word("replace", "-space", "to", "  ");
+        assertEquals("a  b  c", DistortChat.distortMessage("a b c", 100));
+    }
+
+    @Test
+    void spaceWithPre() {
+        word("replace", "-space", "to", "", "pre", "h,g,w", "match", true);
+        assertEquals("hahdognowcat big", DistortChat.distortMessage("hah dog now cat big", 100));
+    }
+
+    @Test
+    void startAndEnd() {
+        word("replace", "-start", "to", "dho");
+        assertEquals("dhohello there", DistortChat.distortMessage("hello there", 100));
+        DistortChat.words.clear();
+        word("replace", "-end", "to", "...");
+        assertEquals("hello there...", DistortChat.distortMessage("hello there", 100));
+    }
+
+    @Test
+    void laterWordsActOnStartAndEnd() {
+        word("replace", "-start", "to", "hhn");
+        word("replace", "-end", "to", "hic");
+        word("replace", "h", "to", "H");
+        assertEquals("HHnoH noHic", DistortChat.distortMessage("oh no", 100));
+    }
+
+    @Test
+    void startAndEndAfterTheMessageIsGone() {
+        word("replace", "c", "to", "");
+        word("replace", "-end", "to", "hic");
+        assertEquals("hic", DistortChat.distortMessage("cc", 100));
+        DistortChat.words.clear();
+        word("replace", "ab", "to", "");
+        word("replace", "-start", "to", "dho");
+        assertEquals("dho", DistortChat.distortMessage("abab", 100));
+    }
+
+    @Test
+    void wordCreatedByAnEarlierReplacement() {
+        word("replace", "s", "to", "sh");
+        word("replace", "shh", "to", "zz");
+        assertEquals("shzz", DistortChat.distortMessage("ssh", 100));
+    }
+
+    @Test
+    void wordJoinedByAnEarlierRemoval() {
+        word("replace", "x", "to", "");
+        word("replace", "ab", "to", "AB");
+        assertEquals("AB AB", DistortChat.distortMessage("axb xab", 100));
+    }
+
+    private static void word(Object... keyValues) {
+        Map<String, Object> part = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            part.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        new DistortChat(part);
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.load;
+
+import com.dre.brewery.BCauldron;
+import com.dre.brewery.BDistiller;
+import com.dre.brewery.BIngredients;
+import com.dre.brewery.BPlayer;
+import com.dre.brewery.Barrel;
+import com.dre.brewery.BarrelFacing;
+import com.dre.brewery.BarrelPart;
+import com.dre.brewery.BarrelWoodType;
+import com.dre.brewery.Brew;
+import com.dre.brewery.BreweryPlugin;
+import com.dre.brewery.configuration.ConfigManager;
+import com.dre.brewery.configuration.configurer.TranslationManager;
+import com.dre.brewery.configuration.files.Config;
+import com.dre.brewery.configuration.files.Lang;
+import com.dre.brewery.integration.bstats.BreweryStats;
+import com.dre.brewery.recipe.BRecipe;
+import com.dre.brewery.recipe.Ingredient;
+import com.dre.brewery.recipe.RecipeItem;
+import com.dre.brewery.storage.DataManager;
+import com.dre.brewery.utility.BoundingBox;
+import com.dre.brewery.utility.TickScheduler;
+import com.dre.brewery.utility.Timings;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BrewingStand;
+import org.bukkit.block.data.Bisected;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.BrewerInventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs the plugin's periodic work on a simulated server, as fast as it can, and reports what every simulated minute cost.
+ * <p>The world holds N large oak barrels with M brews each, K cooking cauldrons, D distilling brewing stands and P drunk players.
+ * Barrels are opened at a steady rate, which ages their brews. Everything runs through the real Barrel, BCauldron, BDistiller,
+ * BPlayer and BIngredients code, only the server underneath is made up.
+ * <p>Run it with {@code ./gradlew loadHarness --args="--barrels=5000 --minutes=20"}. Options:
+ * <pre>
+ *   --barrels=N      Large barrels (1000)
+ *   --brews=M        Brews per barrel (9)
+ *   --cauldrons=K    Cooking cauldrons (200)
+ *   --distillers=D   Distilling brewing stands (50)
+ *   --players=P      Drunk players, all offline (100)
+ *   --opens=O        Barrels opened per minute (100)
+ *   --minutes=T      Simulated minutes to measure (10)
+ *   --warmup=W       Simulated minutes to run before measuring (2)
+ *   --autosave       Autosave every minute, instead of never
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private static final int TICKS_PER_MINUTE = BreweryPlugin.BreweryRunnable.CYCLE_TICKS;
+    private static final int GROUND = 64;
+
+    private final Map<String, Integer> options = new HashMap<>();
+    private final boolean autosave;
+    private final SimServer sim = new SimServer();
+    private final SimWorld world = new SimWorld("world");
+    private final List<Barrel> barrels = new ArrayList<>();
+    private final List<Block> stands = new ArrayList<>();
+    private final List<UUID> players = new ArrayList<>();
+    private Player opener;
+    private ItemStack agingBrew;
+    private ItemStack distillBrew;
+    private int nextOpen;
+    private double openCredit;
+
+    private LoadHarness(String[] args) {
+        boolean autosave = false;
+        for (String arg : args) {
+            if (arg.equals("--autosave")) {
+                autosave = true;
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), Integer.parseInt(arg.substring(arg.indexOf('=') + 1)));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        this.autosave = autosave;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadHarness(args).run();
+        // The autosave writer of the plugin doesn't stop on its own
+        System.exit(0);
+    }
+
+    private int option(String name, int def) {
+        return options.getOrDefault(name, def);
+    }
+
+    private void run() throws Exception {
+        Bukkit.setServer(sim.getServer());
+        sim.addWorld(world.getWorld());
+        bootstrap();
+        populate();
+
+        int warmup = option("warmup", 2);
+        int minutes = option("minutes", 10);
+        System.out.printf("%nSimulating %d barrels with %d brews, %d cauldrons, %d distillers and %d drunk players, %d barrel openings per minute%n",
+            barrels.size(), option("brews", 9), BCauldron.bcauldrons.size(), stands.size(), players.size(), option("opens", 100));
+        System.out.printf("Warming up for %d minutes, then measuring %d minutes%n%n", warmup, minutes);
+        for (int minute = 0; minute < warmup; minute++) {
+            runMinute();
+        }
+        Timings.reset();
+        BreweryPlugin.getTickScheduler().resetStats();
+
+        Measurement measurement = new Measurement();
+        System.out.printf("%6s %12s %12s %14s %12s %10s %10s %10s %8s%n",
+            "minute", "main cpu ms", "alloc MB", "process cpu ms", "max tick ms", "barrels", "cauldrons", "distillers", "drunk");
+        List<Measurement.Minute> results = new ArrayList<>();
+        for (int minute = 1; minute <= minutes; minute++) {
+            measurement.begin();
+            long maxTick = runMinute();
+            Measurement.Minute result = measurement.end(maxTick);
+            results.add(result);
+            System.out.printf("%6d %12.1f %12.1f %14.1f %12.2f %10d %10d %10d %8d%n", minute, result.mainCpuNanos() / 1e6, result.allocatedBytes() / 1e6,
+                result.processCpuNanos() / 1e6, result.maxTickNanos() / 1e6, Barrel.countBarrels(), BCauldron.bcauldrons.size(),
+                BDistiller.numTrackedDistillers(), BPlayer.numDrunkPlayers());
+        }
+        report(results);
+        sim.shutdown();
+    }
+
+    // Does what the constructor and onEnable of the plugin do, as far as the periodic work needs it
+    private void bootstrap() throws Exception {
+        // The plugin moves an old Brewery folder next to its own, keep both inside the temporary directory
+        File pluginsFolder = Files.createTempDirectory("breweryx-harness").toFile();
+        File dataFolder = new File(pluginsFolder, "BreweryX");
+        dataFolder.mkdirs();
+        PluginDescriptionFile description = new PluginDescriptionFile("BreweryX", "harness", BreweryPlugin.class.getName());
+        @SuppressWarnings("deprecation") // Only servers should make their own loader, which is what this is pretending to be
+        JavaPluginLoader loader = new JavaPluginLoader(sim.getServer());
+        // Sets up the instance, scheduler and translations like on a server
+        new BreweryPlugin(loader, description, dataFolder, new File(pluginsFolder, "BreweryX.jar"));
+
+        Config config = ConfigManager.getConfig(Config.class);
+        // The interval is in real time, but the simulation runs much faster
+        config.setAutosave(autosave ? 0 : 1_000_000);
+        Timings.setEnabled(config.isTimings());
+        TranslationManager.getInstance().updateTranslationFiles();
+        ConfigManager.newInstance(Lang.class, false);
+        ConfigManager.loadCauldronIngredients();
+        ConfigManager.loadRecipes();
+        ConfigManager.loadSeed();
+        set(BreweryPlugin.class, BreweryPlugin.getInstance(), "breweryStats", new BreweryStats());
+        BreweryPlugin.setDataManager(DataManager.createDataManager(config.getStorage()));
+
+        TickScheduler tickScheduler = new TickScheduler();
+        set(BreweryPlugin.class, null, "tickScheduler", tickScheduler);
+        // Started right away, so every measured minute lines up with the per-minute cycle
+        tickScheduler.repeat(TickScheduler.Priority.CRITICAL, 1, 1, new BreweryPlugin.BreweryRunnable());
+        tickScheduler.repeat(TickScheduler.Priority.NORMAL, 120, 1, new BreweryPlugin.DrunkRunnable());
+        tickScheduler.repeat(TickScheduler.Priority.DEFERRABLE, 1, 1, new BreweryPlugin.CauldronParticles());
+        tickScheduler.start();
+    }
+
+    private void populate() throws Exception {
+        List<BRecipe> recipes = BRecipe.getConfigRecipes();
+        if (recipes.isEmpty()) {
+            throw new IllegalStateException("No recipes loaded");
+        }
+        BRecipe agingRecipe = recipes.stream().filter(recipe -> recipe.getAge() > 0).findFirst().orElse(recipes.get(0));
+        BRecipe distillRecipe = recipes.stream().filter(recipe -> recipe.getDistillruns() > 0).findFirst().orElse(recipes.get(0));
+        agingBrew = cook(agingRecipe);
+        distillBrew = cook(distillRecipe);
+        opener = StandIns.proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName", "getDisplayName" -> "Harness";
+            case "getUniqueId" -> new UUID(0, 0);
+            case "getWorld" -> world.getWorld();
+            case "equals", "hashCode", "toString" -> StandIns.objectMethod(proxy, method, args, "Harness");
+            default -> StandIns.neutral(method.getReturnType());
+        });
+
+        int numBarrels = option("barrels", 1000);
+        int brews = option("brews", 9);
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(numBarrels)));
+        int slots = ConfigManager.getConfig(Config.class).getBarrelInvSizeLarge() * 9;
+        for (int i = 0; i < numBarrels; i++) {
+            ItemStack[] items = new ItemStack[slots];
+            for (int slot = 0; slot < Math.min(brews, slots); slot++) {
+                items[slot] = agingBrew.clone();
+            }
+            Barrel barrel = buildBarrel((i % columns) * 4, (i / columns) * 6, items);
+            Barrel.registerBarrel(barrel);
+            barrels.add(barrel);
+        }
+
+        int numCauldrons = option("cauldrons", 200);
+        for (int i = 0; i < numCauldrons; i++) {
+            int x = (i % columns) * 3;
+            int z = -10 - (i / columns) * 3;
+            world.set(x, GROUND - 1, z, Material.FIRE);
+            world.set(x, GROUND, z, Material.WATER_CAULDRON);
+            Block block = world.block(x, GROUND, z);
+            BCauldron.bcauldrons.put(block, new BCauldron(block, new BIngredients(ingredientsOf(agingRecipe), 0), 1, UUID.randomUUID()));
+        }
+
+        int numDistillers = option("distillers", 50);
+        for (int i = 0; i < numDistillers; i++) {
+            int x = (i % columns) * 2;
+            int z = -10 - (numCauldrons / columns + 1) * 3 - (i / columns) * 2;
+            world.set(x, GROUND, z, Material.BREWING_STAND);
+            stands.add(world.block(x, GROUND, z));
+        }
+        refillDistillers();
+
+        int numPlayers = option("players", 100);
+        for (int i = 0; i < numPlayers; i++) {
+            players.add(UUID.randomUUID());
+        }
+        soberPlayersUp();
+    }
+
+    /**
+     * Run one simulated minute.
+     *
+     * @return The longest a tick took in nanoseconds
+     */
+    private long runMinute() {
+        // Keep the load steady, finished distillers and sobered up players start over
+        refillDistillers();
+        soberPlayersUp();
+        double opensPerTick = option("opens", 100) / (double) TICKS_PER_MINUTE;
+        long maxTick = 0;
+        for (int tick = 0; tick < TICKS_PER_MINUTE; tick++) {
+            long start = System.nanoTime();
+            sim.tick();
+            openCredit += opensPerTick;
+            while (openCredit >= 1 && !barrels.isEmpty()) {
+                openCredit--;
+                barrels.get(nextOpen++ % barrels.size()).open(opener);
+            }
+            maxTick = Math.max(maxTick, System.nanoTime() - start);
+        }
+        return maxTick;
+    }
+
+    private Barrel buildBarrel(int x, int z, ItemStack[] items) {
+        BarrelFacing direction = BarrelFacing.SOUTH;
+        BarrelFacing orthogonal = direction.rotate90degrees();
+        world.set(x, GROUND, z, Material.OAK_FENCE);
+        for (int along = 1; along <= 4; along++) {
+            for (int across = -1; across <= 1; across++) {
+                for (int height = 0; height <= 2; height++) {
+                    int relativeX = direction.getDx() * along + orthogonal.getDx() * across;
+                    int relativeZ = direction.getDz() * along + orthogonal.getDz() * across;
+                    world.set(x + relativeX, GROUND + height, z + relativeZ, barrelBlock(direction, along, across, height));
+                }
+            }
+        }
+        Block spigot = world.block(x, GROUND, z);
+        int minX = x + Math.min(orthogonal.getDx(), -orthogonal.getDx());
+        int maxX = x + Math.max(orthogonal.getDx(), -orthogonal.getDx());
+        BoundingBox bounds = new BoundingBox(minX, GROUND, z + 1, maxX, GROUND + 2, z + 4);
+        return new Barrel(spigot, (byte) 0, bounds, items, 0, UUID.randomUUID(), false);
+    }
+
+    // The block a large barrel has at an offset from its spigot
+    private static BlockData barrelBlock(BarrelFacing direction, int along, int across, int height) {
+        BarrelPart part;
+        if (across != 0 && height != 1) {
+            boolean bottom = height == 0;
+            boolean right = across < 0;
+            part = bottom ? (right ? BarrelPart.BOTTOM_RIGHT : BarrelPart.BOTTOM_LEFT) : (right ? BarrelPart.TOP_RIGHT : BarrelPart.TOP_LEFT);
+        } else if (height == 1 && across == 0 && along != 1 && along != 4) {
+            // Hollow inside
+            return SimWorld.blockData(Material.AIR);
+        } else {
+            part = BarrelPart.BLOCK;
+        }
+        if (part == BarrelPart.BLOCK) {
+            return SimWorld.blockData(Material.OAK_PLANKS);
+        }
+        for (Bisected.Half half : Bisected.Half.values()) {
+            for (BlockFace facing : new BlockFace[] {BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST}) {
+                BlockData stairs = SimWorld.stairs(Material.OAK_STAIRS, half, facing);
+                if (part.matches(BarrelWoodType.OAK, stairs, direction)) {
+                    return stairs;
+                }
+            }
+        }
+        throw new IllegalStateException("No stairs match " + part);
+    }
+
+    private void refillDistillers() {
+        for (Block block : stands) {
+            if (BDistiller.isTrackingDistiller(block)) {
+                continue;
+            }
+            BrewingStand stand = (BrewingStand) block.getState();
+            BrewerInventory inventory = stand.getInventory();
+            for (int slot = 0; slot < 3; slot++) {
+                inventory.setItem(slot, distillBrew.clone());
+            }
+            inventory.setIngredient(new ItemStack(Material.GLOWSTONE_DUST));
+            stand.setFuelLevel(20);
+            // Like a player putting in the ingredient, see BDistiller.distillerClick
+            BDistiller distiller = new BDistiller(block, stand.getFuelLevel());
+            trackedDistillers().put(block, distiller);
+            distiller.start();
+        }
+    }
+
+    private void soberPlayersUp() {
+        Map<String, BPlayer> drunk = BPlayer.getPlayers();
+        for (UUID uuid : players) {
+            drunk.computeIfAbsent(uuid.toString(), ignored -> new BPlayer(uuid, 8 * 60, 60, 0));
+        }
+    }
+
+    private static ItemStack cook(BRecipe recipe) {
+        ItemStack brew = new BIngredients(ingredientsOf(recipe), recipe.getCookingTime()).cook(recipe.getCookingTime(), null);
+        if (brew == null || Brew.get(brew) == null) {
+            throw new IllegalStateException("Failed to brew " + recipe.getRecipeName());
+        }
+        return brew;
+    }
+
+    private static List<Ingredient> ingredientsOf(BRecipe recipe) {
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (RecipeItem item : recipe.getIngredients()) {
+            Ingredient ingredient = item.toIngredientGeneric();
+            ingredient.setAmount(item.getAmount());
+            ingredients.add(ingredient);
+        }
+        return ingredients;
+    }
+
+    private void report(List<Measurement.Minute> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        double cpu = results.stream().mapToLong(Measurement.Minute::mainCpuNanos).average().orElse(0) / 1e6;
+        double alloc = results.stream().mapToLong(Measurement.Minute::allocatedBytes).average().orElse(0) / 1e6;
+        double process = results.stream().mapToLong(Measurement.Minute::processCpuNanos).average().orElse(0) / 1e6;
+        double maxTick = results.stream().mapToLong(Measurement.Minute::maxTickNanos).max().orElse(0) / 1e6;
+        System.out.printf("%nAverage per minute: %.1fms main thread cpu (%.3fms per tick), %.1fMB allocated, %.1fms process cpu. Longest tick: %.2fms%n",
+            cpu, cpu / TICKS_PER_MINUTE, alloc, process, maxTick);
+        TickScheduler.Stats stats = BreweryPlugin.getTickScheduler().getStats();
+        System.out.printf("Tick scheduler: %d of %d ticks over budget, work rolled over %d times, delayed up to %d ticks%n",
+            stats.overrunTicks(), stats.ticks(), stats.rolledOver(), stats.maxDelayTicks());
+        if (Timings.isEnabled()) {
+            System.out.printf("%nSlowest timings in total:%n%-50s %10s %12s %10s%n", "name", "calls", "total ms", "avg ms");
+            Timings.snapshot().stream().limit(15).forEach(snapshot -> System.out.printf("%-50s %10d %12.1f %10.4f%n",
+                snapshot.name(), snapshot.calls(), snapshot.totalNanos() / 1e6, snapshot.avgNanos() / 1e6));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Block, BDistiller> trackedDistillers() {
+        try {
+            Field field = BDistiller.class.getDeclaredField("trackedDistillers");
+            field.setAccessible(true);
+            return (Map<Block, BDistiller>) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void set(Class<?> owner, Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Cpu time and allocation of the main thread, and cpu time of the whole process, which includes the async and autosave threads.
+     */
+    private static final class Measurement {
+        record Minute(long mainCpuNanos, long allocatedBytes, long processCpuNanos, long maxTickNanos) {
+        }
+
+        private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        private final long mainThread = Thread.currentThread().getId();
+        private long cpu;
+        private long allocated;
+        private long process;
+
+        private void begin() {
+            cpu = threads.getThreadCpuTime(mainThread);
+            allocated = threads.getThreadAllocatedBytes(mainThread);
+            process = os.getProcessCpuTime();
+        }
+
+        private Minute end(long maxTickNanos) {
+            return new Minute(threads.getThreadCpuTime(mainThread) - cpu, threads.getThreadAllocatedBytes(mainThread) - allocated,
+                os.getProcessCpuTime() - process, maxTickNanos);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.load;
+
+import org.bukkit.Material;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.BrewerInventory;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * An inventory backed by a plain array. Nobody ever views it.
+ */
+final class SimInventory implements InvocationHandler {
+
+    private final ItemStack[] contents;
+    private final InventoryHolder holder;
+    private final InventoryType type;
+
+    private SimInventory(int size, InventoryHolder holder, InventoryType type) {
+        this.contents = new ItemStack[size];
+        this.holder = holder;
+        this.type = type;
+    }
+
+    static Inventory create(InventoryHolder holder, int size) {
+        return StandIns.proxy(Inventory.class, new SimInventory(size, holder, InventoryType.CHEST));
+    }
+
+    static BrewerInventory brewer(InventoryHolder holder) {
+        return StandIns.proxy(BrewerInventory.class, new SimInventory(5, holder, InventoryType.BREWING));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            return StandIns.objectMethod(proxy, method, args, "Inventory" + Arrays.toString(contents));
+        }
+        switch (method.getName()) {
+            case "getSize":
+                return contents.length;
+            case "getItem":
+                return contents[(int) args[0]];
+            case "setItem":
+                contents[(int) args[0]] = (ItemStack) args[1];
+                return null;
+            case "getContents":
+            case "getStorageContents":
+                return contents.clone();
+            case "setContents":
+            case "setStorageContents":
+                ItemStack[] items = (ItemStack[]) args[0];
+                Arrays.fill(contents, null);
+                System.arraycopy(items, 0, contents, 0, Math.min(items.length, contents.length));
+                return null;
+            case "contains":
+                if (args.length == 1 && args[0] instanceof Material material) {
+                    return Arrays.stream(contents).anyMatch(item -> item != null && item.getType() == material);
+                }
+                return false;
+            case "first":
+                for (int slot = 0; slot < contents.length; slot++) {
+                    if (contents[slot] != null && (args[0] instanceof Material material ? contents[slot].getType() == material : contents[slot].equals(args[0]))) {
+                        return slot;
+                    }
+                }
+                return -1;
+            case "firstEmpty":
+                for (int slot = 0; slot < contents.length; slot++) {
+                    if (contents[slot] == null) {
+                        return slot;
+                    }
+                }
+                return -1;
+            case "isEmpty":
+                return Arrays.stream(contents).allMatch(item -> item == null);
+            case "addItem":
+                HashMap<Integer, ItemStack> leftOver = new HashMap<>();
+                ItemStack[] added = (ItemStack[]) args[0];
+                for (int i = 0; i < added.length; i++) {
+                    int slot = Arrays.asList(contents).indexOf(null);
+                    if (slot < 0) {
+                        leftOver.put(i, added[i]);
+                    } else {
+                        contents[slot] = added[i];
+                    }
+                }
+                return leftOver;
+            case "clear":
+                if (args == null) {
+                    Arrays.fill(contents, null);
+                } else {
+                    contents[(int) args[0]] = null;
+                }
+                return null;
+            case "getViewers":
+                return new ArrayList<>();
+            case "getHolder":
+                return holder;
+            case "getType":
+                return type;
+            case "getIngredient":
+                return contents[3];
+            case "setIngredient":
+                contents[3] = (ItemStack) args[0];
+                return null;
+            case "getFuel":
+                return contents[4];
+            case "setFuel":
+                contents[4] = (ItemStack) args[0];
+                return null;
+            default:
+                return StandIns.neutral(method.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.load;
+
+import lombok.Getter;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.World;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The server the harness runs in. It only ever advances when {@link #tick()} is called, on the thread that created it.
+ * <p>Nobody is online and no other plugin is installed. Async tasks run on a single background thread.
+ */
+final class SimServer implements InvocationHandler {
+
+    private final Thread mainThread = Thread.currentThread();
+    private final Logger logger = Logger.getLogger("Harness");
+    private final List<World> worlds = new ArrayList<>();
+    // Async tasks may schedule tasks of their own
+    private final List<SimTask> tasks = new CopyOnWriteArrayList<>();
+    private final ExecutorService async = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Harness-Async");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ItemFactory itemFactory = StandIns.proxy(ItemFactory.class, this::invokeItemFactory);
+    private final BukkitScheduler scheduler = StandIns.proxy(BukkitScheduler.class, this::invokeScheduler);
+    private final PluginManager pluginManager = StandIns.noop(PluginManager.class);
+    private final ServicesManager servicesManager = StandIns.noop(ServicesManager.class);
+    private final UnsafeValues unsafe = StandIns.noop(UnsafeValues.class);
+    private final ConsoleCommandSender console = StandIns.proxy(ConsoleCommandSender.class, (proxy, method, args) -> {
+        if (method.getName().equals("sendMessage") && args.length == 1) {
+            Object message = args[0];
+            for (String line : message instanceof String[] lines ? lines : new String[] {String.valueOf(message)}) {
+                System.out.println(ChatColor.stripColor(line));
+            }
+            return null;
+        }
+        if (method.getDeclaringClass() == Object.class) {
+            return StandIns.objectMethod(proxy, method, args, "Console");
+        }
+        return method.getName().equals("getName") ? "CONSOLE" : StandIns.neutral(method.getReturnType());
+    });
+    @Getter
+    private final Server server = StandIns.proxy(Server.class, this);
+    @Getter
+    private volatile long currentTick;
+    private final AtomicInteger lastTaskId = new AtomicInteger();
+
+    void addWorld(World world) {
+        worlds.add(world);
+    }
+
+    /**
+     * Run the tasks that are due in the next tick.
+     */
+    void tick() {
+        currentTick++;
+        // Iterates a snapshot, tasks scheduled while ticking run in a later tick at the earliest
+        for (SimTask task : tasks) {
+            if (task.cancelled || task.nextTick > currentTick) {
+                continue;
+            }
+            if (task.period > 0) {
+                task.nextTick += task.period;
+            } else {
+                task.cancelled = true;
+            }
+            if (task.async) {
+                async.execute(task::run);
+            } else {
+                task.run();
+            }
+        }
+        tasks.removeIf(task -> task.cancelled);
+    }
+
+    void shutdown() {
+        async.shutdownNow();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            return StandIns.objectMethod(proxy, method, args, "SimServer");
+        }
+        switch (method.getName()) {
+            case "getName":
+                return "Harness";
+            case "getVersion":
+                return "git-Harness (MC: 1.20.2)";
+            case "getBukkitVersion":
+                return "1.20.2-R0.1-SNAPSHOT";
+            case "getLogger":
+                return logger;
+            case "getItemFactory":
+                return itemFactory;
+            case "getScheduler":
+                return scheduler;
+            case "getPluginManager":
+                return pluginManager;
+            case "getServicesManager":
+                return servicesManager;
+            case "getUnsafe":
+                return unsafe;
+            case "getConsoleSender":
+                return console;
+            case "isPrimaryThread":
+                return Thread.currentThread() == mainThread;
+            case "getWorlds":
+                return new ArrayList<>(worlds);
+            case "getWorld":
+                for (World world : worlds) {
+                    if (args[0] instanceof UUID uid ? world.getUID().equals(uid) : world.getName().equals(args[0])) {
+                        return world;
+                    }
+                }
+                return null;
+            case "createInventory":
+                return SimInventory.create((InventoryHolder) args[0], args[1] instanceof Integer size ? size : 27);
+            case "createBlockData":
+                return args[0] instanceof Material material ? SimWorld.blockData(material) : null;
+            default:
+                // Nobody is online, getPlayer and getOnlinePlayers come out empty
+                return StandIns.neutral(method.getReturnType());
+        }
+    }
+
+    private Object invokeItemFactory(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getItemMeta":
+                return StandIns.newItemMeta();
+            case "isApplicable":
+                return true;
+            case "asMetaFor":
+                return args[0];
+            case "updateMaterial":
+                return args[1];
+            case "equals":
+                if (args.length == 1) {
+                    return proxy == args[0];
+                }
+                ItemMeta first = (ItemMeta) args[0];
+                ItemMeta second = (ItemMeta) args[1];
+                if (first == null || second == null) {
+                    return StandIns.isEmpty(first) && StandIns.isEmpty(second);
+                }
+                return first.equals(second);
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return StandIns.neutral(method.getReturnType());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invokeScheduler(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        switch (name) {
+            case "cancelTask":
+                tasks.stream().filter(task -> task.id == (int) args[0]).forEach(task -> task.cancelled = true);
+                return null;
+            case "cancelTasks":
+                tasks.forEach(task -> task.cancelled = true);
+                return null;
+            case "isCurrentlyRunning":
+            case "isQueued":
+                return tasks.stream().anyMatch(task -> task.id == (int) args[0] && !task.cancelled);
+            case "equals":
+            case "hashCode":
+            case "toString":
+                return StandIns.objectMethod(proxy, method, args, "SimScheduler");
+            default:
+                break;
+        }
+        if (!name.startsWith("run") && !name.startsWith("schedule")) {
+            return StandIns.neutral(method.getReturnType());
+        }
+        // Every variant is (plugin, task[, delay[, period]])
+        Object work = args[1];
+        long delay = args.length > 2 ? (long) args[2] : 0;
+        long period = args.length > 3 ? (long) args[3] : -1;
+        SimTask task = new SimTask(lastTaskId.incrementAndGet(), name.contains("Async"), currentTick + Math.max(1, delay), period);
+        task.task = StandIns.proxy(BukkitTask.class, task);
+        if (work instanceof Consumer<?> consumer) {
+            task.work = () -> ((Consumer<BukkitTask>) consumer).accept(task.task);
+        } else {
+            task.work = (Runnable) work;
+        }
+        tasks.add(task);
+        if (name.startsWith("schedule")) {
+            return task.id;
+        }
+        return method.getReturnType() == void.class ? null : task.task;
+    }
+
+    private static final class SimTask implements InvocationHandler {
+        private final int id;
+        private final boolean async;
+        private final long period;
+        private long nextTick;
+        private volatile boolean cancelled;
+        private Runnable work;
+        private BukkitTask task;
+
+        private SimTask(int id, boolean async, long nextTick, long period) {
+            this.id = id;
+            this.async = async;
+            this.nextTick = nextTick;
+            this.period = period;
+        }
+
+        private void run() {
+            try {
+                work.run();
+            } catch (Throwable e) {
+                System.err.println("Task " + id + " threw an exception:");
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "getTaskId" -> id;
+                case "isSync" -> !async;
+                case "isCancelled" -> cancelled;
+                case "cancel" -> {
+                    cancelled = true;
+                    yield null;
+                }
+                case "equals", "hashCode", "toString" -> StandIns.objectMethod(proxy, method, args, "SimTask{" + id + "}");
+                default -> StandIns.neutral(method.getReturnType());
+            };
+        }
+    }
+}
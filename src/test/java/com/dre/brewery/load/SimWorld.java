@@ -0,0 +1,320 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.load;
+
+import lombok.Getter;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BrewingStand;
+import org.bukkit.block.data.Bisected;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Levelled;
+import org.bukkit.block.data.type.Stairs;
+import org.bukkit.inventory.BrewerInventory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A world of blocks kept in a map, every chunk of it is loaded. Effects, particles and sounds go nowhere.
+ */
+final class SimWorld implements InvocationHandler {
+
+    private record Pos(int x, int y, int z) {
+    }
+
+    private final String name;
+    private final UUID uid = UUID.randomUUID();
+    private final Map<Pos, Block> blocks = new HashMap<>();
+    @Getter
+    private final World world;
+
+    SimWorld(String name) {
+        this.name = name;
+        this.world = StandIns.proxy(World.class, this);
+    }
+
+    Block block(int x, int y, int z) {
+        return blocks.computeIfAbsent(new Pos(x, y, z), pos -> StandIns.proxy(Block.class, new SimBlock(pos)));
+    }
+
+    void set(int x, int y, int z, Material type) {
+        set(x, y, z, blockData(type));
+    }
+
+    void set(int x, int y, int z, BlockData data) {
+        handler(block(x, y, z)).data = data;
+    }
+
+    static BlockData blockData(Material type) {
+        if (type == Material.WATER_CAULDRON) {
+            return StandIns.proxy(Levelled.class, new SimBlockData(type, null, null, 3));
+        }
+        return StandIns.proxy(BlockData.class, new SimBlockData(type, null, null, 0));
+    }
+
+    static Stairs stairs(Material type, Bisected.Half half, BlockFace facing) {
+        return StandIns.proxy(Stairs.class, new SimBlockData(type, half, facing, 0));
+    }
+
+    private static SimBlock handler(Block block) {
+        return (SimBlock) Proxy.getInvocationHandler(block);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            return StandIns.objectMethod(proxy, method, args, "World{" + name + "}");
+        }
+        switch (method.getName()) {
+            case "getName":
+                return name;
+            case "getUID":
+                return uid;
+            case "getBlockAt":
+                if (args.length == 1) {
+                    Location location = (Location) args[0];
+                    return block(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                }
+                return block((int) args[0], (int) args[1], (int) args[2]);
+            case "getChunkAt":
+                if (args.length == 1) {
+                    Object at = args[0];
+                    if (at instanceof Location location) {
+                        return chunk(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+                    }
+                    Block block = (Block) at;
+                    return chunk(block.getX() >> 4, block.getZ() >> 4);
+                }
+                return chunk((int) args[0], (int) args[1]);
+            case "isChunkLoaded":
+                return true;
+            case "getEnvironment":
+                return World.Environment.NORMAL;
+            case "getMaxHeight":
+                return 320;
+            case "getMinHeight":
+                return -64;
+            default:
+                // Particles, effects and sounds
+                return StandIns.neutral(method.getReturnType());
+        }
+    }
+
+    private Chunk chunk(int chunkX, int chunkZ) {
+        return StandIns.proxy(Chunk.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getX" -> chunkX;
+            case "getZ" -> chunkZ;
+            case "getWorld" -> world;
+            case "isLoaded" -> true;
+            case "equals" -> args[0] instanceof Chunk other && other.getX() == chunkX && other.getZ() == chunkZ && other.getWorld() == world;
+            case "hashCode" -> 31 * chunkX + chunkZ;
+            case "toString" -> "Chunk{" + chunkX + "," + chunkZ + "}";
+            default -> StandIns.neutral(method.getReturnType());
+        });
+    }
+
+    private final class SimBlock implements InvocationHandler {
+        private final Pos pos;
+        private BlockData data = blockData(Material.AIR);
+        private BrewingStand stand;
+
+        private SimBlock(Pos pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                // Blocks are only ever created once per position, so identity is enough
+                return StandIns.objectMethod(proxy, method, args, "Block{" + pos + "=" + data.getMaterial() + "}");
+            }
+            switch (method.getName()) {
+                case "getType":
+                    return data.getMaterial();
+                case "getBlockData":
+                    return data;
+                case "setType":
+                    data = blockData((Material) args[0]);
+                    return null;
+                case "setBlockData":
+                    data = (BlockData) args[0];
+                    return null;
+                case "getX":
+                    return pos.x();
+                case "getY":
+                    return pos.y();
+                case "getZ":
+                    return pos.z();
+                case "getWorld":
+                    return world;
+                case "getChunk":
+                    return chunk(pos.x() >> 4, pos.z() >> 4);
+                case "getLocation":
+                    if (args != null && args.length == 1 && args[0] != null) {
+                        Location location = (Location) args[0];
+                        location.setWorld(world);
+                        location.setX(pos.x());
+                        location.setY(pos.y());
+                        location.setZ(pos.z());
+                        location.setYaw(0);
+                        location.setPitch(0);
+                        return location;
+                    }
+                    return new Location(world, pos.x(), pos.y(), pos.z());
+                case "getRelative":
+                    if (args.length == 3) {
+                        return block(pos.x() + (int) args[0], pos.y() + (int) args[1], pos.z() + (int) args[2]);
+                    }
+                    BlockFace face = (BlockFace) args[0];
+                    int distance = args.length == 2 ? (int) args[1] : 1;
+                    return block(pos.x() + face.getModX() * distance, pos.y() + face.getModY() * distance, pos.z() + face.getModZ() * distance);
+                case "getState":
+                    if (data.getMaterial() == Material.BREWING_STAND) {
+                        if (stand == null) {
+                            stand = StandIns.proxy(BrewingStand.class, new SimBrewingStand((Block) proxy));
+                        }
+                        return stand;
+                    }
+                    return null;
+                case "isEmpty":
+                    return data.getMaterial().isAir();
+                case "isLiquid":
+                    return data.getMaterial() == Material.WATER || data.getMaterial() == Material.LAVA;
+                default:
+                    return StandIns.neutral(method.getReturnType());
+            }
+        }
+    }
+
+    /**
+     * The state of a brewing stand. Changes apply right away, update() has nothing left to do.
+     */
+    static final class SimBrewingStand implements InvocationHandler {
+        private final Block block;
+        private BrewerInventory inventory;
+        private int brewingTime;
+        private int fuelLevel;
+
+        private SimBrewingStand(Block block) {
+            this.block = block;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                return StandIns.objectMethod(proxy, method, args, "BrewingStand{" + block + "}");
+            }
+            switch (method.getName()) {
+                case "getInventory":
+                case "getSnapshotInventory":
+                    if (inventory == null) {
+                        inventory = SimInventory.brewer((BrewingStand) proxy);
+                    }
+                    return inventory;
+                case "getBrewingTime":
+                    return brewingTime;
+                case "setBrewingTime":
+                    brewingTime = (int) args[0];
+                    return null;
+                case "getFuelLevel":
+                    return fuelLevel;
+                case "setFuelLevel":
+                    fuelLevel = (int) args[0];
+                    return null;
+                case "update":
+                    return true;
+                case "getBlock":
+                    return block;
+                case "getType":
+                    return block.getType();
+                case "getWorld":
+                    return block.getWorld();
+                case "getLocation":
+                    return block.getLocation();
+                case "isPlaced":
+                    return true;
+                default:
+                    return StandIns.neutral(method.getReturnType());
+            }
+        }
+    }
+
+    private static final class SimBlockData implements InvocationHandler {
+        private final Material material;
+        private Bisected.Half half;
+        private BlockFace facing;
+        private int level;
+
+        private SimBlockData(Material material, Bisected.Half half, BlockFace facing, int level) {
+            this.material = material;
+            this.half = half;
+            this.facing = facing;
+            this.level = level;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getMaterial":
+                    return material;
+                case "getHalf":
+                    return half;
+                case "setHalf":
+                    half = (Bisected.Half) args[0];
+                    return null;
+                case "getFacing":
+                    return facing;
+                case "setFacing":
+                    facing = (BlockFace) args[0];
+                    return null;
+                case "getShape":
+                    return Stairs.Shape.STRAIGHT;
+                case "getLevel":
+                    return level;
+                case "setLevel":
+                    level = (int) args[0];
+                    return null;
+                case "getMaximumLevel":
+                    return 3;
+                case "clone":
+                    return StandIns.proxy(proxy.getClass().getInterfaces()[0].asSubclass(BlockData.class), new SimBlockData(material, half, facing, level));
+                case "getAsString":
+                case "toString":
+                    return material.getKey() + "[half=" + half + ",facing=" + facing + ",level=" + level + "]";
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return StandIns.neutral(method.getReturnType());
+            }
+        }
+    }
+}
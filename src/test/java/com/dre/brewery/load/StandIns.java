@@ -0,0 +1,282 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.load;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.PotionMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Proxies standing in for the Bukkit interfaces the harness doesn't implement by hand.
+ * <p>Anything not handled explicitly returns a neutral value: zero, false, an empty String or collection, or null.
+ */
+final class StandIns {
+
+    private StandIns() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler, Class<?>... more) {
+        Class<?>[] interfaces = new Class<?>[more.length + 1];
+        interfaces[0] = type;
+        System.arraycopy(more, 0, interfaces, 1, more.length);
+        return (T) Proxy.newProxyInstance(StandIns.class.getClassLoader(), interfaces, handler);
+    }
+
+    /**
+     * A proxy that only ever answers with neutral values.
+     */
+    static <T> T noop(Class<T> type) {
+        return proxy(type, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args, type.getSimpleName());
+            }
+            return neutral(method.getReturnType());
+        });
+    }
+
+    static Object neutral(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == String.class) {
+            return "";
+        } else if (type == List.class || type == Collection.class) {
+            return new ArrayList<>();
+        } else if (type == Set.class) {
+            return new HashSet<>();
+        } else if (type == Map.class) {
+            return new HashMap<>();
+        }
+        return null;
+    }
+
+    /**
+     * Identity semantics for the methods every proxy inherits from Object.
+     */
+    static Object objectMethod(Object proxy, Method method, Object[] args, String name) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> name;
+        };
+    }
+
+    static PotionMeta newItemMeta() {
+        return new MetaHandler().proxy();
+    }
+
+    static boolean isEmpty(ItemMeta meta) {
+        return meta == null || (Proxy.isProxyClass(meta.getClass()) && Proxy.getInvocationHandler(meta) instanceof MetaHandler handler && handler.isEmpty());
+    }
+
+    /**
+     * Potion meta that keeps its properties in maps, the only item meta brews need.
+     */
+    private static final class MetaHandler implements InvocationHandler {
+        private final Map<String, Object> values = new LinkedHashMap<>();
+        private final List<PotionEffect> effects = new ArrayList<>();
+        private final Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+        private final Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+        private final Map<NamespacedKey, Object> data = new LinkedHashMap<>();
+
+        private PotionMeta proxy() {
+            return StandIns.proxy(PotionMeta.class, this, Damageable.class);
+        }
+
+        private boolean isEmpty() {
+            return values.isEmpty() && effects.isEmpty() && enchants.isEmpty() && flags.isEmpty() && data.isEmpty();
+        }
+
+        private MetaHandler copy() {
+            MetaHandler copy = new MetaHandler();
+            values.forEach((key, value) -> copy.values.put(key, value instanceof List<?> list ? new ArrayList<>(list) : value));
+            copy.effects.addAll(effects);
+            copy.enchants.putAll(enchants);
+            copy.flags.addAll(flags);
+            copy.data.putAll(data);
+            return copy;
+        }
+
+        private List<Object> state() {
+            return List.of(values, effects, enchants, flags, data);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            int arity = args == null ? 0 : args.length;
+            switch (name) {
+                case "equals":
+                    return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                        && Proxy.getInvocationHandler(args[0]) instanceof MetaHandler other && other.state().equals(state());
+                case "hashCode":
+                    return state().hashCode();
+                case "toString":
+                    return "PotionMeta" + values;
+                case "clone":
+                    return copy().proxy();
+                case "serialize":
+                    return serialize();
+                case "getPersistentDataContainer":
+                    return StandIns.proxy(PersistentDataContainer.class, this::invokeData);
+                case "addCustomEffect":
+                    if ((boolean) args[1]) {
+                        effects.removeIf(effect -> effect.getType().equals(((PotionEffect) args[0]).getType()));
+                    }
+                    effects.add((PotionEffect) args[0]);
+                    return true;
+                case "hasCustomEffect":
+                    return effects.stream().anyMatch(effect -> effect.getType().equals(args[0]));
+                case "removeCustomEffect":
+                    return effects.removeIf(effect -> effect.getType().equals((PotionEffectType) args[0]));
+                case "hasCustomEffects":
+                    return !effects.isEmpty();
+                case "getCustomEffects":
+                    return new ArrayList<>(effects);
+                case "clearCustomEffects":
+                    effects.clear();
+                    return true;
+                case "addEnchant":
+                    enchants.put((Enchantment) args[0], (Integer) args[1]);
+                    return true;
+                case "removeEnchant":
+                    return enchants.remove((Enchantment) args[0]) != null;
+                case "hasEnchants":
+                    return !enchants.isEmpty();
+                case "hasEnchant":
+                    return enchants.containsKey((Enchantment) args[0]);
+                case "getEnchants":
+                    return new LinkedHashMap<>(enchants);
+                case "getEnchantLevel":
+                    return enchants.getOrDefault((Enchantment) args[0], 0);
+                case "addItemFlags":
+                    flags.addAll(List.of((ItemFlag[]) args[0]));
+                    return null;
+                case "removeItemFlags":
+                    List.of((ItemFlag[]) args[0]).forEach(flags::remove);
+                    return null;
+                case "hasItemFlag":
+                    return flags.contains((ItemFlag) args[0]);
+                case "getItemFlags":
+                    return EnumSet.copyOf(flags);
+                default:
+                    break;
+            }
+            if (name.startsWith("set") && arity == 1) {
+                String property = name.substring(3);
+                if (args[0] == null) {
+                    values.remove(property);
+                } else {
+                    values.put(property, args[0] instanceof List<?> list ? new ArrayList<>(list) : args[0]);
+                }
+                return null;
+            }
+            if (name.startsWith("has") && arity == 0) {
+                Object value = values.get(name.substring(3));
+                return value != null && !(value instanceof List<?> list && list.isEmpty());
+            }
+            if (name.startsWith("get") && arity == 0) {
+                Object value = values.get(name.substring(3));
+                if (value instanceof List<?> list) {
+                    return new ArrayList<>(list);
+                }
+                return value != null ? value : neutral(method.getReturnType());
+            }
+            return neutral(method.getReturnType());
+        }
+
+        private Object invokeData(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "set" -> data.put((NamespacedKey) args[0], args[2]);
+                case "get" -> data.get((NamespacedKey) args[0]);
+                case "getOrDefault" -> data.getOrDefault((NamespacedKey) args[0], args[2]);
+                case "has" -> data.containsKey((NamespacedKey) args[0]);
+                case "remove" -> data.remove((NamespacedKey) args[0]);
+                case "isEmpty" -> data.isEmpty();
+                case "getKeys" -> new HashSet<>(data.keySet());
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> "PersistentDataContainer" + data.keySet();
+                default -> neutral(method.getReturnType());
+            };
+        }
+
+        // Only written, never read back, so it just has to survive the Bukkit object streams
+        private Map<String, Object> serialize() {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("meta-type", "POTION");
+            values.forEach((key, value) -> out.put(key, value instanceof List<?> list ? new ArrayList<>(list) : String.valueOf(value)));
+            if (!effects.isEmpty()) {
+                out.put("custom-effects", new ArrayList<>(effects));
+            }
+            if (!enchants.isEmpty()) {
+                Map<String, Object> enchantments = new LinkedHashMap<>();
+                enchants.forEach((enchantment, level) -> enchantments.put(enchantment.getKey().toString(), level));
+                out.put("enchants", enchantments);
+            }
+            if (!flags.isEmpty()) {
+                out.put("ItemFlags", flags.stream().map(Enum::name).toList());
+            }
+            if (!data.isEmpty()) {
+                Map<String, Object> container = new LinkedHashMap<>();
+                data.forEach((key, value) -> container.put(key.toString(), value instanceof byte[] bytes
+                    ? Base64.getEncoder().encodeToString(bytes) : Objects.toString(value)));
+                out.put("PublicBukkitValues", container);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The expected messages are what the regex based color gave, with ChatColor doing the translating.
+ */
+class BUtilTest {
+
+    @Test
+    void colorCodes() {
+        assertEquals("§6Hello §lWorld", BUtil.color("&6Hello &lWorld"));
+        assertEquals("§aGreen §lBold §r", BUtil.color("&AGreen &LBold &R"));
+        assertEquals("§x§1§2§3§4§5§6six", BUtil.color("&x&1&2&3&4&5&6six"));
+    }
+
+    @Test
+    void hexColors() {
+        assertEquals("§x§1§2§a§b§E§FHex", BUtil.color("&#12abEFHex"));
+        assertEquals("§x§1§2§a§b§E§F§lBold §x§f§f§f§f§f§f", BUtil.color("&#12abEF&lBold &#ffffff"));
+    }
+
+    @Test
+    void otherTextStays() {
+        assertEquals("plain", BUtil.color("plain"));
+        assertEquals("Fish & Chips &z & end", BUtil.color("Fish & Chips &z & end"));
+        assertNull(BUtil.color(null));
+    }
+
+    @Test
+    void doubleAmpersandDoesNotColor() {
+        assertEquals("a&&6b", BUtil.color("a&&6b"));
+        assertEquals("a&&§6b", BUtil.color("a&&&6b"));
+        assertEquals("x && y", BUtil.color("x && y"));
+    }
+
+    @Test
+    void cachedResultIsTheSame() {
+        String first = BUtil.color("&c&lCached &#00FF00message");
+        assertEquals(first, BUtil.color("&c&lCached &#00FF00message"));
+        assertEquals("§c§lCached §x§0§0§F§F§0§0message", first);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * BreweryX Bukkit-Plugin for an alternate brewing process
+ * Copyright (C) 2024 The Brewery Team
+ *
+ * This file is part of BreweryX.
+ *
+ * BreweryX is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * BreweryX is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with BreweryX. If not, see <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+
+package com.dre.brewery.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The expected messages are what Lang gave when it replaced the parameters one after another and colored the result.
+ */
+class MessageTemplateTest {
+
+    @Test
+    void parameters() {
+        MessageTemplate template = MessageTemplate.compile("&v1 drank &v2");
+        assertEquals("Steve drank Beer", template.format(false, "Steve", "Beer"));
+        assertEquals("Steve drank Beer", template.format(true, "Steve", "Beer"));
+    }
+
+    @Test
+    void nullArgumentsAreSkipped() {
+        assertEquals("Steve drank Beer", MessageTemplate.compile("&v1 drank &v2").format(false, null, "Steve", null, "Beer"));
+    }
+
+    @Test
+    void missingArgumentsStay() {
+        assertEquals("a and &v2", MessageTemplate.compile("&v1 and &v2").format(false, "a"));
+    }
+
+    @Test
+    void parametersInAnyOrderAndRepeated() {
+        assertEquals("two before one, one again", MessageTemplate.compile("&v2 before &v1, &v1 again").format(true, "one", "two"));
+    }
+
+    @Test
+    void argumentsAreColoredWithTheMessage() {
+        MessageTemplate template = MessageTemplate.compile("&6&v1 &7drank &e&v2");
+        assertEquals("§6Steve §7drank §e§cBeer", template.format(true, "Steve", "&cBeer"));
+        assertEquals("&6Steve &7drank &e&cBeer", template.format(false, "Steve", "&cBeer"));
+        assertEquals("Value §x§0§0§F§F§0§0green§r", MessageTemplate.compile("Value &v1&v2").format(true, "&#00FF00green", "&r"));
+    }
+
+    @Test
+    void withoutParameters() {
+        MessageTemplate template = MessageTemplate.compile("&aHello");
+        assertEquals("§aHello", template.format(true));
+        assertEquals("&aHello", template.format(false));
+        assertEquals("§aHello", template.format(true, "unused"));
+        assertEquals("&aHello", template.getRaw());
+    }
+
+    @Test
+    void nonStringArguments() {
+        assertEquals("50%", MessageTemplate.compile("&v1%").format(true, 50));
+    }
+}